@@ -0,0 +1,132 @@
+package com.socialapp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.socialapp.dto.CursorPage;
+import com.socialapp.dto.PostSummary;
+import com.socialapp.model.Comment;
+import com.socialapp.model.Post;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to serialize the post payloads of the API to JSON, as the controllers return them.
+ * <p>
+ * The mapper is configured like Spring Boot's. The payloads are a created {@link Post},
+ * a page of {@link PostSummary} as returned by the author and feed endpoints, and a page
+ * of {@link Comment}. Posts carry {@code contentLength} characters of text; in the page
+ * they also carry like and comment counters and, for every other post, a photo reference
+ * whose URL is derived during serialization. Likes and comments are not part of a post since
+ * they moved to their own collections, so their numbers do not change the payload size;
+ * the size of each payload is printed after setup.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonSerializationBenchmark {
+
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"80", "1000"})
+    public int contentLength;
+
+    private ObjectMapper objectMapper;
+    private Post post;
+    private CursorPage<PostSummary> postPage;
+    private CursorPage<Comment> commentPage;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        SplittableRandom random = new SplittableRandom(42);
+        LocalDateTime now = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+        post = new Post();
+        post.setId(new ObjectId().toHexString());
+        post.setTitle("A title of about forty characters, or so");
+        post.setContent(text(random, contentLength));
+        post.setPhotoId(new ObjectId().toHexString());
+        post.setAuthorId(new ObjectId().toHexString());
+        post.setCreatedAt(now);
+
+        List<PostSummary> posts = new ArrayList<>(PAGE_SIZE);
+        List<Comment> comments = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            PostSummary summary = new PostSummary();
+            summary.setId(new ObjectId().toHexString());
+            summary.setTitle("A title of about forty characters, or so");
+            summary.setContent(text(random, contentLength));
+            summary.setPhotoId(i % 2 == 0 ? new ObjectId().toHexString() : null);
+            summary.setAuthorId(new ObjectId().toHexString());
+            summary.setCreatedAt(now.minusMinutes(i * 7L));
+            summary.setLikeCount(random.nextInt(5000));
+            summary.setCommentCount(random.nextInt(500));
+            posts.add(summary);
+
+            Comment comment = new Comment();
+            comment.setId(new ObjectId().toHexString());
+            comment.setPostId(post.getId());
+            comment.setAuthorId(new ObjectId().toHexString());
+            comment.setText(text(random, 20 + random.nextInt(180)));
+            comment.setCreatedAt(now.plusMinutes(i));
+            comments.add(comment);
+        }
+        postPage = new CursorPage<>(posts, "eyJ0IjoxNzE3MjQzMjAwMDAwLCJpZCI6IjY2NWIifQ");
+        commentPage = new CursorPage<>(comments, comments.get(PAGE_SIZE - 1).getId());
+
+        System.out.printf("%nPayload sizes: post %d B, post page %d B, comment page %d B%n",
+                post().length, postPage().length, commentPage().length);
+    }
+
+    @Benchmark
+    public byte[] post() throws Exception {
+        return objectMapper.writeValueAsBytes(post);
+    }
+
+    @Benchmark
+    public byte[] postPage() throws Exception {
+        return objectMapper.writeValueAsBytes(postPage);
+    }
+
+    @Benchmark
+    public byte[] commentPage() throws Exception {
+        return objectMapper.writeValueAsBytes(commentPage);
+    }
+
+    private static String text(SplittableRandom random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            int word = 2 + random.nextInt(8);
+            for (int i = 0; i < word && text.length() < length; i++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+            if (text.length() < length) {
+                text.append(' ');
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,187 @@
+package com.socialapp;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request throughput of the platform and virtual thread modes when requests block on a database.
+ * <p>
+ * The database is a local stand-in: a socket server that answers every one-byte
+ * request after {@code latencyMillis}, like a MongoDB query that spends its time on
+ * the server. Each simulated request makes {@link #QUERIES} round trips over a pooled
+ * connection, like a controller making a few repository calls. Requests are served by:
+ * <ul>
+ *     <li>{@code platform}: a fixed pool of 200 platform threads, Tomcat's default maximum;</li>
+ *     <li>{@code virtual}: a virtual thread per request, as with {@code spring.threads.virtual.enabled=true};</li>
+ *     <li>{@code virtual-pinned}: the same, but each round trip holds a monitor, which pins
+ *     the virtual thread to its carrier and shows what a pinning hot spot costs.</li>
+ * </ul>
+ * The connection pool has {@code connections} sockets; the driver's default is 100.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Djdk.tracePinnedThreads=short"})
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ThreadingModeBenchmark {
+
+    private static final int REQUESTS = 2000;
+    private static final int QUERIES = 3;
+    private static final int PLATFORM_THREADS = 200;
+
+    @Param({"platform", "virtual", "virtual-pinned"})
+    public String mode;
+
+    @Param({"100", "1000"})
+    public int connections;
+
+    @Param({"2"})
+    public int latencyMillis;
+
+    private StandIn database;
+    private BlockingQueue<Socket> pool;
+    private ExecutorService executor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        database = new StandIn(latencyMillis);
+        pool = new ArrayBlockingQueue<>(connections);
+        for (int i = 0; i < connections; i++) {
+            Socket socket = new Socket(InetAddress.getLoopbackAddress(), database.port());
+            socket.setTcpNoDelay(true);
+            pool.add(socket);
+        }
+        executor = mode.equals("platform")
+                ? Executors.newFixedThreadPool(PLATFORM_THREADS)
+                : Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        for (Socket socket : pool) {
+            socket.close();
+        }
+        database.close();
+    }
+
+    /**
+     * Serves a burst of {@link #REQUESTS} concurrent requests and waits for all of them.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(REQUESTS)
+    public void serveRequests() throws Exception {
+        boolean pinned = mode.equals("virtual-pinned");
+        List<Future<?>> requests = new ArrayList<>(REQUESTS);
+        for (int i = 0; i < REQUESTS; i++) {
+            requests.add(executor.submit(() -> {
+                Object monitor = new Object();
+                for (int query = 0; query < QUERIES; query++) {
+                    if (pinned) {
+                        synchronized (monitor) {
+                            roundTrip();
+                        }
+                    } else {
+                        roundTrip();
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> request : requests) {
+            request.get();
+        }
+    }
+
+    private void roundTrip() throws InterruptedException {
+        Socket socket = pool.take();
+        try {
+            OutputStream out = socket.getOutputStream();
+            out.write(1);
+            out.flush();
+            if (socket.getInputStream().read() < 0) {
+                throw new IOException("The stand-in closed the connection");
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            pool.add(socket);
+        }
+    }
+
+    /**
+     * A socket server answering each byte it receives after a fixed delay, one virtual thread per connection.
+     */
+    private static final class StandIn implements AutoCloseable {
+
+        private final ServerSocket server;
+        private final Thread acceptor;
+
+        StandIn(int latencyMillis) throws IOException {
+            server = new ServerSocket(0, 4096, InetAddress.getLoopbackAddress());
+            acceptor = Thread.ofPlatform().daemon().name("stand-in-acceptor").start(() -> {
+                while (!server.isClosed()) {
+                    try {
+                        Socket connection = server.accept();
+                        connection.setTcpNoDelay(true);
+                        Thread.ofVirtual().start(() -> answer(connection, latencyMillis));
+                    } catch (IOException e) {
+                        return;
+                    }
+                }
+            });
+        }
+
+        int port() {
+            return server.getLocalPort();
+        }
+
+        private static void answer(Socket connection, int latencyMillis) {
+            try (connection; InputStream in = connection.getInputStream(); OutputStream out = connection.getOutputStream()) {
+                int request;
+                while ((request = in.read()) >= 0) {
+                    Thread.sleep(latencyMillis);
+                    out.write(request);
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException e) {
+                // The benchmark closed the connection.
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+            acceptor.interrupt();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.socialapp.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandSucceededEvent;
+import com.socialapp.dto.PostSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.core.instrument.observation.DefaultMeterObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.filter.ServerHttpObservationFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Throughput of a request with and without the metrics of {@code MetricsConfig}.
+ * <p>
+ * A request serializes a page of post summaries with Jackson, as
+ * {@code GET /api/test/posts/author/{authorId}} does, and receives one MongoDB reply of
+ * the same posts. The instrumented variant runs it through the production pieces: the
+ * {@code http.server.requests} observation filter with {@link HandlerObservationConvention}
+ * and a percentile histogram, {@link ResponseSizeFilter} and {@link MongoReplySizeListener},
+ * all recording into a Prometheus registry. Both variants allocate the same mock request
+ * and response. Scrapes are left out: they happen every few seconds, not per request.
+ * <p>
+ * The overhead is {@code 1 - instrumented / plain}. With {@code mongoMicros = 0} the request
+ * does no I/O, so this is an upper bound. Otherwise the reply is read from a local stand-in
+ * for MongoDB, a socket server that sends the reply bytes {@code mongoMicros} after each
+ * request, like a query that spends that long on the server.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class InstrumentationOverheadBenchmark {
+
+    private static final String URI = "/api/test/posts/author/{authorId}";
+
+    @Param({"1", "20"})
+    public int pageSize;
+
+    @Param({"0", "500"})
+    public int mongoMicros;
+
+    private ObjectMapper objectMapper;
+    private List<PostSummary> page;
+    private PrometheusMeterRegistry meterRegistry;
+    private ServerHttpObservationFilter observationFilter;
+    private ResponseSizeFilter responseSizeFilter;
+    private MongoReplySizeListener replySizeListener;
+    private CommandSucceededEvent reply;
+    private HandlerMethod handler;
+    private StandIn database;
+    private Socket connection;
+    private byte[] replyBuffer;
+
+    @Setup(Level.Trial)
+    public void setUp() throws NoSuchMethodException, IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        page = new ArrayList<>(pageSize);
+        BsonArray batch = new BsonArray();
+        for (int i = 0; i < pageSize; i++) {
+            PostSummary post = new PostSummary();
+            post.setId(Integer.toHexString(0x10000000 + i));
+            post.setTitle("Post number " + i);
+            post.setContent("Some content that is about as long as an average post on the platform, " + i);
+            post.setAuthorId("author");
+            post.setCreatedAt(LocalDateTime.of(2025, 1, 1, 0, 0).plusMinutes(i));
+            post.setLikeCount(i);
+            page.add(post);
+            batch.add(new BsonDocument("_id", new BsonString(post.getId()))
+                    .append("title", new BsonString(post.getTitle()))
+                    .append("content", new BsonString(post.getContent()))
+                    .append("likeCount", new BsonInt32(i)));
+        }
+
+        meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        // As management.metrics.distribution.percentiles-histogram.http.server.requests=true does.
+        meterRegistry.config().meterFilter(new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                return id.getName().equals("http.server.requests")
+                        ? DistributionStatisticConfig.builder().percentilesHistogram(true).build().merge(config)
+                        : config;
+            }
+        });
+        ObservationRegistry observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(new DefaultMeterObservationHandler(meterRegistry));
+        observationFilter = new ServerHttpObservationFilter(observationRegistry, new HandlerObservationConvention());
+        responseSizeFilter = new ResponseSizeFilter(meterRegistry);
+        replySizeListener = new MongoReplySizeListener(meterRegistry);
+
+        BsonDocument response = new BsonDocument("cursor", new BsonDocument("firstBatch", batch)
+                .append("id", new BsonInt32(0)))
+                .append("ok", new BsonInt32(1));
+        reply = new CommandSucceededEvent(null, 1, 1,
+                new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress())),
+                "socialapp", "find", new RawBsonDocument(response, new BsonDocumentCodec()), 1_000_000);
+        handler = new HandlerMethod(this, InstrumentationOverheadBenchmark.class.getMethod("plain"));
+
+        if (mongoMicros > 0) {
+            ByteBuffer replyBytes = ((RawBsonDocument) reply.getResponse()).getByteBuffer().asNIO();
+            byte[] bytes = new byte[replyBytes.remaining()];
+            replyBytes.get(bytes);
+            database = new StandIn(bytes, mongoMicros);
+            connection = new Socket(InetAddress.getLoopbackAddress(), database.port());
+            connection.setTcpNoDelay(true);
+            replyBuffer = new byte[bytes.length];
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        meterRegistry.close();
+        if (database != null) {
+            connection.close();
+            database.close();
+        }
+    }
+
+    @Benchmark
+    public MockHttpServletResponse plain() throws Exception {
+        query();
+        MockHttpServletRequest request = request();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        handle().doFilter(request, response);
+        return response;
+    }
+
+    @Benchmark
+    public MockHttpServletResponse instrumented() throws Exception {
+        MockHttpServletRequest request = request();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        query();
+        replySizeListener.commandSucceeded(reply);
+        observationFilter.doFilter(request, response,
+                (req, res) -> responseSizeFilter.doFilter(req, res, handle()));
+        return response;
+    }
+
+    /**
+     * Reads the reply of one query from the stand-in, if there is one.
+     */
+    private void query() throws IOException {
+        if (database == null) {
+            return;
+        }
+        OutputStream out = connection.getOutputStream();
+        out.write(1);
+        out.flush();
+        if (connection.getInputStream().readNBytes(replyBuffer, 0, replyBuffer.length) < replyBuffer.length) {
+            throw new IOException("The stand-in closed the connection");
+        }
+    }
+
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/test/posts/author/author");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, URI);
+        request.setAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE, handler);
+        return request;
+    }
+
+    private FilterChain handle() {
+        return (request, response) -> {
+            response.setContentType("application/json");
+            objectMapper.writeValue(response.getOutputStream(), page);
+        };
+    }
+
+    /**
+     * A socket server that answers each byte it receives with the reply after a fixed delay.
+     */
+    private static final class StandIn implements AutoCloseable {
+
+        private final ServerSocket server;
+        private final Thread acceptor;
+
+        StandIn(byte[] reply, int latencyMicros) throws IOException {
+            server = new ServerSocket(0, 16, InetAddress.getLoopbackAddress());
+            acceptor = new Thread(() -> {
+                try (Socket connection = server.accept();
+                     InputStream in = connection.getInputStream();
+                     OutputStream out = connection.getOutputStream()) {
+                    connection.setTcpNoDelay(true);
+                    while (in.read() >= 0) {
+                        LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(latencyMicros));
+                        out.write(reply);
+                        out.flush();
+                    }
+                } catch (IOException e) {
+                    // The benchmark closed the connection.
+                }
+            }, "stand-in-mongodb");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return server.getLocalPort();
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+            acceptor.interrupt();
+        }
+    }
+}
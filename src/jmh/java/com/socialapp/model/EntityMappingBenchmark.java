@@ -0,0 +1,163 @@
+package com.socialapp.model;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time Spring Data's {@link MappingMongoConverter} takes to map each entity to a document and back.
+ * <p>
+ * This is the client-side cost of every insert and read, on top of the driver's BSON
+ * encoding, and needs no database. The entities are filled like in production: a user with
+ * 200 friends, a full timeline of 500 entries, a post with 300 characters of content.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EntityMappingBenchmark {
+
+    @Param({"Post", "User", "Message", "Comment", "PostLike", "FriendRequest", "Timeline", "Media"})
+    public String entity;
+
+    private MappingMongoConverter converter;
+    private Object source;
+    private Class<?> type;
+    private Document document;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        MongoMappingContext mappingContext = new MongoMappingContext();
+        mappingContext.setInitialEntitySet(Set.of(Post.class, User.class, Message.class, Comment.class,
+                PostLike.class, FriendRequest.class, Timeline.class, Media.class));
+        mappingContext.afterPropertiesSet();
+        converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, mappingContext);
+        converter.afterPropertiesSet();
+
+        source = sample(entity);
+        type = source.getClass();
+        document = write();
+    }
+
+    @Benchmark
+    public Document write() {
+        Document target = new Document();
+        converter.write(source, target);
+        return target;
+    }
+
+    @Benchmark
+    public Object read() {
+        return converter.read(type, document);
+    }
+
+    private static Object sample(String entity) {
+        LocalDateTime now = LocalDateTime.of(2025, 6, 1, 12, 0);
+        return switch (entity) {
+            case "Post" -> {
+                Post post = new Post();
+                post.setId(id());
+                post.setTitle("A title of about forty characters, or so");
+                post.setContent("x".repeat(300));
+                post.setPhotoId(id());
+                post.setAuthorId(id());
+                post.setLikeCount(1200);
+                post.setCommentCount(45);
+                yield post;
+            }
+            case "User" -> {
+                User user = new User();
+                user.setId(id());
+                user.setEmail("someone@example.com");
+                user.setUsername("someone");
+                user.setPassword("{bcrypt}$2a$10$" + "x".repeat(53));
+                user.setName("Some");
+                user.setFullName("Some One");
+                user.setBio("x".repeat(120));
+                user.setProfilePhotoId(id());
+                List<String> friends = new ArrayList<>(200);
+                for (int i = 0; i < 200; i++) {
+                    friends.add(id());
+                }
+                user.setFriends(friends);
+                yield user;
+            }
+            case "Message" -> {
+                Message message = new Message();
+                message.setId(id());
+                message.setSenderId(id());
+                message.setReceiverId(id());
+                message.setConversationId(message.getSenderId() + ":" + message.getReceiverId());
+                message.setContent("x".repeat(80));
+                yield message;
+            }
+            case "Comment" -> {
+                Comment comment = new Comment();
+                comment.setId(id());
+                comment.setPostId(id());
+                comment.setAuthorId(id());
+                comment.setText("x".repeat(100));
+                yield comment;
+            }
+            case "PostLike" -> {
+                PostLike like = new PostLike(id(), id());
+                like.setId(id());
+                yield like;
+            }
+            case "FriendRequest" -> {
+                FriendRequest request = new FriendRequest();
+                request.setId(id());
+                request.setSenderId(id());
+                request.setReceiverId(id());
+                request.setPairKey(request.getSenderId() + ":" + request.getReceiverId());
+                yield request;
+            }
+            case "Timeline" -> {
+                Timeline timeline = new Timeline();
+                timeline.setId(id());
+                List<Timeline.Entry> entries = new ArrayList<>(500);
+                for (int i = 0; i < 500; i++) {
+                    entries.add(new Timeline.Entry(id(), now.minusMinutes(i)));
+                }
+                timeline.setEntries(entries);
+                yield timeline;
+            }
+            case "Media" -> {
+                Media media = new Media();
+                media.setId(id());
+                media.setContentType("image/jpeg");
+                media.setSize(350_000);
+                media.setVariants(Map.of("small", id(), "medium", id(), "large", id()));
+                yield media;
+            }
+            default -> throw new IllegalArgumentException("Unknown entity: " + entity);
+        };
+    }
+
+    private static String id() {
+        return new ObjectId().toHexString();
+    }
+}
@@ -0,0 +1,103 @@
+package com.socialapp.service;
+
+import com.socialapp.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to check whether two users are friends, by the number of friends of the user.
+ * <p>
+ * Compares a search of {@link User#getFriends()}, as the stored document offers it, a
+ * {@link HashSet} of the same ids, and {@link FriendGraph#areFriends}, which serves
+ * {@link FriendGraphService}. The graph holds 100,000 other users with 20 friends each.
+ * Half of the checks are for friends.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FriendMembershipBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int FRIENDS_PER_USER = 20;
+
+    @Param({"10", "500", "5000"})
+    public int friends;
+
+    private User user;
+    private Set<String> friendSet;
+    private FriendGraph graph;
+    private String[] others;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        Map<String, List<String>> friendLists = new HashMap<>();
+        for (int i = 0; i < USERS; i++) {
+            List<String> list = new ArrayList<>(FRIENDS_PER_USER);
+            for (int j = 0; j < FRIENDS_PER_USER; j++) {
+                list.add(userId(random.nextInt(USERS)));
+            }
+            friendLists.put(userId(i), list);
+        }
+        user = new User();
+        user.setId("user");
+        for (int i = 0; i < friends; i++) {
+            user.getFriends().add(userId(random.nextInt(USERS)));
+        }
+        friendLists.put(user.getId(), user.getFriends());
+        friendSet = new HashSet<>(user.getFriends());
+        FriendGraph.Loader loader = new FriendGraph.Loader();
+        friendLists.forEach(loader::add);
+        graph = new FriendGraph();
+        graph.load(loader);
+
+        others = new String[1024];
+        for (int i = 0; i < others.length; i++) {
+            others[i] = i % 2 == 0
+                    ? user.getFriends().get(random.nextInt(friends))
+                    : userId(random.nextInt(USERS));
+        }
+    }
+
+    @Benchmark
+    public boolean friendList() {
+        return user.getFriends().contains(others[next++ & (others.length - 1)]);
+    }
+
+    @Benchmark
+    public boolean friendSet() {
+        return friendSet.contains(others[next++ & (others.length - 1)]);
+    }
+
+    @Benchmark
+    public boolean friendGraph() {
+        return graph.areFriends(user.getId(), others[next++ & (others.length - 1)]);
+    }
+
+    private static String userId(int i) {
+        return String.format("%024x", i);
+    }
+}
@@ -0,0 +1,148 @@
+package com.socialapp.service;
+
+import com.socialapp.dto.LikeResult;
+import com.socialapp.model.Post;
+import com.socialapp.model.PostLike;
+import com.socialapp.repository.CommentRepository;
+import com.socialapp.repository.PostRepository;
+import org.bson.types.ObjectId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Cost of rejecting a duplicate like as a post collects more likes, before and after the likes moved out of the post.
+ * <p>
+ * {@link PostService#addLike} relies on the unique (postId, userId) index of "post_likes",
+ * a B-tree lookup that MongoDB performs on insert. Before, the likes were an array in the
+ * post and every like searched it. Both checks run inside MongoDB, so they are modelled
+ * here without a database: the array as a {@link List} searched with {@code contains},
+ * and the index as a sorted set of compound keys that also holds the likes of 1,000
+ * other posts. Half of the likes are duplicates.
+ * <p>
+ * {@code addLike} runs the whole of {@link PostService#addLike} against a mocked
+ * {@link MongoTemplate} whose insert checks that index and throws
+ * {@link DuplicateKeyException} like MongoDB would. The index is not updated, so every
+ * iteration sees the same likes. It includes Mockito's dispatch, so compare its growth
+ * with {@code likes} rather than its absolute time.
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LikeDedupBenchmark {
+
+    private static final int OTHER_POSTS = 1000;
+    private static final int OTHER_LIKES = 100;
+
+    @Param({"10", "1000", "100000"})
+    public int likes;
+
+    private List<String> likedBy;
+    private NavigableSet<String> index;
+    private String[] users;
+    private String[] keys;
+    private PostService postService;
+    private String postId;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        postId = new ObjectId().toHexString();
+        likedBy = new ArrayList<>(likes);
+        index = new TreeSet<>();
+        for (int i = 0; i < likes; i++) {
+            String userId = new ObjectId().toHexString();
+            likedBy.add(userId);
+            index.add(key(postId, userId));
+        }
+        for (int post = 0; post < OTHER_POSTS; post++) {
+            String otherId = new ObjectId().toHexString();
+            for (int i = 0; i < OTHER_LIKES; i++) {
+                index.add(key(otherId, new ObjectId().toHexString()));
+            }
+        }
+        users = new String[1024];
+        keys = new String[users.length];
+        for (int i = 0; i < users.length; i++) {
+            users[i] = i % 2 == 0 ? likedBy.get(random.nextInt(likes)) : new ObjectId().toHexString();
+            keys[i] = key(postId, users[i]);
+        }
+        postService = postService();
+    }
+
+    @Benchmark
+    public boolean embeddedArray() {
+        return likedBy.contains(users[next++ & (users.length - 1)]);
+    }
+
+    @Benchmark
+    public boolean uniqueIndex() {
+        return index.contains(keys[next++ & (keys.length - 1)]);
+    }
+
+    @Benchmark
+    public LikeResult addLike() {
+        return postService.addLike(postId, users[next++ & (users.length - 1)]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private PostService postService() {
+        Post post = new Post();
+        post.setId(postId);
+        post.setLikeCount(likes);
+        // Stub-only mocks do not record their invocations, which would otherwise grow with every iteration.
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class, withSettings().stubOnly());
+        when(mongoTemplate.insert(any(PostLike.class))).thenAnswer(invocation -> {
+            PostLike like = invocation.getArgument(0);
+            if (index.contains(key(like.getPostId(), like.getUserId()))) {
+                throw new DuplicateKeyException("E11000 duplicate key error");
+            }
+            return like;
+        });
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Post.class))).thenReturn(post);
+        when(mongoTemplate.findOne(any(Query.class), eq(Post.class))).thenReturn(post);
+        // No transaction manager, as with a standalone MongoDB.
+        ObjectProvider<MongoTransactionManager> transactionManager = mock(ObjectProvider.class);
+        return new PostService(mock(PostRepository.class), mock(CommentRepository.class), mongoTemplate,
+                transactionManager, mock(ApplicationEventPublisher.class), new PageSizes(20, 100));
+    }
+
+    private static String key(String postId, String userId) {
+        return postId + ':' + userId;
+    }
+}
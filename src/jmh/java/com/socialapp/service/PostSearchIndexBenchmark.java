@@ -0,0 +1,183 @@
+package com.socialapp.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Indexing throughput, query latency and throughput, and snapshot load time of {@link PostSearchIndex}.
+ * <p>
+ * The corpus is synthetic: a vocabulary of generated words drawn with a Zipf-like
+ * distribution, so a few words are in most posts and most words are rare, like in
+ * real text. Posts are taken in turn from a pool of distinct texts and given unique
+ * ids. Queries mix common and rare words. The retained heap of the index and the
+ * size of its snapshot are printed after each trial.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PostSearchIndexBenchmark {
+
+    private static final int VOCABULARY = 50_000;
+    private static final int POOL = 200_000;
+
+    @Param({"1000000", "3000000"})
+    public int posts;
+
+    private String[] words;
+    private String[][] pool;
+    private String[] queries;
+    private PostSearchIndex index;
+    private byte[] snapshot;
+    private final AtomicInteger nextQuery = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        SplittableRandom random = new SplittableRandom(42);
+        words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            words[i] = Integer.toString(i * 7919 + 100_000, 36);
+        }
+        pool = new String[POOL][];
+        for (int i = 0; i < POOL; i++) {
+            pool[i] = new String[]{text(random, 4 + random.nextInt(6)), text(random, 20 + random.nextInt(60))};
+        }
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = text(random, 1 + random.nextInt(3));
+        }
+
+        long before = usedHeap();
+        index = build(posts);
+        long after = usedHeap();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+        snapshot = bytes.toByteArray();
+        System.out.printf("%n%d posts, %d terms, ~%d MB retained, %d MB snapshot%n", index.postCount(),
+                index.termCount(), (after - before) / (1024 * 1024), snapshot.length / (1024 * 1024));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index = null;
+        snapshot = null;
+    }
+
+    /**
+     * Adds posts to an index that starts empty at every iteration.
+     */
+    @State(Scope.Thread)
+    public static class Indexing {
+
+        PostSearchIndex index;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            index = new PostSearchIndex();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public boolean indexPost(Indexing state) {
+        int post = state.next++;
+        String[] text = pool[post % POOL];
+        return state.index.add(Integer.toString(post), text[0], text[1], post);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public PostSearchIndex.Page search() {
+        return index.search(nextQuery(), 0, 20);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public PostSearchIndex.Page searchDeepPage() {
+        return index.search(nextQuery(), 980, 20);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(4)
+    public PostSearchIndex.Page searchConcurrently() {
+        return index.search(nextQuery(), 0, 20);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public PostSearchIndex loadSnapshot() throws IOException {
+        return PostSearchIndex.readFrom(new DataInputStream(new ByteArrayInputStream(snapshot)));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public PostSearchIndex rebuild() {
+        return build(posts);
+    }
+
+    private PostSearchIndex build(int count) {
+        PostSearchIndex built = new PostSearchIndex();
+        for (int post = 0; post < count; post++) {
+            String[] text = pool[post % POOL];
+            built.add(Integer.toString(post), text[0], text[1], post);
+        }
+        return built;
+    }
+
+    private String nextQuery() {
+        return queries[nextQuery.getAndIncrement() & (queries.length - 1)];
+    }
+
+    /**
+     * Draws words with a probability roughly inversely proportional to their rank.
+     */
+    private String text(SplittableRandom random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            int rank = (int) Math.pow(VOCABULARY, random.nextDouble()) - 1;
+            text.append(words[rank]).append(' ');
+        }
+        return text.toString();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,127 @@
+package com.socialapp.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Build time, memory footprint and query latency of {@link UserSearchIndex}.
+ * <p>
+ * The users are synthetic: usernames and two-word names assembled from syllables,
+ * which gives a realistic share of common prefixes. Queries are sampled, so the
+ * report includes latency percentiles. The retained heap of the built index is
+ * printed after each trial, measured as the used heap difference across a GC.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class UserSearchIndexBenchmark {
+
+    private static final String[] SYLLABLES = {
+            "an", "ba", "ce", "da", "el", "fa", "go", "ha", "is", "jo", "ka", "li", "ma", "ne", "ol",
+            "pa", "qu", "ra", "sa", "te", "ul", "vi", "wa", "xe", "yo", "za", "ri", "lo", "mi", "th"
+    };
+
+    @Param({"100000", "1000000"})
+    public int users;
+
+    private String[][] rows;
+    private String[] queries;
+    private UserSearchIndex index;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        rows = new String[users][];
+        for (int i = 0; i < users; i++) {
+            String first = word(random, 2 + random.nextInt(2));
+            String last = word(random, 2 + random.nextInt(3));
+            String username = (first + last).substring(0, Math.min(10, first.length() + last.length()));
+            rows[i] = new String[]{Integer.toHexString(i), username + i % 1000, capitalize(first) + " " + capitalize(last)};
+        }
+        queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            String[] row = rows[random.nextInt(users)];
+            String name = row[2].toLowerCase();
+            queries[i] = switch (i % 4) {
+                case 0 -> row[1].substring(0, 2);
+                case 1 -> row[1].substring(0, Math.min(5, row[1].length()));
+                case 2 -> name.substring(0, name.indexOf(' ') + 3);
+                default -> name;
+            };
+        }
+
+        long before = usedHeap();
+        index = build();
+        long after = usedHeap();
+        System.out.printf("%n%d users, %d terms, ~%d MB retained%n",
+                index.userCount(), index.termCount(), (after - before) / (1024 * 1024));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        index = null;
+        rows = null;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public UserSearchIndex buildIndex() {
+        return build();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<UserSearchIndex.Hit> search() {
+        String query = queries[next++ & (queries.length - 1)];
+        return index.search(query, 10, 5000);
+    }
+
+    private UserSearchIndex build() {
+        UserSearchIndex built = new UserSearchIndex();
+        for (String[] row : rows) {
+            built.put(row[0], row[1], row[2]);
+        }
+        return built;
+    }
+
+    private static String word(SplittableRandom random, int syllables) {
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return word.toString();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -2,13 +2,22 @@ package com.socialapp;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
-@EnableMongoRepositories(basePackages = "com.socialapp.repository")
+// The reactive MongoDB stack is opt-in, see ReactiveMongoConfig.
+@SpringBootApplication(exclude = {MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class,
+		MongoReactiveRepositoriesAutoConfiguration.class})
+@EnableAsync
+@EnableScheduling
+@EnableMongoRepositories(basePackages = "com.socialapp.repository",
+		excludeFilters = @ComponentScan.Filter(type = FilterType.REGEX, pattern = "com\\.socialapp\\.repository\\.reactive\\..*"))
 public class SocialMediaAppApplication {
 
 	public static void main(String[] args) {
@@ -16,9 +25,4 @@ public class SocialMediaAppApplication {
 		SpringApplication.run(SocialMediaAppApplication.class, args);
 	}
 
-	@Bean
-	public PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
-	}
-
 }
@@ -0,0 +1,288 @@
+package com.socialapp.config;
+
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyPath;
+import org.springframework.data.mapping.context.MappingContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.index.IndexResolver;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.repository.Aggregation;
+import org.springframework.data.mongodb.repository.Query;
+import org.springframework.data.repository.core.support.AbstractRepositoryMetadata;
+import org.springframework.data.repository.core.support.RepositoryFactoryInformation;
+import org.springframework.data.repository.query.parser.Part;
+import org.springframework.data.repository.query.parser.PartTree;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Creates the indexes declared on the entities and checks that every repository query can use one.
+ * <p>
+ * When the bean is initialized, the {@code @Indexed} and {@code @CompoundIndex} declarations
+ * of each entity are created if missing ({@code socialapp.indexes.create}); services that
+ * read or write MongoDB on startup depend on it, so the unique indexes exist before any
+ * data is written. Once every bean is created, and before the web server starts, the criteria and sort of
+ * every derived query method, e.g. {@code findByReceiverIdAndIsReadFalse}, are worked out
+ * from its name and matched against the indexes that exist in MongoDB: a query is
+ * supported when an index leads with one of its equality or range fields and, for a
+ * partial index, when the query only asks for documents the index covers. Queries without
+ * one are reported according to {@code socialapp.indexes.verify}: {@code warn} logs them,
+ * {@code fail} stops the application and {@code off} skips the check. Indexes that exist
+ * but are no longer declared are logged so they can be dropped.
+ * <p>
+ * Queries written with {@code @Query} or through {@link MongoTemplate} are not checked.
+ */
+@Component
+public class IndexVerifier implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(IndexVerifier.class);
+
+    /**
+     * Stands for the arguments of a query method, whose values are only known when it is called.
+     */
+    static final String PARAMETER = "?";
+
+    private final MongoTemplate mongoTemplate;
+    private final ListableBeanFactory beanFactory;
+    private final MappingContext<? extends MongoPersistentEntity<?>, MongoPersistentProperty> mappingContext;
+    private final IndexResolver indexResolver;
+    private final boolean create;
+    private final String mode;
+
+    /**
+     * The criteria and sort of a repository query method.
+     *
+     * @param method     The repository and method name, for reports.
+     * @param collection The collection the method queries.
+     * @param branches   The criteria, one document per {@code Or} branch of the method name.
+     * @param sort       The sort of the method name, possibly empty.
+     */
+    record QueryShape(String method, String collection, List<Document> branches, Document sort) {
+
+        /**
+         * The criteria as one filter, with {@link #PARAMETER} in place of the arguments.
+         */
+        Document filter() {
+            return branches.size() == 1 ? branches.get(0) : new Document("$or", branches);
+        }
+    }
+
+    public IndexVerifier(MongoTemplate mongoTemplate, ListableBeanFactory beanFactory,
+                         @Value("${socialapp.indexes.create:true}") boolean create,
+                         @Value("${socialapp.indexes.verify:warn}") String mode) {
+        if (!List.of("off", "warn", "fail").contains(mode)) {
+            throw new IllegalStateException("Unknown socialapp.indexes.verify: " + mode);
+        }
+        this.mongoTemplate = mongoTemplate;
+        this.beanFactory = beanFactory;
+        this.mappingContext = mongoTemplate.getConverter().getMappingContext();
+        this.indexResolver = new MongoPersistentEntityIndexResolver(mappingContext);
+        this.create = create;
+        this.mode = mode;
+    }
+
+    @PostConstruct
+    void createIndexes() {
+        if (create) {
+            createIndexes(List.of());
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (mode.equals("off")) {
+            return;
+        }
+        List<Class<?>> repositories = beanFactory.getBeansOfType(RepositoryFactoryInformation.class, false, false)
+                .values().stream()
+                .<Class<?>>map(factory -> factory.getRepositoryInformation().getRepositoryInterface())
+                .toList();
+        List<String> unsupported = verify(repositories);
+        if (unsupported.isEmpty()) {
+            log.info("Every query of {} repositories is supported by an index", repositories.size());
+        } else if (mode.equals("fail")) {
+            throw new IllegalStateException("Repository queries without a supporting index:\n" + String.join("\n", unsupported));
+        } else {
+            unsupported.forEach(query -> log.warn("Repository query without a supporting index: {}", query));
+        }
+    }
+
+    /**
+     * Creates the declared indexes of every entity, and of the domain types of the given repositories.
+     *
+     * @param repositories The repository interfaces.
+     */
+    void createIndexes(Collection<Class<?>> repositories) {
+        for (MongoPersistentEntity<?> entity : entities(repositories)) {
+            IndexOperations indexOps = mongoTemplate.indexOps(entity.getType());
+            indexResolver.resolveIndexFor(entity.getTypeInformation()).forEach(indexOps::createIndex);
+        }
+    }
+
+    /**
+     * Checks every derived query method of the given repositories against the indexes in MongoDB.
+     *
+     * @param repositories The repository interfaces.
+     * @return One line per query method without a supporting index, empty if there is none.
+     */
+    List<String> verify(Collection<Class<?>> repositories) {
+        List<String> unsupported = new ArrayList<>();
+        for (Class<?> repository : repositories) {
+            for (QueryShape shape : shapes(repository)) {
+                List<IndexInfo> indexes = mongoTemplate.indexOps(shape.collection()).getIndexInfo();
+                boolean supported = shape.branches().stream()
+                        .allMatch(branch -> branch.isEmpty() || indexes.stream().anyMatch(index -> supports(index, branch)));
+                if (!supported) {
+                    unsupported.add(shape.method() + " on " + shape.collection() + ": " + shape.filter().toJson()
+                            + (shape.sort().isEmpty() ? "" : " sorted by " + shape.sort().toJson()));
+                }
+            }
+        }
+        for (MongoPersistentEntity<?> entity : entities(repositories)) {
+            Set<String> declared = new LinkedHashSet<>();
+            indexResolver.resolveIndexFor(entity.getTypeInformation())
+                    .forEach(index -> declared.add(index.getIndexOptions().getString("name")));
+            mongoTemplate.indexOps(entity.getType()).getIndexInfo().stream()
+                    .map(IndexInfo::getName)
+                    .filter(name -> !name.equals("_id_") && !declared.contains(name))
+                    .forEach(name -> log.warn("Index {} on {} is not declared on {}; drop it if nothing uses it",
+                            name, entity.getCollection(), entity.getType().getSimpleName()));
+        }
+        return unsupported;
+    }
+
+    /**
+     * Works out the criteria and sort of each derived query method of a repository from its name.
+     *
+     * @param repository The repository interface.
+     * @return The {@link QueryShape} of every method that is not annotated with a query of its own.
+     */
+    List<QueryShape> shapes(Class<?> repository) {
+        Class<?> domainType = AbstractRepositoryMetadata.getMetadata(repository).getDomainType();
+        String collection = mongoTemplate.getCollectionName(domainType);
+        List<QueryShape> shapes = new ArrayList<>();
+        for (Method method : repository.getDeclaredMethods()) {
+            if (method.isDefault() || Modifier.isStatic(method.getModifiers())
+                    || method.isAnnotationPresent(Query.class) || method.isAnnotationPresent(Aggregation.class)) {
+                continue;
+            }
+            PartTree tree = new PartTree(method.getName(), domainType);
+            List<Document> branches = new ArrayList<>();
+            for (PartTree.OrPart or : tree) {
+                Document branch = new Document();
+                for (Part part : or) {
+                    branch.put(fieldName(part.getProperty()), condition(part.getType()));
+                }
+                branches.add(branch);
+            }
+            Document sort = new Document();
+            for (Sort.Order order : tree.getSort()) {
+                sort.put(fieldName(PropertyPath.from(order.getProperty(), domainType)), order.isAscending() ? 1 : -1);
+            }
+            shapes.add(new QueryShape(repository.getSimpleName() + "." + method.getName(), collection, branches, sort));
+        }
+        return shapes;
+    }
+
+    private Set<MongoPersistentEntity<?>> entities(Collection<Class<?>> repositories) {
+        for (Class<?> repository : repositories) {
+            mappingContext.getRequiredPersistentEntity(AbstractRepositoryMetadata.getMetadata(repository).getDomainType());
+        }
+        Set<MongoPersistentEntity<?>> entities = new LinkedHashSet<>();
+        for (MongoPersistentEntity<?> entity : mappingContext.getPersistentEntities()) {
+            if (entity.isAnnotationPresent(org.springframework.data.mongodb.core.mapping.Document.class)) {
+                entities.add(entity);
+            }
+        }
+        return entities;
+    }
+
+    private String fieldName(PropertyPath path) {
+        return mappingContext.getPersistentPropertyPath(path).toDotPath(MongoPersistentProperty::getFieldName);
+    }
+
+    /**
+     * The condition a part of a method name puts on its field, with {@link #PARAMETER} for the argument.
+     */
+    private static Object condition(Part.Type type) {
+        return switch (type) {
+            case TRUE -> true;
+            case FALSE -> false;
+            case IS_NULL -> null;
+            case IS_NOT_NULL -> new Document("$ne", null);
+            case EXISTS -> new Document("$exists", true);
+            case IN -> new Document("$in", List.of(PARAMETER));
+            case NOT_IN -> new Document("$nin", List.of(PARAMETER));
+            case NEGATING_SIMPLE_PROPERTY -> new Document("$ne", PARAMETER);
+            case GREATER_THAN, AFTER -> new Document("$gt", PARAMETER);
+            case GREATER_THAN_EQUAL -> new Document("$gte", PARAMETER);
+            case LESS_THAN, BEFORE -> new Document("$lt", PARAMETER);
+            case LESS_THAN_EQUAL -> new Document("$lte", PARAMETER);
+            case BETWEEN -> new Document("$gt", PARAMETER).append("$lt", PARAMETER);
+            case STARTING_WITH -> new Document("$regex", "^" + PARAMETER);
+            default -> PARAMETER;
+        };
+    }
+
+    /**
+     * Whether MongoDB can answer a query branch through an index, rather than by scanning the collection.
+     */
+    private static boolean supports(IndexInfo index, Document branch) {
+        String leading = index.getIndexFields().get(0).getKey();
+        if (!branch.containsKey(leading) || !seekable(branch.get(leading))) {
+            return false;
+        }
+        return Optional.ofNullable(index.getPartialFilterExpression())
+                .map(Document::parse)
+                .map(filter -> covers(filter, branch))
+                .orElse(true);
+    }
+
+    /**
+     * Whether a condition selects a range of an index, which negations do not.
+     */
+    private static boolean seekable(Object condition) {
+        return !(condition instanceof Document operators)
+                || !(operators.containsKey("$ne") || operators.containsKey("$nin"));
+    }
+
+    /**
+     * Whether every document a query branch matches is in a partial index, so that MongoDB may use it.
+     * <p>
+     * Arguments are unknown until the method is called, so only constant conditions such as
+     * {@code IsReadFalse} and equalities for {@code $exists} conditions count.
+     */
+    private static boolean covers(Document partialFilter, Document branch) {
+        for (Map.Entry<String, Object> condition : partialFilter.entrySet()) {
+            Object queried = branch.get(condition.getKey());
+            if (condition.getValue() instanceof Document operators && operators.equals(new Document("$exists", true))) {
+                if (queried == null || queried instanceof Document) {
+                    return false;
+                }
+            } else if (queried == null || queried.equals(PARAMETER) || !queried.equals(condition.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
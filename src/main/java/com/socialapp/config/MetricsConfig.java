@@ -0,0 +1,51 @@
+package com.socialapp.config;
+
+import com.socialapp.metrics.HandlerObservationConvention;
+import com.socialapp.metrics.MongoReplySizeListener;
+import com.socialapp.metrics.ResponseSizeFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.http.server.observation.ServerRequestObservationConvention;
+
+/**
+ * Configures the application metrics beyond those Spring Boot records by itself.
+ * <p>
+ * Everything is exported in the Prometheus format at {@code /actuator/prometheus} on the
+ * management port; the percentile histograms are enabled in the
+ * {@code management.metrics.distribution} properties.
+ */
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Tags the latency of every request with the controller method that served it.
+     */
+    @Bean
+    public ServerRequestObservationConvention serverRequestObservationConvention() {
+        return new HandlerObservationConvention();
+    }
+
+    /**
+     * Records the size of the MongoDB replies, for the blocking and the reactive client.
+     */
+    @Bean
+    public MongoClientSettingsBuilderCustomizer mongoReplySizeMetrics(MeterRegistry meterRegistry) {
+        MongoReplySizeListener listener = new MongoReplySizeListener(meterRegistry);
+        return settings -> settings.addCommandListener(listener);
+    }
+
+    /**
+     * Records the size of the response bodies, right after the request metrics start so
+     * that responses written by the security filters are included.
+     */
+    @Bean
+    public FilterRegistrationBean<ResponseSizeFilter> responseSizeFilter(MeterRegistry meterRegistry) {
+        FilterRegistrationBean<ResponseSizeFilter> registration = new FilterRegistrationBean<>(new ResponseSizeFilter(meterRegistry));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 2);
+        return registration;
+    }
+}
@@ -0,0 +1,30 @@
+package com.socialapp.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.MongoDatabaseFactory;
+import org.springframework.data.mongodb.MongoTransactionManager;
+
+/**
+ * Enables multi-document MongoDB transactions.
+ * <p>
+ * Transactions need a replica set or a sharded cluster, so they are off by default
+ * and turned on with {@code socialapp.mongodb.transactions.enabled=true}. Without
+ * them, the operations that would use one are written to be safe to retry instead.
+ */
+@Configuration
+@ConditionalOnProperty(name = "socialapp.mongodb.transactions.enabled", havingValue = "true")
+public class MongoTransactionConfig {
+
+    /**
+     * Provides the transaction manager that binds a client session to {@code MongoTemplate} operations.
+     *
+     * @param databaseFactory The factory of the configured database.
+     * @return The {@link MongoTransactionManager}.
+     */
+    @Bean
+    public MongoTransactionManager transactionManager(MongoDatabaseFactory databaseFactory) {
+        return new MongoTransactionManager(databaseFactory);
+    }
+}
@@ -0,0 +1,46 @@
+package com.socialapp.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.crypto.argon2.Argon2PasswordEncoder;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.Map;
+
+/**
+ * Configures how passwords are hashed.
+ * <p>
+ * Hashes are stored with the id of their algorithm as a prefix, e.g. {@code {bcrypt}$2a$10$...},
+ * so the algorithm ({@code socialapp.passwords.encoder}) and the BCrypt cost
+ * ({@code socialapp.passwords.bcrypt.strength}) can change without invalidating existing
+ * passwords: old hashes keep matching and are replaced on the next login. Hashes stored
+ * before the prefix was introduced are plain BCrypt and are matched as such.
+ */
+@Configuration
+public class PasswordEncoderConfig {
+
+    /**
+     * Provides the encoder used for new hashes and for checking every stored hash.
+     *
+     * @param encoderId The id of the algorithm for new hashes, {@code bcrypt} or {@code argon2}.
+     * @param strength  The BCrypt cost factor; each increment doubles the time of a hash.
+     * @return The {@link DelegatingPasswordEncoder}.
+     */
+    @Bean
+    public PasswordEncoder passwordEncoder(@Value("${socialapp.passwords.encoder:bcrypt}") String encoderId,
+                                           @Value("${socialapp.passwords.bcrypt.strength:10}") int strength) {
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+        Map<String, PasswordEncoder> encoders = Map.of(
+                "bcrypt", bcrypt,
+                "argon2", Argon2PasswordEncoder.defaultsForSpringSecurity_v5_8());
+        if (!encoders.containsKey(encoderId)) {
+            throw new IllegalStateException("Unknown socialapp.passwords.encoder: " + encoderId);
+        }
+        DelegatingPasswordEncoder encoder = new DelegatingPasswordEncoder(encoderId, encoders);
+        encoder.setDefaultPasswordEncoderForMatches(bcrypt);
+        return encoder;
+    }
+}
@@ -0,0 +1,23 @@
+package com.socialapp.config;
+
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.mongo.MongoReactiveDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoReactiveAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+
+/**
+ * Enables the reactive MongoDB stack when {@code socialapp.reactive.enabled} is {@code true}.
+ * <p>
+ * The reactive client, template and repositories are excluded from auto-configuration and
+ * imported here instead, so no reactive connection pool is opened unless streaming is on.
+ * The repositories live in {@code com.socialapp.repository.reactive}, which the blocking
+ * repository scan skips, and share the MongoDB URI of the blocking stack.
+ */
+@Configuration
+@ConditionalOnProperty(name = "socialapp.reactive.enabled", havingValue = "true")
+@ImportAutoConfiguration({MongoReactiveAutoConfiguration.class, MongoReactiveDataAutoConfiguration.class})
+@EnableReactiveMongoRepositories(basePackages = "com.socialapp.repository.reactive")
+public class ReactiveMongoConfig {
+}
@@ -1,10 +1,12 @@
 package com.socialapp.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.web.DefaultSecurityFilterChain;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.security.web.server.SecurityWebFilterChain;
 
 /**
@@ -18,6 +20,18 @@ import org.springframework.security.web.server.SecurityWebFilterChain;
 @EnableWebSecurity
 public class SecurityConfig {
 
+    static final String PROMETHEUS_PATH = "/actuator/prometheus";
+
+    private final int managementPort;
+
+    /**
+     * @param managementPort The port of the separate management server, or -1 when the
+     *                       actuator endpoints are served on the application's own port.
+     */
+    public SecurityConfig(@Value("${management.server.port:-1}") int managementPort) {
+        this.managementPort = managementPort;
+    }
+
     /**
      * Configures the primary security filter chain for all HTTP requests.
      * <p>
@@ -37,9 +51,29 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         // Permit all requests to endpoints under "/api/test/".
                         .requestMatchers("/api/test/**").permitAll()
+                        // Permit the WebSocket handshake; sessions identify their user like /api/test/ does.
+                        .requestMatchers("/ws/**").permitAll()
+                        // Permit health checks, and Prometheus scrapes on the management port only.
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers(prometheusScrape(managementPort)).permitAll()
                         // Require authentication for any other request that is not explicitly matched above.
                         .anyRequest().authenticated()
                 );
         return http.build();
     }
+
+    /**
+     * Matches a Prometheus scrape that arrived on the management port.
+     * <p>
+     * The metrics name every endpoint and its traffic, so they are not served to the public
+     * port: without {@code management.server.port} a scrape needs authentication like any other request.
+     *
+     * @param managementPort The port of the management server, or -1 if there is none.
+     * @return The matcher.
+     */
+    static RequestMatcher prometheusScrape(int managementPort) {
+        return request -> managementPort > 0
+                && request.getLocalPort() == managementPort
+                && PROMETHEUS_PATH.equals(request.getRequestURI());
+    }
 }
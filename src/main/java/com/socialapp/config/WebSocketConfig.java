@@ -0,0 +1,109 @@
+package com.socialapp.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.messaging.simp.config.ChannelRegistration;
+import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
+import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
+import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.security.Principal;
+import java.util.Map;
+
+/**
+ * WebSocket configuration for real-time delivery of messages.
+ * <p>
+ * Clients open a STOMP session on {@code /ws?userId=...} and subscribe to
+ * {@code /user/queue/messages}. The in-memory broker keeps track of the sessions of
+ * every user, so {@code MessageService} can push a new message to all live sessions of
+ * its receiver. Like the REST endpoints under {@code /api/test}, the user is identified
+ * by the {@code userId} query parameter until authentication is added.
+ * <p>
+ * Heartbeats run on the {@code messageBrokerTaskScheduler} bean that
+ * {@link EnableWebSocketMessageBroker} declares, so the context shuts its thread down.
+ */
+@Configuration
+@EnableWebSocketMessageBroker
+public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+
+    private final int outboundThreads;
+    private final int destinationCacheLimit;
+    private final boolean virtualThreads;
+    private TaskScheduler heartbeatScheduler;
+
+    public WebSocketConfig(@Value("${socialapp.websocket.outbound-threads:0}") int outboundThreads,
+                           @Value("${socialapp.websocket.destination-cache-limit:16384}") int destinationCacheLimit,
+                           Environment environment) {
+        this.outboundThreads = outboundThreads;
+        this.destinationCacheLimit = destinationCacheLimit;
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+    }
+
+    /**
+     * Injected lazily: the scheduler is declared by the same configuration that calls this class.
+     */
+    @Autowired
+    void setHeartbeatScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler messageBrokerTaskScheduler) {
+        this.heartbeatScheduler = messageBrokerTaskScheduler;
+    }
+
+    @Override
+    public void registerStompEndpoints(StompEndpointRegistry registry) {
+        registry.addEndpoint("/ws")
+                .setHandshakeHandler(new UserIdHandshakeHandler())
+                .setAllowedOriginPatterns("*");
+    }
+
+    @Override
+    public void configureMessageBroker(MessageBrokerRegistry registry) {
+        registry.enableSimpleBroker("/queue")
+                .setHeartbeatValue(new long[] {25000, 25000})
+                .setTaskScheduler(heartbeatScheduler);
+        registry.setApplicationDestinationPrefixes("/app");
+        registry.setUserDestinationPrefix("/user");
+        // Every session has its own user destination; once they outnumber the cache, each push scans all sessions.
+        registry.setCacheLimit(destinationCacheLimit);
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (virtualThreads) {
+            // A virtual thread per message: blocked sends cost no platform thread, so there is nothing to pool.
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("clientOutboundChannel-");
+            executor.setVirtualThreads(true);
+            registration.executor(executor);
+            return;
+        }
+        // Fan-out to many sessions is I/O bound, so the outbound pool is sized apart from the CPU count.
+        int threads = outboundThreads > 0 ? outboundThreads : Runtime.getRuntime().availableProcessors() * 2;
+        registration.taskExecutor().corePoolSize(threads).maxPoolSize(threads);
+    }
+
+    /**
+     * Names each WebSocket session after the {@code userId} query parameter of its handshake.
+     */
+    static class UserIdHandshakeHandler extends DefaultHandshakeHandler {
+
+        @Override
+        protected Principal determineUser(ServerHttpRequest request, WebSocketHandler wsHandler,
+                                          Map<String, Object> attributes) {
+            String userId = UriComponentsBuilder.fromUri(request.getURI()).build().getQueryParams().getFirst("userId");
+            if (userId == null || userId.isBlank()) {
+                return super.determineUser(request, wsHandler, attributes);
+            }
+            return () -> userId;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.socialapp.controller;
+
+import com.socialapp.dto.CursorPage;
+import com.socialapp.dto.PostSummary;
+import com.socialapp.service.TimelineService;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * REST controller for reading home timelines.
+ * <p>
+ * This controller provides a public endpoint that returns the posts of a
+ * user's friends in a single call, newest first.
+ */
+@RestController
+@RequestMapping("/api/test")
+public class FeedController {
+
+    private final TimelineService timelineService;
+
+    public FeedController(TimelineService timelineService) {
+        this.timelineService = timelineService;
+    }
+
+    /**
+     * Retrieves one page of a user's home timeline.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/feed/{userId}?cursor=&size=}
+     *
+     * @param userId The ID of the user whose timeline is to be retrieved.
+     * @param cursor The {@code nextCursor} of the previous page; omitted for the first page.
+     * @param size   The maximum number of posts to return.
+     * @return A page of post summaries from the user and their friends.
+     */
+    @GetMapping("/feed/{userId}")
+    public CursorPage<PostSummary> getFeed(@PathVariable String userId,
+                                           @RequestParam(required = false) String cursor,
+                                           @RequestParam(required = false) Integer size) {
+        return timelineService.getFeed(userId, cursor, size);
+    }
+}
@@ -53,6 +53,19 @@ public class FriendRequestController {
         return friendRequestService.sendFriendRequest(senderId, receiverId);
     }
 
+    /**
+     * Accepts an existing friend request and makes its sender and receiver friends.
+     * <p>
+     * <b>Endpoint:</b> {@code POST /api/test/friend-requests/accept}
+     *
+     * @param requestId The ID of the friend request to accept.
+     * @return The accepted {@link FriendRequest}.
+     */
+    @PostMapping("/accept")
+    public FriendRequest acceptFriendRequest(@RequestParam String requestId) {
+        return friendRequestService.acceptFriendRequest(requestId);
+    }
+
     /**
      * Rejects an existing friend request.
      * <p>
@@ -0,0 +1,163 @@
+package com.socialapp.controller;
+
+import com.socialapp.model.Media;
+import com.socialapp.service.MediaService;
+import com.socialapp.service.ThumbnailService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * REST controller for uploading and downloading media.
+ * <p>
+ * This controller provides public endpoints to upload images, whose returned id is
+ * then set on posts and profiles, and to serve them with caching and range support.
+ */
+@RestController
+@RequestMapping("/api/test")
+public class MediaController {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final MediaService mediaService;
+    private final ThumbnailService thumbnailService;
+
+    public MediaController(MediaService mediaService, ThumbnailService thumbnailService) {
+        this.mediaService = mediaService;
+        this.thumbnailService = thumbnailService;
+    }
+
+    /**
+     * Uploads an image.
+     * <p>
+     * <b>Endpoint:</b> {@code POST /api/test/media} (multipart, part name {@code file})
+     *
+     * The type is detected from the content rather than taken from the request, and only
+     * JPEG, PNG, GIF and WebP images are accepted.
+     *
+     * @param file The uploaded image.
+     * @return The stored {@link Media}; its id is the value to use as a photo id.
+     * Its thumbnails are generated in the background.
+     * @throws ResponseStatusException with status 415 if the upload is not one of the accepted images.
+     */
+    @PostMapping("/media")
+    public Media uploadMedia(@RequestParam("file") MultipartFile file) throws IOException {
+        Media media;
+        try (InputStream in = new BufferedInputStream(file.getInputStream())) {
+            in.mark(MediaService.IMAGE_HEADER_LENGTH);
+            String contentType = MediaService.detectImageType(in.readNBytes(MediaService.IMAGE_HEADER_LENGTH));
+            if (contentType == null) {
+                throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                        "Only JPEG, PNG, GIF and WebP images can be uploaded.");
+            }
+            in.reset();
+            media = mediaService.store(in, contentType);
+        }
+        thumbnailService.submit(media);
+        return media;
+    }
+
+    /**
+     * Downloads stored media, or one of its downscaled variants.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/media/{id}?variant=}
+     * <p>
+     * Media is immutable, so its id doubles as a strong ETag and clients may cache it
+     * forever. Single byte ranges are honoured. The bytes are copied from the file to
+     * the socket by the kernel when the connector supports sendfile, and with
+     * {@link FileChannel#transferTo} otherwise.
+     *
+     * @param id      The id of the media.
+     * @param variant The {@link Media.Variant} to serve (e.g. {@code small}); the original is
+     *                served until the variant has been generated.
+     * @throws ResponseStatusException with status 404 if the media does not exist.
+     */
+    @GetMapping("/media/{id}")
+    public void downloadMedia(@PathVariable String id, @RequestParam(required = false) String variant,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Media original = mediaService.getMedia(id);
+        Media media = mediaService.resolveVariant(original, variant);
+        String etag = "\"" + media.getId() + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        // A variant URL that falls back to the original must be revalidated once the variant exists.
+        boolean fallback = variant != null && media == original;
+        response.setHeader(HttpHeaders.CACHE_CONTROL, fallback ? "no-cache" : "public, max-age=31536000, immutable");
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // Browsers must not second-guess the stored type and render the bytes as something else.
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null && (ifNoneMatch.equals("*") || ifNoneMatch.contains(etag))) {
+            response.setStatus(HttpStatus.NOT_MODIFIED.value());
+            return;
+        }
+
+        long length = media.getSize();
+        long start = 0;
+        long end = length - 1;
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader != null) {
+            try {
+                List<HttpRange> ranges = HttpRange.parseRanges(rangeHeader);
+                // Multiple ranges are rare for images; the full content is a valid answer to them.
+                if (ranges.size() == 1) {
+                    start = ranges.get(0).getRangeStart(length);
+                    end = ranges.get(0).getRangeEnd(length);
+                    response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+                    response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+                }
+            } catch (IllegalArgumentException e) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                return;
+            }
+        }
+
+        long count = end - start + 1;
+        response.setContentType(media.getContentType());
+        response.setContentLengthLong(count);
+        transfer(mediaService.getPath(media.getId()), start, count, request, response);
+    }
+
+    private void transfer(Path path, long start, long count, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            // Tomcat writes the file with sendfile once the request completes; the end offset is exclusive.
+            request.setAttribute(SENDFILE_FILENAME, path.toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = count;
+            while (remaining > 0) {
+                long written = channel.transferTo(position, remaining, out);
+                if (written <= 0) {
+                    break;
+                }
+                position += written;
+                remaining -= written;
+            }
+        }
+    }
+}
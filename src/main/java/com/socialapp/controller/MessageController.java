@@ -1,8 +1,12 @@
 package com.socialapp.controller;
 
+import com.socialapp.dto.CursorPage;
+import com.socialapp.dto.UnreadCount;
 import com.socialapp.model.Message;
 import com.socialapp.service.MessageService;
+import com.socialapp.service.UnreadCounterService;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDateTime;
@@ -19,9 +23,11 @@ import java.util.List;
 public class MessageController {
 
     private final MessageService messageService;
+    private final UnreadCounterService unreadCounterService;
 
-    public MessageController(MessageService messageService) {
+    public MessageController(MessageService messageService, UnreadCounterService unreadCounterService) {
         this.messageService = messageService;
+        this.unreadCounterService = unreadCounterService;
     }
     // API ENDPOINTS
 
@@ -40,6 +46,23 @@ public class MessageController {
         return messageService.getMessagesBySenderAndReceiver(senderId, receiverId);
     }
 
+    /**
+     * Retrieves one page of a conversation, newest first, covering both directions of the chat.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/conversations/{conversationId}/messages?before=&limit=}
+     *
+     * @param conversationId The conversation id, i.e. the two user IDs ordered and joined by a colon.
+     * @param before         The {@code nextCursor} of the previous page; omitted for the latest messages.
+     * @param limit          The maximum number of messages to return.
+     * @return A page of messages and the cursor of the next, older page.
+     */
+    @GetMapping("/conversations/{conversationId}/messages")
+    public CursorPage<Message> getConversation(@PathVariable String conversationId,
+                                               @RequestParam(required = false) String before,
+                                               @RequestParam(required = false) Integer limit) {
+        return messageService.getConversation(conversationId, before, limit);
+    }
+
     /**
      * Creates and sends a new message.
      * <p>
@@ -66,6 +89,62 @@ public class MessageController {
         return messageService.getUnreadMessages(receiverId);
     }
 
+    /**
+     * Marks every message a user received in a conversation, up to a point, as read.
+     * <p>
+     * <b>Endpoint:</b> {@code POST /api/test/conversations/{conversationId}/read?readerId=&upTo=&messageId=}
+     *
+     * @param conversationId The conversation id.
+     * @param readerId       The ID of the user who read the conversation.
+     * @param upTo           The timestamp of the latest message read; defaults to the newest received.
+     * @param messageId      The ID of the latest message read, used instead of {@code upTo} when given.
+     * @return The number of messages that were marked as read.
+     */
+    @PostMapping("/conversations/{conversationId}/read")
+    public long markConversationAsRead(@PathVariable String conversationId, @RequestParam String readerId,
+                                       @RequestParam(required = false)
+                                       @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime upTo,
+                                       @RequestParam(required = false) String messageId) {
+        if (messageId != null) {
+            return messageService.markConversationAsRead(conversationId, readerId, messageId);
+        }
+        return messageService.markConversationAsRead(conversationId, readerId, upTo);
+    }
+
+    /**
+     * Retrieves one page of the messages of a conversation that a user has not read yet.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/conversations/{conversationId}/unread?readerId=&after=&limit=}
+     *
+     * @param conversationId The conversation id.
+     * @param readerId       The ID of the reader.
+     * @param after          The {@code nextCursor} of the previous page; omit it for the oldest unread messages.
+     * @param limit          The page size; defaults to the configured page size and is capped by the maximum.
+     * @return A page of the messages received after the reader's read watermark, oldest first, and the next cursor.
+     */
+    @GetMapping("/conversations/{conversationId}/unread")
+    public CursorPage<Message> getUnreadMessagesInConversation(@PathVariable String conversationId,
+                                                               @RequestParam String readerId,
+                                                               @RequestParam(required = false) String after,
+                                                               @RequestParam(required = false) Integer limit) {
+        return messageService.getUnreadMessages(conversationId, readerId, after, limit);
+    }
+
+    /**
+     * Retrieves the number of unread messages of a user, in total and per conversation.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/unread/{receiverId}/count}
+     * <p>
+     * The counts are served from memory, without querying the database.
+     *
+     * @param receiverId The ID of the user whose unread messages are to be counted.
+     * @return The unread counts of the user.
+     */
+    @GetMapping("/unread/{receiverId}/count")
+    public UnreadCount getUnreadCount(@PathVariable String receiverId) {
+        return unreadCounterService.getUnreadCount(receiverId);
+    }
+
     /**
      * Marks a message as read.
      * <p>
@@ -1,14 +1,15 @@
 package com.socialapp.controller;
 
+import com.socialapp.dto.CursorPage;
+import com.socialapp.dto.LikeResult;
+import com.socialapp.dto.PostSummary;
+import com.socialapp.model.Comment;
 import com.socialapp.model.Post;
-import com.socialapp.model.Post.Comment;
-import com.socialapp.repository.PostRepository;
+import com.socialapp.service.PostSearchService;
 import com.socialapp.service.PostService;
 import jakarta.validation.Valid;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 /**
  * REST controller for managing post-related operations.
  * <p>
@@ -19,27 +20,48 @@ import java.util.List;
 @RequestMapping("/api/test")
 public class PostController {
 
-    private final PostRepository postRepository;
     private final PostService postService;
+    private final PostSearchService postSearchService;
 
-    public PostController(PostRepository postRepository, PostService postService) {
-        this.postRepository = postRepository;
+    public PostController(PostService postService, PostSearchService postSearchService) {
         this.postService = postService;
+        this.postSearchService = postSearchService;
     }
 
     // API ENDPOINTS
 
     /**
-     * Retrieves all posts created by a specific author.
+     * Retrieves one page of the posts created by a specific author, newest first.
      * <p>
-     * <b>Endpoint:</b> {@code GET /api/test/posts/author/{authorId}}
+     * <b>Endpoint:</b> {@code GET /api/test/posts/author/{authorId}?cursor=&size=}
      *
      * @param authorId The ID of the author.
-     * @return A list of posts by the specified author.
+     * @param cursor   The {@code nextCursor} of the previous page; omitted for the first page.
+     * @param size     The maximum number of posts to return.
+     * @return A page of post summaries by the specified author.
      */
     @GetMapping("/posts/author/{authorId}")
-    public List<Post> getPostsByAuthor(@PathVariable String authorId) {
-        return postRepository.findByAuthorId(authorId);
+    public CursorPage<PostSummary> getPostsByAuthor(@PathVariable String authorId,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(required = false) Integer size) {
+        return postService.getPostsByAuthor(authorId, cursor, size);
+    }
+
+    /**
+     * Searches the titles and contents of posts, best match first.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/posts/search?q=&cursor=&size=}
+     *
+     * @param q      The words to look for.
+     * @param cursor The {@code nextCursor} of the previous page; omitted for the first page.
+     * @param size   The maximum number of posts to return.
+     * @return A page of summaries of the matching posts.
+     */
+    @GetMapping("/posts/search")
+    public CursorPage<PostSummary> searchPosts(@RequestParam String q,
+                                               @RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer size) {
+        return postSearchService.search(q, cursor, size);
     }
 
     /**
@@ -52,42 +74,74 @@ public class PostController {
      */
     @PostMapping("/posts")
     public Post createPost(@Valid @RequestBody Post post) {
-        return postRepository.save(post);
+        return postService.createPost(post);
     }
 
     /**
-     * Retrieves all posts that a specific user has liked.
+     * Retrieves one page of the posts that a specific user has liked, most recently liked first.
      * <p>
-     * <b>Endpoint:</b> {@code GET /api/test/posts/liked/{userId}}
+     * <b>Endpoint:</b> {@code GET /api/test/posts/liked/{userId}?cursor=&size=}
      *
      * @param userId The ID of the user whose liked posts are to be retrieved.
-     * @return A list of posts liked by the user.
+     * @param cursor The {@code nextCursor} of the previous page; omitted for the first page.
+     * @param size   The maximum number of posts to return.
+     * @return A page of summaries of the posts liked by the user.
      */
     @GetMapping("/posts/liked/{userId}")
-    public List<Post> getLikedPosts(@PathVariable String userId) {
-        return postRepository.findByLikesContaining(userId);
+    public CursorPage<PostSummary> getLikedPosts(@PathVariable String userId,
+                                                 @RequestParam(required = false) String cursor,
+                                                 @RequestParam(required = false) Integer size) {
+        return postService.getLikedPosts(userId, cursor, size);
     }
 
     /**
      * It allows user to like a post.
      * @param postId The Id of the post to be liked.
      * @param userId The Id of the user who is liking the post.
-     * @return The updated Post object.
+     * @return The like state of the user and the like count of the post.
      */
     @PostMapping("/like")
-    public Post addLike(@RequestParam String postId, @RequestParam String userId){
+    public LikeResult addLike(@RequestParam String postId, @RequestParam String userId){
         return postService.addLike(postId, userId);
     }
 
+    /**
+     * It allows user to remove their like from a post.
+     * @param postId The Id of the post to be unliked.
+     * @param userId The Id of the user who is removing the like.
+     * @return The like state of the user and the like count of the post.
+     */
+    @PostMapping("/unlike")
+    public LikeResult removeLike(@RequestParam String postId, @RequestParam String userId){
+        return postService.removeLike(postId, userId);
+    }
+
     /**
      * It allows user to comment on a post.
      * @param postId The ID of the post to comment on.
      * @param comment The Comment object containing the comment text and author.
-     * @return The updated Post object.
+     * @return The saved Comment object.
      */
 
     @PostMapping("/comment")
-    public Post addComment(@RequestParam String postId, @Valid @RequestBody Comment comment){
+    public Comment addComment(@RequestParam String postId, @Valid @RequestBody Comment comment){
         return postService.addComment(postId, comment);
     }
+
+    /**
+     * Retrieves one page of the comments on a post, oldest first.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/posts/{postId}/comments?after=&limit=}
+     *
+     * @param postId The ID of the post whose comments are to be retrieved.
+     * @param after  The {@code nextCursor} of the previous page; omitted for the first page.
+     * @param limit  The maximum number of comments to return.
+     * @return A page of comments and the cursor of the next page.
+     */
+    @GetMapping("/posts/{postId}/comments")
+    public CursorPage<Comment> getComments(@PathVariable String postId,
+                                           @RequestParam(required = false) String after,
+                                           @RequestParam(required = false) Integer limit) {
+        return postService.getComments(postId, after, limit);
+    }
 }
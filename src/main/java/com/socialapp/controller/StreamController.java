@@ -0,0 +1,59 @@
+package com.socialapp.controller;
+
+import com.socialapp.dto.PostSummary;
+import com.socialapp.model.Message;
+import com.socialapp.service.StreamingService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+/**
+ * REST controller for streaming whole feeds and conversation histories.
+ * <p>
+ * This controller provides public endpoints that return a {@link Flux}, written as
+ * newline-delimited JSON ({@code Accept: application/x-ndjson}) or as server-sent events
+ * ({@code Accept: text/event-stream}). The next element is only requested once the
+ * previous one has been written, so a slow client slows the database cursor down instead
+ * of filling the server's memory. The endpoints exist when {@code socialapp.reactive.enabled}
+ * is {@code true}.
+ */
+@RestController
+@RequestMapping("/api/test/stream")
+@ConditionalOnProperty(name = "socialapp.reactive.enabled", havingValue = "true")
+public class StreamController {
+
+    private final StreamingService streamingService;
+
+    public StreamController(StreamingService streamingService) {
+        this.streamingService = streamingService;
+    }
+
+    /**
+     * Streams every post of a user and their friends, newest first.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/stream/feed/{userId}}
+     *
+     * @param userId The ID of the user whose feed is to be streamed.
+     * @return The post summaries, one per line or event.
+     */
+    @GetMapping(value = "/feed/{userId}",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<PostSummary> streamFeed(@PathVariable String userId) {
+        return streamingService.streamFeed(userId);
+    }
+
+    /**
+     * Streams the whole history of a conversation, newest first.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/stream/conversations/{conversationId}/messages}
+     *
+     * @param conversationId The conversation id, i.e. the two user IDs ordered and joined by a colon.
+     * @return The messages, one per line or event.
+     */
+    @GetMapping(value = "/conversations/{conversationId}/messages",
+            produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public Flux<Message> streamConversation(@PathVariable String conversationId) {
+        return streamingService.streamConversation(conversationId);
+    }
+}
@@ -1,15 +1,26 @@
 package com.socialapp.controller;
 
+import com.socialapp.dto.CursorPage;
+import com.socialapp.dto.FriendSuggestion;
+import com.socialapp.dto.LoginRequest;
+import com.socialapp.dto.UserProfile;
 import com.socialapp.model.User;
 import com.socialapp.repository.UserRepository;
+import com.socialapp.service.FriendGraphService;
+import com.socialapp.service.FriendRequestService;
+import com.socialapp.service.UserProfileService;
+import com.socialapp.service.UserSearchService;
 import com.socialapp.service.UserService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * REST controller for managing user-related operations.
@@ -22,39 +33,96 @@ import java.util.List;
 public class UserController {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
     private final UserService userService;
+    private final UserProfileService userProfileService;
+    private final UserSearchService userSearchService;
+    private final FriendRequestService friendRequestService;
+    private final FriendGraphService friendGraphService;
 
-    public UserController(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserController(UserRepository userRepository, UserService userService,
+                          UserProfileService userProfileService, UserSearchService userSearchService,
+                          FriendRequestService friendRequestService, FriendGraphService friendGraphService) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
-        this.userService = new UserService(userRepository, passwordEncoder);
+        this.userService = userService;
+        this.userProfileService = userProfileService;
+        this.userSearchService = userSearchService;
+        this.friendRequestService = friendRequestService;
+        this.friendGraphService = friendGraphService;
     }
 
     /**
-     * Retrieves a list of all users.
+     * Retrieves one page of the user directory, in id order.
      * <p>
-     * <b>Endpoint:</b> {@code GET /api/test/users}
+     * <b>Endpoint:</b> {@code GET /api/test/users?after=&size=}
      *
-     * @return A {@link List} of all {@link User} objects.
+     * @param after The cursor returned with the previous page (optional).
+     * @param size  The number of users per page (optional).
+     * @return A {@link CursorPage} of {@link UserProfile}s and the cursor of the next page.
      */
     @GetMapping("/users")
-    public List<User> getUsers() {
-        return userRepository.findAll();
+    public CursorPage<UserProfile> getUsers(@RequestParam(required = false) String after,
+                                            @RequestParam(required = false) Integer size) {
+        return userProfileService.getDirectory(after, size);
+    }
+
+    /**
+     * Streams the profile of every user as newline-delimited JSON.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/users/export}
+     * <p>
+     * The response is written while the users are read, in constant memory.
+     *
+     * @return The NDJSON response body.
+     */
+    @GetMapping(value = "/users/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        StreamingResponseBody body = userProfileService::exportProfiles;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * Finds users by the beginning of their username or of the words of their name, best match first.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/users/search?q=&limit=}
+     *
+     * @param q     The text to search for.
+     * @param limit The maximum number of results (optional).
+     * @return The profiles of the matching users.
+     */
+    @GetMapping("/users/search")
+    public List<UserProfile> searchUsers(@RequestParam String q, @RequestParam(required = false) Integer limit) {
+        return userSearchService.search(q, limit);
     }
 
     /**
      * Creates a new user, hashing the plain-text password provided in the request.
      * <p>
      * <b>Endpoint:</b> {@code POST /api/test/users}
+     * <p>
+     * The request thread is released while the password is hashed.
+     *
      * @param user The user object to save.
      * @return The saved {@link User} with a hashed password.
      */
     @PostMapping("/users")
-    public User createUser(@Valid @RequestBody User user) {
-        // Encode the user's plain-text password before saving.
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+    public CompletableFuture<User> createUser(@Valid @RequestBody User user) {
+        return userService.saveUser(user);
+    }
+
+    /**
+     * Checks the credentials of a user.
+     * <p>
+     * <b>Endpoint:</b> {@code POST /api/test/users/login}
+     * <p>
+     * The request thread is released while the password is checked.
+     *
+     * @param login The email address and password of the user.
+     * @return The {@link UserProfile} of the user.
+     * @throws ResponseStatusException with status 401 if the email or password is wrong.
+     */
+    @PostMapping("/users/login")
+    public CompletableFuture<UserProfile> login(@Valid @RequestBody LoginRequest login) {
+        return userService.authenticate(login.getEmail(), login.getPassword());
     }
 
     /**
@@ -72,15 +140,93 @@ public class UserController {
                 .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found with email: " + email));
     }
 
+    /**
+     * Retrieves the public profile of a user from the profile cache.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/users/{userId}/profile}
+     *
+     * @param userId The ID of the user.
+     * @return The {@link UserProfile} of the user.
+     * @throws ResponseStatusException with status 404 if the user does not exist.
+     */
+    @GetMapping("/users/{userId}/profile")
+    public UserProfile getProfile(@PathVariable String userId) {
+        return userProfileService.getProfile(userId);
+    }
+
+    /**
+     * Retrieves the public profiles of several users at once.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/users/profiles?ids=}
+     *
+     * @param ids The IDs of the users, at most {@code socialapp.users.profiles.max-ids} of them.
+     * @return The profiles of the users that exist, in the requested order.
+     * @throws ResponseStatusException with status 400 if too many IDs are given.
+     */
+    @GetMapping("/users/profiles")
+    public List<UserProfile> getProfiles(@RequestParam List<String> ids) {
+        return userProfileService.getProfiles(ids);
+    }
+
+    /**
+     * Retrieves one page of the public profiles of a user's friends, in id order.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/users/{userId}/friends?after=&size=}
+     *
+     * @param userId The ID of the user.
+     * @param after  The cursor returned with the previous page (optional).
+     * @param size   The number of friends per page (optional).
+     * @return A {@link CursorPage} of the friends' profiles and the cursor of the next page.
+     * @throws ResponseStatusException with status 404 if the user does not exist.
+     */
+    @GetMapping("/users/{userId}/friends")
+    public CursorPage<UserProfile> getFriends(@PathVariable String userId,
+                                              @RequestParam(required = false) String after,
+                                              @RequestParam(required = false) Integer size) {
+        return userProfileService.getFriends(userId, after, size);
+    }
+
     /**
      * Allows the {@code userId} to accept a friend request from {@code friendId}
+     * <p>
+     * The pending request between them, if any, is marked as accepted. Calling it
+     * again has no further effect.
      * @param userId receivers Id
      * @param friendId senders Id
      * @return if the friend request was successfully accepted or not
      */
     @PostMapping("/users/accept-friend-request")
     public String acceptFriendRequest(@RequestParam String userId, @RequestParam String friendId) {
-        userService.acceptFriendRequest(userId, friendId);
+        friendRequestService.acceptFriendRequest(userId, friendId);
         return "Friend request accepted";
     }
+
+    /**
+     * Counts the friends two users have in common.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/users/{userId}/mutual-friends/{otherId}/count}
+     *
+     * @param userId  The ID of one user.
+     * @param otherId The ID of the other user.
+     * @return The number of mutual friends.
+     */
+    @GetMapping("/users/{userId}/mutual-friends/{otherId}/count")
+    public int getMutualFriendCount(@PathVariable String userId, @PathVariable String otherId) {
+        return friendGraphService.countMutualFriends(userId, otherId);
+    }
+
+    /**
+     * Suggests friends of the user's friends, ranked by the number of mutual friends.
+     * <p>
+     * <b>Endpoint:</b> {@code GET /api/test/users/{userId}/friend-suggestions?limit=}
+     *
+     * @param userId The ID of the user.
+     * @param limit  The maximum number of suggestions (optional).
+     * @return A {@link List} of {@link FriendSuggestion}s, best first.
+     */
+    @GetMapping("/users/{userId}/friend-suggestions")
+    public List<FriendSuggestion> getFriendSuggestions(@PathVariable String userId,
+                                                       @RequestParam(required = false) Integer limit) {
+        return friendGraphService.suggestFriends(userId, limit);
+    }
 }
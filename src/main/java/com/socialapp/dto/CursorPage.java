@@ -0,0 +1,32 @@
+package com.socialapp.dto;
+
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of a cursor-paginated listing.
+ * <p>
+ * Clients pass {@code nextCursor} back to fetch the following page; it is
+ * {@code null} once the last page has been reached.
+ *
+ * @param <T> The type of the items in the page.
+ */
+@Getter
+public class CursorPage<T> {
+
+    /**
+     * The items of this page, in listing order.
+     */
+    private final List<T> items;
+
+    /**
+     * The opaque cursor of the next page, or {@code null} if there is none.
+     */
+    private final String nextCursor;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,25 @@
+package com.socialapp.dto;
+
+import lombok.Getter;
+
+/**
+ * A user suggested as a friend because they share friends with the requesting user.
+ */
+@Getter
+public class FriendSuggestion {
+
+    /**
+     * The unique identifier of the suggested user.
+     */
+    private final String userId;
+
+    /**
+     * The number of friends the suggested user has in common with the requesting user.
+     */
+    private final int mutualFriends;
+
+    public FriendSuggestion(String userId, int mutualFriends) {
+        this.userId = userId;
+        this.mutualFriends = mutualFriends;
+    }
+}
@@ -0,0 +1,46 @@
+package com.socialapp.dto;
+
+import lombok.Getter;
+
+/**
+ * Lightweight response returned by the like and unlike endpoints.
+ * <p>
+ * It only carries the like state of the caller and the maintained like counter,
+ * so that liking a post never ships the post body back to the client.
+ */
+@Getter
+public class LikeResult {
+
+    /**
+     * The unique identifier of the post that was liked or unliked.
+     */
+    private final String postId;
+
+    /**
+     * The unique identifier of the user who performed the action.
+     */
+    private final String userId;
+
+    /**
+     * Whether the user likes the post after the operation.
+     */
+    private final boolean liked;
+
+    /**
+     * Whether the operation changed anything. It is {@code false} for repeated likes or unlikes.
+     */
+    private final boolean changed;
+
+    /**
+     * The number of likes on the post after the operation.
+     */
+    private final long likeCount;
+
+    public LikeResult(String postId, String userId, boolean liked, boolean changed, long likeCount) {
+        this.postId = postId;
+        this.userId = userId;
+        this.liked = liked;
+        this.changed = changed;
+        this.likeCount = likeCount;
+    }
+}
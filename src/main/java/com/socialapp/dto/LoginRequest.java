@@ -0,0 +1,19 @@
+package com.socialapp.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * The credentials a user signs in with.
+ */
+@Getter
+@Setter
+public class LoginRequest {
+
+    @NotBlank(message = "Email is required")
+    private String email;
+
+    @NotBlank(message = "Password is required.")
+    private String password;
+}
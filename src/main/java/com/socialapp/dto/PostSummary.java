@@ -0,0 +1,41 @@
+package com.socialapp.dto;
+
+import com.socialapp.model.Media;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Read-only projection of a post used by list views and feeds.
+ * <p>
+ * It only carries what is needed to render a post in a list, with the photo as a
+ * media reference, so MongoDB only returns the fields declared here.
+ */
+@Getter
+@Setter
+public class PostSummary {
+
+    private String id;
+
+    private String title;
+
+    private String content;
+
+    private String photoId;
+
+    private String authorId;
+
+    private LocalDateTime createdAt;
+
+    private long likeCount;
+
+    private long commentCount;
+
+    /**
+     * The URL of the feed-sized variant of the photo, or {@code null} if the post has none.
+     */
+    public String getPhotoUrl() {
+        return Media.urlOf(photoId, Media.Variant.MEDIUM);
+    }
+}
@@ -0,0 +1,33 @@
+package com.socialapp.dto;
+
+import lombok.Getter;
+
+import java.util.Map;
+
+/**
+ * Unread message counts of a user, as shown on badges.
+ */
+@Getter
+public class UnreadCount {
+
+    /**
+     * The unique identifier of the user the counts belong to.
+     */
+    private final String receiverId;
+
+    /**
+     * The number of unread messages across all conversations.
+     */
+    private final long total;
+
+    /**
+     * The number of unread messages per conversation id, for conversations that have any.
+     */
+    private final Map<String, Long> conversations;
+
+    public UnreadCount(String receiverId, long total, Map<String, Long> conversations) {
+        this.receiverId = receiverId;
+        this.total = total;
+        this.conversations = conversations;
+    }
+}
@@ -0,0 +1,31 @@
+package com.socialapp.dto;
+
+import com.socialapp.model.Media;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Public projection of a user used to render friend lists, authors and search results.
+ * <p>
+ * It never carries the password hash or the email address, and the profile photo is
+ * a media reference, so MongoDB only returns the fields declared here.
+ */
+@Getter
+@Setter
+public class UserProfile {
+
+    private String id;
+
+    private String username;
+
+    private String name;
+
+    private String profilePhotoId;
+
+    /**
+     * The URL of the thumbnail-sized variant of the profile photo, or {@code null} if the user has none.
+     */
+    public String getProfilePhotoUrl() {
+        return Media.urlOf(profilePhotoId, Media.Variant.SMALL);
+    }
+}
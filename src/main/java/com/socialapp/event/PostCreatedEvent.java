@@ -0,0 +1,23 @@
+package com.socialapp.event;
+
+import com.socialapp.model.Post;
+import lombok.Getter;
+
+/**
+ * Published by {@code PostService} after a new post has been saved.
+ * <p>
+ * Components that derive data from posts, such as home timelines, listen for it
+ * instead of being called by the service directly.
+ */
+@Getter
+public class PostCreatedEvent {
+
+    /**
+     * The post as it was saved, including its generated id.
+     */
+    private final Post post;
+
+    public PostCreatedEvent(Post post) {
+        this.post = post;
+    }
+}
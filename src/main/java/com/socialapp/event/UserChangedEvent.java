@@ -0,0 +1,34 @@
+package com.socialapp.event;
+
+import lombok.Getter;
+
+/**
+ * Published by {@code UserService} after a user has been created or updated.
+ * <p>
+ * It only carries the public fields that derived data such as the user search index
+ * is built from, never the password hash.
+ */
+@Getter
+public class UserChangedEvent {
+
+    /**
+     * The unique identifier of the user.
+     */
+    private final String userId;
+
+    /**
+     * The username as it was saved.
+     */
+    private final String username;
+
+    /**
+     * The display name as it was saved.
+     */
+    private final String name;
+
+    public UserChangedEvent(String userId, String username, String name) {
+        this.userId = userId;
+        this.username = username;
+        this.name = name;
+    }
+}
@@ -5,6 +5,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -38,6 +39,32 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errors, HttpStatus.BAD_REQUEST);
     }
 
+    /**
+     * Handles exceptions that already carry an HTTP status, such as a malformed pagination cursor.
+     * <p>
+     * Without this handler they would be caught by the generic handler below and
+     * reported as {@code 500 INTERNAL_SERVER_ERROR} regardless of their status.
+     *
+     * @param ex The {@link ResponseStatusException} that was thrown.
+     * @return A {@link ResponseEntity} containing the reason and the status of the exception.
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<String> handleResponseStatusExceptions (ResponseStatusException ex) {
+        return new ResponseEntity<>(ex.getReason(), ex.getHeaders(), ex.getStatusCode());
+    }
+
+    /**
+     * Handles arguments that are well-formed but not allowed, such as a friend request to oneself.
+     *
+     * @param ex The {@link IllegalArgumentException} that was thrown.
+     * @return A {@link ResponseEntity} containing the message of the exception and an
+     * HTTP {@code 400 BAD_REQUEST} status.
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> handleIllegalArgumentExceptions (IllegalArgumentException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.BAD_REQUEST);
+    }
+
     /**
      * Handles all other unhandled exceptions as a last resort.
      * <p>
@@ -0,0 +1,48 @@
+package com.socialapp.metrics;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.RawBsonDocument;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * MongoDB command listener that records the size of every reply as {@code mongodb.driver.commands.reply.size}.
+ * <p>
+ * The driver hands replies to listeners as raw BSON, so the size is read without
+ * decoding or copying the documents. The sizes are tagged with the command name;
+ * a large {@code find} or {@code getMore} reply points at a query returning more
+ * fields or documents than it needs. Command latencies are recorded by Spring Boot
+ * as {@code mongodb.driver.commands}. Each summary is registered once and kept, so
+ * recording a reply is a map lookup.
+ */
+public class MongoReplySizeListener implements CommandListener {
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DistributionSummary> sizes = new ConcurrentHashMap<>();
+
+    public MongoReplySizeListener(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {
+        if (event.getResponse() instanceof RawBsonDocument reply) {
+            sizes.computeIfAbsent(event.getCommandName(), this::summary).record(reply.getByteBuffer().remaining());
+        }
+    }
+
+    private DistributionSummary summary(String command) {
+        return DistributionSummary.builder("mongodb.driver.commands.reply.size")
+                .description("Size of the MongoDB command replies")
+                .baseUnit("bytes")
+                .tag("command", command)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(64.0)
+                .maximumExpectedValue(16.0 * 1024 * 1024)
+                .register(meterRegistry);
+    }
+}
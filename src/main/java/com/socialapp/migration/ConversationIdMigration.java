@@ -0,0 +1,54 @@
+package com.socialapp.migration;
+
+import com.mongodb.client.result.UpdateResult;
+import com.socialapp.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * One-off migration that sets {@code conversationId} on messages stored before it existed.
+ * <p>
+ * The id is computed on the server by a single pipeline update over all messages
+ * that lack it, in the same way as {@link com.socialapp.util.PairKey}, so no message
+ * is loaded by the application.
+ * <p>
+ * It is disabled by default and runs on startup when
+ * {@code socialapp.migration.conversations.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "socialapp.migration.conversations.enabled", havingValue = "true")
+public class ConversationIdMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(ConversationIdMigration.class);
+
+    private final MongoTemplate mongoTemplate;
+
+    public ConversationIdMigration(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        AggregationExpression conversationId = ConditionalOperators
+                .when(ComparisonOperators.valueOf("senderId").lessThanEqualTo("receiverId"))
+                .then(StringOperators.valueOf("senderId").concat(":").concatValueOf("receiverId"))
+                .otherwise(StringOperators.valueOf("receiverId").concat(":").concatValueOf("senderId"));
+        UpdateResult result = mongoTemplate.updateMulti(
+                new Query(Criteria.where("conversationId").exists(false)),
+                AggregationUpdate.update().set("conversationId").toValueOf(conversationId),
+                Message.class);
+        log.info("Set the conversation id of {} messages", result.getModifiedCount());
+    }
+}
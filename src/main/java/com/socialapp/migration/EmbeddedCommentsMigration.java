@@ -0,0 +1,168 @@
+package com.socialapp.migration;
+
+import com.socialapp.model.Comment;
+import com.socialapp.model.Post;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * One-off migration that moves the legacy embedded {@code Post.comments} arrays into the
+ * "post_comments" collection.
+ * <p>
+ * Posts are streamed with a cursor and their comments are upserted in unordered bulk
+ * writes keyed by the post and the comment's position in the array, kept in a
+ * {@code legacyIndex} field, so running it again after an interruption does not
+ * duplicate comments, and two comments an author posted in the same instant both
+ * survive. Comments are paged by id, so each one is inserted with an id built from its
+ * {@code createdAt} and position, which sorts it among the comments of the post in the
+ * order they were posted, and before any comment written since. A post only loses its {@code comments} array once its comments are stored
+ * and its comment counter is recomputed, with one aggregation per batch.
+ * <p>
+ * It is disabled by default and runs on startup when
+ * {@code socialapp.migration.comments.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "socialapp.migration.comments.enabled", havingValue = "true")
+public class EmbeddedCommentsMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedCommentsMigration.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final int batchSize;
+
+    public EmbeddedCommentsMigration(MongoTemplate mongoTemplate,
+                                     @Value("${socialapp.migration.batch-size:1000}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long migrated = migrate();
+        log.info("Moved embedded comments of {} posts into post_comments", migrated);
+    }
+
+    /**
+     * Streams every post that still has an embedded {@code comments} array and moves its comments out.
+     *
+     * @return The number of posts that were migrated.
+     */
+    public long migrate() {
+        Query query = new Query(Criteria.where("comments").exists(true)).cursorBatchSize(batchSize);
+        query.fields().include("comments");
+
+        String collection = mongoTemplate.getCollectionName(Post.class);
+        BulkOperations upserts = null;
+        int pendingComments = 0;
+        List<String> pendingPosts = new ArrayList<>();
+        long migrated = 0;
+
+        try (Stream<Document> posts = mongoTemplate.stream(query, Document.class, collection)) {
+            for (Document post : (Iterable<Document>) posts::iterator) {
+                String postId = post.get("_id").toString();
+                List<Document> comments = post.getList("comments", Document.class, List.of());
+                for (int index = 0; index < comments.size(); index++) {
+                    if (upserts == null) {
+                        upserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Comment.class);
+                    }
+                    Document comment = comments.get(index);
+                    Query key = new Query(Criteria.where("postId").is(postId).and("legacyIndex").is(index));
+                    Update insert = new Update().setOnInsert("authorId", comment.get("authorId"))
+                            .setOnInsert("createdAt", comment.get("createdAt"))
+                            .setOnInsert("text", comment.get("text"));
+                    Date createdAt = comment.getDate("createdAt");
+                    if (createdAt != null) {
+                        insert.setOnInsert("_id", legacyId(postId, createdAt, index));
+                    }
+                    upserts.upsert(key, insert);
+                    pendingComments++;
+                }
+                pendingPosts.add(postId);
+                if (pendingComments >= batchSize || pendingPosts.size() >= batchSize) {
+                    migrated += flush(upserts, pendingPosts);
+                    upserts = null;
+                    pendingComments = 0;
+                }
+            }
+        }
+        return migrated + flush(upserts, pendingPosts);
+    }
+
+    /**
+     * The id of a migrated comment: its creation second, five bytes of a hash of its post,
+     * so that comments of different posts never collide, then its position in the legacy array.
+     */
+    static ObjectId legacyId(String postId, Date createdAt, int index) {
+        byte[] postHash;
+        try {
+            postHash = MessageDigest.getInstance("SHA-256").digest(postId.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        ByteBuffer id = ByteBuffer.allocate(12);
+        id.putInt((int) (createdAt.getTime() / 1000));
+        id.put(postHash, 0, 5);
+        id.put((byte) (index >>> 16)).put((byte) (index >>> 8)).put((byte) index);
+        return new ObjectId(id.array());
+    }
+
+    /**
+     * Writes the buffered comments, then recounts and strips the embedded array of the posts they came from.
+     */
+    private int flush(BulkOperations upserts, List<String> pendingPosts) {
+        if (upserts != null) {
+            upserts.execute();
+        }
+
+        int posts = pendingPosts.size();
+        if (posts > 0) {
+            Map<String, Long> commentCounts = countComments(pendingPosts);
+            BulkOperations updates = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Post.class);
+            for (String postId : pendingPosts) {
+                updates.updateOne(new Query(Criteria.where("_id").is(postId)),
+                        new Update().set("commentCount", commentCounts.getOrDefault(postId, 0L)).unset("comments"));
+            }
+            updates.execute();
+        }
+
+        pendingPosts.clear();
+        return posts;
+    }
+
+    /**
+     * Counts the stored comments of the given posts with one aggregation over the (postId, _id) index.
+     */
+    private Map<String, Long> countComments(List<String> postIds) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("postId").in(postIds)),
+                Aggregation.group("postId").count().as("count"));
+        Map<String, Long> counts = new HashMap<>();
+        mongoTemplate.aggregate(aggregation, Comment.class, Document.class)
+                .forEach(row -> counts.put(row.getString("_id"), ((Number) row.get("count")).longValue()));
+        return counts;
+    }
+}
@@ -0,0 +1,158 @@
+package com.socialapp.migration;
+
+import com.mongodb.bulk.BulkWriteError;
+import com.socialapp.model.Post;
+import com.socialapp.model.PostLike;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * One-off migration that moves the legacy embedded {@code Post.likes} arrays into the
+ * "post_likes" collection.
+ * <p>
+ * Posts are streamed with a cursor and their likes are written in unordered bulk
+ * inserts of {@code socialapp.migration.batch-size} documents, so memory use does not
+ * depend on the size of the collection. Legacy arrays may hold the same user more than
+ * once, or blank entries; each user is kept once per post. The like counters of a batch
+ * are then recounted with one aggregation. A post only loses its {@code likes} array
+ * once all of its likes are stored, and likes stored by an earlier run are ignored, so
+ * the migration can be interrupted and run again safely.
+ * <p>
+ * It is disabled by default and runs on startup when
+ * {@code socialapp.migration.likes.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "socialapp.migration.likes.enabled", havingValue = "true")
+public class EmbeddedLikesMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedLikesMigration.class);
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final int batchSize;
+
+    public EmbeddedLikesMigration(MongoTemplate mongoTemplate,
+                                  @Value("${socialapp.migration.batch-size:1000}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long migrated = migrate();
+        log.info("Moved embedded likes of {} posts into post_likes", migrated);
+    }
+
+    /**
+     * Streams every post that still has an embedded {@code likes} array and moves its likes out.
+     *
+     * @return The number of posts that were migrated.
+     */
+    public long migrate() {
+        Query query = new Query(Criteria.where("likes").exists(true)).cursorBatchSize(batchSize);
+        query.fields().include("likes");
+
+        String collection = mongoTemplate.getCollectionName(Post.class);
+        List<PostLike> pendingLikes = new ArrayList<>();
+        List<String> pendingPosts = new ArrayList<>();
+        long migrated = 0;
+
+        try (Stream<Document> posts = mongoTemplate.stream(query, Document.class, collection)) {
+            for (Document post : (Iterable<Document>) posts::iterator) {
+                String postId = post.get("_id").toString();
+                for (String userId : likers(post)) {
+                    pendingLikes.add(new PostLike(postId, userId));
+                }
+                pendingPosts.add(postId);
+                if (pendingLikes.size() >= batchSize || pendingPosts.size() >= batchSize) {
+                    migrated += flush(pendingLikes, pendingPosts);
+                }
+            }
+        }
+        return migrated + flush(pendingLikes, pendingPosts);
+    }
+
+    /**
+     * The distinct users in the embedded {@code likes} array of a post, skipping blank entries.
+     */
+    static Set<String> likers(Document post) {
+        Set<String> likers = new LinkedHashSet<>();
+        for (Object like : post.getList("likes", Object.class, List.of())) {
+            String userId = like == null ? "" : like.toString().trim();
+            if (!userId.isEmpty()) {
+                likers.add(userId);
+            }
+        }
+        return likers;
+    }
+
+    /**
+     * Inserts the buffered likes, then recounts and strips the embedded array of the posts they came from.
+     */
+    private int flush(List<PostLike> pendingLikes, List<String> pendingPosts) {
+        if (!pendingLikes.isEmpty()) {
+            BulkOperations inserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, PostLike.class);
+            inserts.insert(pendingLikes);
+            try {
+                inserts.execute();
+            } catch (BulkOperationException e) {
+                // Likes left over from an earlier, interrupted run are expected; anything else is not.
+                boolean onlyDuplicates = e.getErrors().stream()
+                        .mapToInt(BulkWriteError::getCode)
+                        .allMatch(code -> code == DUPLICATE_KEY);
+                if (!onlyDuplicates) {
+                    throw e;
+                }
+            }
+        }
+
+        int posts = pendingPosts.size();
+        if (posts > 0) {
+            Map<String, Long> likeCounts = countLikes(pendingPosts);
+            BulkOperations updates = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Post.class);
+            for (String postId : pendingPosts) {
+                updates.updateOne(new Query(Criteria.where("_id").is(postId)),
+                        new Update().set("likeCount", likeCounts.getOrDefault(postId, 0L)).unset("likes"));
+            }
+            updates.execute();
+        }
+
+        pendingLikes.clear();
+        pendingPosts.clear();
+        return posts;
+    }
+
+    /**
+     * Counts the stored likes of the given posts with one aggregation over the (postId, userId) index.
+     */
+    private Map<String, Long> countLikes(List<String> postIds) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("postId").in(postIds)),
+                Aggregation.group("postId").count().as("count"));
+        Map<String, Long> counts = new HashMap<>();
+        mongoTemplate.aggregate(aggregation, PostLike.class, Document.class)
+                .forEach(row -> counts.put(row.getString("_id"), ((Number) row.get("count")).longValue()));
+        return counts;
+    }
+}
@@ -0,0 +1,136 @@
+package com.socialapp.migration;
+
+import com.socialapp.model.Media;
+import com.socialapp.model.Post;
+import com.socialapp.model.User;
+import com.socialapp.service.MediaService;
+import com.socialapp.service.ThumbnailService;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.stream.Stream;
+
+/**
+ * One-off migration that extracts the legacy Base64 images stored inline in
+ * {@code Post.photo} and {@code User.profilePhoto} into the media store.
+ * <p>
+ * Documents are streamed with a cursor, each image is decoded, stored through
+ * {@link MediaService} and queued for thumbnails, and the inline string is replaced
+ * by the media id in unordered bulk updates of {@code socialapp.migration.batch-size}
+ * documents. Storing is idempotent, so the migration can be interrupted and run
+ * again safely. Images that are not valid Base64, or not a JPEG, PNG, GIF or WebP
+ * image, are logged and left in place, and the migration moves on to the next document.
+ * <p>
+ * It is disabled by default and runs on startup when
+ * {@code socialapp.migration.photos.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "socialapp.migration.photos.enabled", havingValue = "true")
+public class EmbeddedPhotosMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddedPhotosMigration.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final MediaService mediaService;
+    private final ThumbnailService thumbnailService;
+    private final int batchSize;
+
+    public EmbeddedPhotosMigration(MongoTemplate mongoTemplate, MediaService mediaService,
+                                   ThumbnailService thumbnailService,
+                                   @Value("${socialapp.migration.batch-size:1000}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.mediaService = mediaService;
+        this.thumbnailService = thumbnailService;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long posts = migrate(Post.class, "photo", "photoId");
+        long users = migrate(User.class, "profilePhoto", "profilePhotoId");
+        log.info("Moved inline photos of {} posts and {} users into the media store", posts, users);
+    }
+
+    /**
+     * Streams every document of an entity that still has an inline image and moves it to the media store.
+     *
+     * @param entityClass The entity whose collection is migrated.
+     * @param inlineField The legacy field holding the Base64 image.
+     * @param idField     The field that receives the media id.
+     * @return The number of documents that were migrated.
+     */
+    public long migrate(Class<?> entityClass, String inlineField, String idField) {
+        Query query = new Query(Criteria.where(inlineField).exists(true)).cursorBatchSize(batchSize);
+        query.fields().include(inlineField);
+
+        String collection = mongoTemplate.getCollectionName(entityClass);
+        BulkOperations updates = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entityClass);
+        int pending = 0;
+        long migrated = 0;
+
+        try (Stream<Document> documents = mongoTemplate.stream(query, Document.class, collection)) {
+            for (Document document : (Iterable<Document>) documents::iterator) {
+                Update update = new Update().unset(inlineField);
+                String inline = document.getString(inlineField);
+                if (inline != null && !inline.isBlank()) {
+                    Media media = store(inline);
+                    if (media == null) {
+                        log.warn("Skipping the {} of {} {}: not a supported Base64 image",
+                                inlineField, collection, document.get("_id"));
+                        continue;
+                    }
+                    update.set(idField, media.getId());
+                }
+                updates.updateOne(new Query(Criteria.where("_id").is(document.get("_id"))), update);
+                if (++pending == batchSize) {
+                    updates.execute();
+                    updates = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, entityClass);
+                    migrated += pending;
+                    pending = 0;
+                }
+            }
+        }
+        if (pending > 0) {
+            updates.execute();
+        }
+        return migrated + pending;
+    }
+
+    /**
+     * Decodes a Base64 image, with or without a {@code data:} URI prefix, and stores it.
+     * <p>
+     * The type is detected from the decoded bytes, like uploads, rather than taken from the prefix.
+     *
+     * @return The stored media, or {@code null} if the string is not a supported Base64 image.
+     */
+    private Media store(String inline) {
+        String data = inline.startsWith("data:") ? inline.substring(inline.indexOf(',') + 1) : inline;
+        byte[] content;
+        try {
+            content = Base64.getMimeDecoder().decode(data);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        String contentType = MediaService.detectImageType(
+                Arrays.copyOf(content, Math.min(content.length, MediaService.IMAGE_HEADER_LENGTH)));
+        if (contentType == null) {
+            return null;
+        }
+        Media media = mediaService.store(content, contentType);
+        thumbnailService.submit(media);
+        return media;
+    }
+}
@@ -0,0 +1,88 @@
+package com.socialapp.migration;
+
+import com.mongodb.client.result.UpdateResult;
+import com.socialapp.model.FriendRequest;
+import com.socialapp.util.PairKey;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.AggregationExpression;
+import org.springframework.data.mongodb.core.aggregation.AggregationUpdate;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.aggregation.ConditionalOperators;
+import org.springframework.data.mongodb.core.aggregation.StringOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.util.stream.Stream;
+
+/**
+ * One-off migration that sets {@code pairKey} on friend requests sent before it existed.
+ * <p>
+ * Requests that are no longer pending are not covered by the unique pair index, so
+ * they are updated on the server by a single pipeline update, like
+ * {@link ConversationIdMigration}. Pending requests are streamed oldest first and
+ * updated one by one; when the unique index rejects one, an older request for the
+ * same pair is already pending, and the duplicate is deleted.
+ * <p>
+ * It is disabled by default and runs on startup when
+ * {@code socialapp.migration.friend-requests.enabled=true}.
+ */
+@Component
+@ConditionalOnProperty(name = "socialapp.migration.friend-requests.enabled", havingValue = "true")
+public class FriendRequestPairKeyMigration implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(FriendRequestPairKeyMigration.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final int batchSize;
+
+    public FriendRequestPairKeyMigration(MongoTemplate mongoTemplate,
+                                         @Value("${socialapp.migration.batch-size:1000}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        AggregationExpression pairKey = ConditionalOperators
+                .when(ComparisonOperators.valueOf("senderId").lessThanEqualTo("receiverId"))
+                .then(StringOperators.valueOf("senderId").concat(":").concatValueOf("receiverId"))
+                .otherwise(StringOperators.valueOf("receiverId").concat(":").concatValueOf("senderId"));
+        UpdateResult closed = mongoTemplate.updateMulti(
+                new Query(Criteria.where("pairKey").exists(false).and("status").ne(FriendRequest.Status.PENDING)),
+                AggregationUpdate.update().set("pairKey").toValueOf(pairKey),
+                FriendRequest.class);
+
+        Query pending = new Query(Criteria.where("pairKey").exists(false).and("status").is(FriendRequest.Status.PENDING))
+                .with(Sort.by(Sort.Direction.ASC, "createdAt", "_id"))
+                .cursorBatchSize(batchSize);
+        pending.fields().include("senderId", "receiverId");
+        long updated = 0;
+        long duplicates = 0;
+        try (Stream<FriendRequest> requests = mongoTemplate.stream(pending, FriendRequest.class)) {
+            for (FriendRequest request : (Iterable<FriendRequest>) requests::iterator) {
+                Query byId = new Query(Criteria.where("_id").is(request.getId()));
+                try {
+                    mongoTemplate.updateFirst(byId,
+                            new Update().set("pairKey", PairKey.of(request.getSenderId(), request.getReceiverId())),
+                            FriendRequest.class);
+                    updated++;
+                } catch (DuplicateKeyException e) {
+                    mongoTemplate.remove(byId, FriendRequest.class);
+                    duplicates++;
+                }
+            }
+        }
+        log.info("Set the pair key of {} closed and {} pending friend requests, deleted {} duplicates",
+                closed.getModifiedCount(), updated, duplicates);
+    }
+}
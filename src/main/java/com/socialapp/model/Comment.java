@@ -0,0 +1,61 @@
+package com.socialapp.model;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+/**
+ * Represents a Comment entity, mapping to the "post_comments" collection in MongoDB.
+ * <p>
+ * Comments used to be embedded in their {@link Post}. Storing them separately keeps
+ * the post document small and lets them be paged through the (postId, _id) index.
+ */
+@Document(collection = "post_comments")
+@CompoundIndex(name = "post_id", def = "{'postId': 1, '_id': 1}")
+@Getter
+@Setter
+public class Comment {
+
+    /**
+     * The unique identifier for the comment document, automatically generated by MongoDB.
+     * It also serves as the pagination cursor, as ids grow with creation time.
+     */
+    @Id
+    private String id;
+
+    /**
+     * A reference to the post this comment was made on.
+     */
+    private String postId;
+
+    /**
+     * The ID of the user who posted this comment.
+     * This links the comment back to a {@code User} entity.
+     */
+    @NotBlank(message = "The author Id cannot be blank.")
+    private String authorId;
+
+    /**
+     * The text content of the comment.
+     */
+    @NotBlank(message = "The text cannot be blank.")
+    @Size(max = 1000, message = "Text must not exceed 1000 characters.")
+    private String text;
+
+    /**
+     * The timestamp indicating when the comment was created.
+     * Defaults to the current time upon object creation.
+     */
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    /**
+     * Default no-argument constructor.
+     * Required by persistence frameworks like Spring Data for object instantiation.
+     */
+    public Comment() {}
+}
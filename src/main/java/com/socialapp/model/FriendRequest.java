@@ -5,6 +5,8 @@ import jakarta.validation.constraints.NotNull;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
@@ -13,8 +15,17 @@ import java.time.LocalDateTime;
  * <p>
  * This class defines the data structure for a sender, receiver, status of the request,
  * and the timestamp of when it was sent.
+ * <p>
+ * At most one request per pair of users can be pending, whichever of them sent it;
+ * this is enforced by a unique index on {@link #pairKey} that only covers pending requests.
  */
 @Document(collection = "friend_requests")
+@CompoundIndexes({
+        @CompoundIndex(name = "pair_pending", def = "{'pairKey': 1}", unique = true,
+                partialFilter = "{'status': 'PENDING', 'pairKey': {'$exists': true}}"),
+        @CompoundIndex(name = "receiver_status", def = "{'receiverId': 1, 'status': 1}"),
+        @CompoundIndex(name = "sender_status", def = "{'senderId': 1, 'status': 1}")
+})
 @Getter
 @Setter
 public class FriendRequest {
@@ -37,6 +48,12 @@ public class FriendRequest {
     @NotBlank(message = "The receiver Id cannot be blank.")
     private String receiverId;
 
+    /**
+     * The identifier of the pair of users, the same whichever of them sent the request
+     * (see {@link com.socialapp.util.PairKey}).
+     */
+    private String pairKey;
+
     /**
      * The indicator of the current status of the request.
      * It can take the values : {@code PENDING } , {@code ACCEPTED}, {@code REJECTED}
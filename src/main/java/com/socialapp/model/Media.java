@@ -0,0 +1,113 @@
+package com.socialapp.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Represents a Media entity, mapping to the "media" collection in MongoDB.
+ * <p>
+ * It holds the metadata of a binary file, such as a post photo or a profile picture.
+ * The bytes themselves are kept out of the database in a content-addressed file store,
+ * so users and posts only reference them by id.
+ */
+@Document(collection = "media")
+@Getter
+@Setter
+public class Media {
+
+    /**
+     * The SHA-256 hash of the content, in lowercase hex.
+     * Identical uploads therefore share one id and one file.
+     */
+    @Id
+    private String id;
+
+    /**
+     * The MIME type of the content (e.g., "image/png").
+     */
+    private String contentType;
+
+    /**
+     * The size of the content in bytes.
+     */
+    private long size;
+
+    /**
+     * The timestamp indicating when the content was first stored.
+     * Defaults to the current time upon object creation.
+     */
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    /**
+     * The ids of the downscaled copies of an image, keyed by {@link Variant} name.
+     * It is filled in asynchronously after the upload, so it may be missing variants.
+     */
+    private Map<String, String> variants = new HashMap<>();
+
+    /**
+     * Default no-argument constructor.
+     * Required by persistence frameworks like Spring Data for object instantiation.
+     */
+    public Media() {}
+
+    /**
+     * Builds the URL under which a media is served.
+     *
+     * @param id      The id of the media, may be {@code null}.
+     * @param variant The preferred variant, or {@code null} for the original.
+     * @return The relative URL, or {@code null} if no id was given.
+     */
+    public static String urlOf(String id, Variant variant) {
+        if (id == null) {
+            return null;
+        }
+        String url = "/api/test/media/" + id;
+        return variant == null ? url : url + "?variant=" + variant.key();
+    }
+
+    /**
+     * The downscaled sizes generated for every uploaded image.
+     */
+    public enum Variant {
+        /**
+         * Avatars and thumbnails in dense lists.
+         */
+        SMALL(160),
+
+        /**
+         * Images in feeds and list views.
+         */
+        MEDIUM(480),
+
+        /**
+         * Full-screen viewing on mobile devices.
+         */
+        LARGE(1080);
+
+        private final int maxEdge;
+
+        Variant(int maxEdge) {
+            this.maxEdge = maxEdge;
+        }
+
+        /**
+         * The length in pixels of the longest edge of the variant.
+         */
+        public int maxEdge() {
+            return maxEdge;
+        }
+
+        /**
+         * The name under which the variant is stored and requested.
+         */
+        public String key() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+}
@@ -4,6 +4,8 @@ import jakarta.validation.constraints.NotBlank;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
 
@@ -16,6 +18,12 @@ import java.time.LocalDateTime;
 @Getter
 @Setter
 @Document(collection = "messages")
+@CompoundIndexes({
+        @CompoundIndex(name = "conversation_timestamp", def = "{'conversationId': 1, 'timestamp': -1, '_id': -1}"),
+        @CompoundIndex(name = "sender_receiver", def = "{'senderId': 1, 'receiverId': 1, 'timestamp': -1}"),
+        // Only unread messages are indexed; they are the only ones looked up by receiver.
+        @CompoundIndex(name = "receiver_unread", def = "{'receiverId': 1, 'timestamp': -1}", partialFilter = "{'isRead': false}")
+})
 public class Message {
 
     /**
@@ -36,6 +44,12 @@ public class Message {
     @NotBlank(message = "The receiver Id cannot be blank.")
     private String receiverId;
 
+    /**
+     * The identifier of the conversation between the sender and the receiver.
+     * It is the same for both directions of the chat (see {@link com.socialapp.util.PairKey}).
+     */
+    private String conversationId;
+
     /**
      * It contains the message content.
      */
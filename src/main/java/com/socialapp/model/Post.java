@@ -5,18 +5,18 @@ import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Represents a Post entity, mapping to the "posts" collection in MongoDB.
  * <p>
  * This class defines the data structure for a post, its content, author,
- * likes, and comments.
+ * like count, and comment count.
  */
 @Document(collection = "posts")
+@CompoundIndex(name = "author_created", def = "{'authorId': 1, 'createdAt': -1, '_id': -1}")
 @Getter
 @Setter
 public class Post {
@@ -41,10 +41,10 @@ public class Post {
     private String content;
 
     /**
-     * A Base64 encoded string representation of the posted image.
-     * It allows us to store small images directly within the document.
+     * A reference to the {@link Media} holding the posted image, if any.
+     * The image is uploaded separately and served by the media endpoint.
      */
-    private String photo;
+    private String photoId;
 
     /**
      * A reference to the user who posted.
@@ -59,53 +59,24 @@ public class Post {
     private LocalDateTime createdAt =  LocalDateTime.now();
 
     /**
-     * A list of user IDs representing the users who liked the post.
+     * The number of users who liked the post.
+     * <p>
+     * The likes themselves live in the "post_likes" collection (see {@link PostLike});
+     * this counter is kept in sync with it so list views never have to count them.
      */
-    private List<String> likes =  new ArrayList<>();
+    private long likeCount;
 
-    /** A list of comments made on this post.
+    /**
+     * The number of comments on the post.
      * <p>
-     * This list is to be embedded directly within the Post document in
-     * MongoDB, representing a one-to-many relationship.
+     * The comments themselves live in the "post_comments" collection (see {@link Comment})
+     * and are paged separately; this counter keeps list views small.
      */
-    private List<Comment> comments = new ArrayList<>();
+    private long commentCount;
 
     /**
      * Default no-argument constructor.
      * Required by persistence frameworks like Spring Data for object instantiation.
      */
     public Post(){}
-
-    /**
-     * Represents a single, nested comment on a post.
-     * <p>
-     * As a static nested class, it's a self-contained data structure used to model
-     * comments that are embedded within the parent {@code Post} document.
-     */
-    @Getter
-    @Setter
-    public static class Comment{
-
-        /**
-         * A unique identifier for this specific comment.
-         */
-        private String id;
-
-        /**
-         * The ID of the user who posted this comment.
-         * This links the comment back to a {@code User} entity.
-         */
-        private String authorId;
-
-        /**
-         * The text content of the comment.
-         */
-        private String text;
-
-        /**
-         * The timestamp indicating when the comment was created.
-         * Defaults to the current time upon object creation.
-         */
-        private LocalDateTime createdAt = LocalDateTime.now();
-    }
 }
@@ -0,0 +1,59 @@
+package com.socialapp.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.CompoundIndexes;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+/**
+ * Represents a PostLike entity, mapping to the "post_likes" collection in MongoDB.
+ * <p>
+ * Each document records that one user liked one post. The unique (postId, userId)
+ * index makes a second like by the same user fail on insert, so likes never have to
+ * be stored inside the {@link Post} document.
+ */
+@Document(collection = "post_likes")
+@CompoundIndexes({
+        @CompoundIndex(name = "post_user", def = "{'postId': 1, 'userId': 1}", unique = true),
+        @CompoundIndex(name = "user_created", def = "{'userId': 1, 'createdAt': -1, '_id': -1}")
+})
+@Getter
+@Setter
+public class PostLike {
+
+    /**
+     * The unique identifier for the like document, automatically generated by MongoDB.
+     */
+    @Id
+    private String id;
+
+    /**
+     * A reference to the post that was liked.
+     */
+    private String postId;
+
+    /**
+     * A reference to the user who liked the post.
+     */
+    private String userId;
+
+    /**
+     * The timestamp indicating when the post was liked.
+     * Defaults to the current time upon object creation.
+     */
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    /**
+     * Default no-argument constructor.
+     * Required by persistence frameworks like Spring Data for object instantiation.
+     */
+    public PostLike() {}
+
+    public PostLike(String postId, String userId) {
+        this.postId = postId;
+        this.userId = userId;
+    }
+}
@@ -0,0 +1,53 @@
+package com.socialapp.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+/**
+ * Represents a ReadWatermark entity, mapping to the "read_watermarks" collection in MongoDB.
+ * <p>
+ * It records up to which point a user has read a conversation: every message they
+ * received in it up to {@code readUpTo} is read. It only ever moves forward.
+ */
+@Document(collection = "read_watermarks")
+@Getter
+@Setter
+public class ReadWatermark {
+
+    /**
+     * The identifier of the watermark, made of the conversation id and the reader id.
+     */
+    @Id
+    private String id;
+
+    /**
+     * The identifier of the conversation that was read.
+     */
+    private String conversationId;
+
+    /**
+     * The unique identifier of the user who read the conversation.
+     */
+    private String readerId;
+
+    /**
+     * The timestamp of the latest message that has been read.
+     */
+    private LocalDateTime readUpTo;
+
+    /**
+     * Default no-argument constructor.
+     * Required by persistence frameworks like Spring Data for object instantiation.
+     */
+    public ReadWatermark() {}
+
+    /**
+     * Builds the id of the watermark of a reader in a conversation.
+     */
+    public static String idOf(String conversationId, String readerId) {
+        return conversationId + "/" + readerId;
+    }
+}
@@ -0,0 +1,70 @@
+package com.socialapp.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a Timeline entity, mapping to the "timelines" collection in MongoDB.
+ * <p>
+ * It is the persisted copy of a user's home timeline: the ids of the most recent
+ * posts of their friends, newest first, capped to a fixed number of entries.
+ */
+@Document(collection = "timelines")
+@Getter
+@Setter
+public class Timeline {
+
+    /**
+     * The unique identifier of the user who owns the timeline.
+     */
+    @Id
+    private String id;
+
+    /**
+     * The most recent posts on the timeline, newest first.
+     */
+    private List<Entry> entries = new ArrayList<>();
+
+    /**
+     * Default no-argument constructor.
+     * Required by persistence frameworks like Spring Data for object instantiation.
+     */
+    public Timeline() {}
+
+    /**
+     * A reference to one post on a timeline.
+     * <p>
+     * The creation time is kept next to the post id so timelines can be ordered
+     * and paginated without loading the posts.
+     */
+    @Getter
+    @Setter
+    public static class Entry {
+
+        /**
+         * The unique identifier of the post.
+         */
+        private String postId;
+
+        /**
+         * The timestamp indicating when the post was created.
+         */
+        private LocalDateTime createdAt;
+
+        /**
+         * Default no-argument constructor.
+         * Required by persistence frameworks like Spring Data for object instantiation.
+         */
+        public Entry() {}
+
+        public Entry(String postId, LocalDateTime createdAt) {
+            this.postId = postId;
+            this.createdAt = createdAt;
+        }
+    }
+}
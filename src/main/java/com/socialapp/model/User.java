@@ -72,10 +72,10 @@ public class User {
     private String bio;
 
     /**
-     * A Base64 encoded string representation of the user's profile picture.
-     * Allows for storing small images directly within the document.
+     * A reference to the {@link Media} holding the user's profile picture, if any.
+     * The picture is uploaded separately and served by the media endpoint.
      */
-    private String profilePhoto;
+    private String profilePhotoId;
 
     /**
      * The timestamp indicating when the user account was created.
@@ -0,0 +1,14 @@
+package com.socialapp.repository;
+
+import com.socialapp.model.Comment;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+/**
+ * It handles CRUD logic for Comment Entity.
+ */
+public interface CommentRepository extends MongoRepository<Comment, String> {
+    Slice<Comment> findByPostIdOrderByIdAsc(String postId, Pageable pageable);
+    Slice<Comment> findByPostIdAndIdGreaterThanOrderByIdAsc(String postId, String after, Pageable pageable);
+}
@@ -0,0 +1,17 @@
+package com.socialapp.repository.reactive;
+
+import com.socialapp.model.Message;
+import org.springframework.data.mongodb.repository.Meta;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+/**
+ * It streams Message Entities without blocking, for the reactive endpoints.
+ * <p>
+ * Results are read in cursor batches of 100 documents, fetched as subscribers ask for more.
+ */
+public interface ReactiveMessageRepository extends ReactiveMongoRepository<Message, String> {
+
+    @Meta(cursorBatchSize = 100)
+    Flux<Message> findByConversationIdOrderByTimestampDescIdDesc(String conversationId);
+}
@@ -0,0 +1,20 @@
+package com.socialapp.repository.reactive;
+
+import com.socialapp.dto.PostSummary;
+import com.socialapp.model.Post;
+import org.springframework.data.mongodb.repository.Meta;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+
+/**
+ * It streams Post Entities without blocking, for the reactive endpoints.
+ * <p>
+ * Results are read in cursor batches of 100 documents, fetched as subscribers ask for more.
+ */
+public interface ReactivePostRepository extends ReactiveMongoRepository<Post, String> {
+
+    @Meta(cursorBatchSize = 100)
+    Flux<PostSummary> findByAuthorIdInOrderByCreatedAtDescIdDesc(Collection<String> authorIds);
+}
@@ -0,0 +1,416 @@
+package com.socialapp.service;
+
+import com.socialapp.dto.FriendSuggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory, undirected friendship graph kept by {@link FriendGraphService}.
+ * <p>
+ * User ids are interned to dense {@code int}s, and each user's friends are held in a
+ * sorted {@code int[]}. Membership is then a binary search, and mutual friends are a
+ * linear merge of two arrays, with no boxing. An array is replaced rather than
+ * modified when a friendship is added, so readers never see it half-written.
+ */
+final class FriendGraph {
+
+    private static final int[] NO_FRIENDS = new int[0];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, Integer> indexes = new HashMap<>();
+    private String[] userIds = new String[1024];
+    private int[][] adjacency = new int[1024][];
+    private int size;
+    private long edges;
+
+    /**
+     * Replaces the whole graph with the friend lists collected by a {@link Loader}, adding the
+     * reverse of every friendship.
+     * <p>
+     * The arrays are built before the write lock is taken, so queries keep using the old
+     * graph until the new one is complete.
+     */
+    void load(Loader loader) {
+        int users = loader.size;
+        // Count both directions first so every array is allocated once at its final size.
+        int[] degrees = new int[users];
+        for (int list = 0, start = 0; list < loader.lists; start = loader.ends[list++]) {
+            int user = loader.owners[list];
+            for (int i = start; i < loader.ends[list]; i++) {
+                degrees[user]++;
+                degrees[loader.friends[i]]++;
+            }
+        }
+        int[][] loaded = new int[loader.userIds.length][];
+        for (int user = 0; user < users; user++) {
+            loaded[user] = new int[degrees[user]];
+        }
+        int[] filled = new int[users];
+        for (int list = 0, start = 0; list < loader.lists; start = loader.ends[list++]) {
+            int user = loader.owners[list];
+            for (int i = start; i < loader.ends[list]; i++) {
+                int friend = loader.friends[i];
+                loaded[user][filled[user]++] = friend;
+                loaded[friend][filled[friend]++] = user;
+            }
+        }
+        long friendships = 0;
+        for (int user = 0; user < users; user++) {
+            loaded[user] = sortedDistinct(loaded[user], user);
+            friendships += loaded[user].length;
+        }
+
+        lock.writeLock().lock();
+        try {
+            indexes = loader.indexes;
+            userIds = loader.userIds;
+            adjacency = loaded;
+            size = users;
+            edges = friendships / 2;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Records a friendship in both directions. Adding an existing friendship has no effect.
+     */
+    void addFriendship(String userId, String friendId) {
+        if (userId.equals(friendId)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int user = intern(userId);
+            int friend = intern(friendId);
+            if (insert(user, friend)) {
+                insert(friend, user);
+                edges++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean areFriends(String userId, String otherId) {
+        lock.readLock().lock();
+        try {
+            Integer user = indexes.get(userId);
+            Integer other = indexes.get(otherId);
+            return user != null && other != null && Arrays.binarySearch(friendsOf(user), other) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the friends two users have in common.
+     */
+    int countMutualFriends(String userId, String otherId) {
+        int[] left;
+        int[] right;
+        lock.readLock().lock();
+        try {
+            Integer user = indexes.get(userId);
+            Integer other = indexes.get(otherId);
+            if (user == null || other == null) {
+                return 0;
+            }
+            left = friendsOf(user);
+            right = friendsOf(other);
+        } finally {
+            lock.readLock().unlock();
+        }
+        // The arrays are never modified once published, so they can be merged outside the lock.
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                count++;
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Ranks the friends of a user's friends who are not already their friends by the number of
+     * mutual friends, highest first.
+     * <p>
+     * At most {@code scanLimit} friend-of-friend edges are visited, least connected friends
+     * first, so the cost of one call is bounded whatever the size of the graph. A user with
+     * more edges than that gets suggestions from part of their network.
+     *
+     * @param userId    The unique Id of the user.
+     * @param limit     The maximum number of suggestions.
+     * @param scanLimit The maximum number of edges visited.
+     * @return The suggestions, with the number of mutual friends of each.
+     */
+    List<FriendSuggestion> suggest(String userId, int limit, int scanLimit) {
+        int user;
+        int[] friends;
+        int[][] friendsOfFriends;
+        lock.readLock().lock();
+        try {
+            Integer index = indexes.get(userId);
+            if (index == null) {
+                return List.of();
+            }
+            user = index;
+            friends = friendsOf(user);
+            friendsOfFriends = new int[friends.length][];
+            for (int i = 0; i < friends.length; i++) {
+                friendsOfFriends[i] = friendsOf(friends[i]);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Arrays.sort(friendsOfFriends, (a, b) -> Integer.compare(a.length, b.length));
+        IntCounter counts = new IntCounter(Math.min(scanLimit, 1024));
+        int scanned = 0;
+        scan:
+        for (int[] candidates : friendsOfFriends) {
+            for (int candidate : candidates) {
+                if (++scanned > scanLimit) {
+                    break scan;
+                }
+                if (candidate != user && Arrays.binarySearch(friends, candidate) < 0) {
+                    counts.increment(candidate);
+                }
+            }
+        }
+
+        // Min-heap of the best candidates so far, weakest on top; ties go to the lower index.
+        PriorityQueue<long[]> best = new PriorityQueue<>(limit + 1, (a, b) -> a[1] != b[1]
+                ? Long.compare(a[1], b[1])
+                : Long.compare(b[0], a[0]));
+        counts.forEach((candidate, count) -> {
+            best.add(new long[]{candidate, count});
+            if (best.size() > limit) {
+                best.poll();
+            }
+        });
+        List<FriendSuggestion> suggestions = new ArrayList<>(best.size());
+        lock.readLock().lock();
+        try {
+            while (!best.isEmpty()) {
+                long[] entry = best.poll();
+                suggestions.add(new FriendSuggestion(userIds[(int) entry[0]], (int) entry[1]));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        Collections.reverse(suggestions);
+        return suggestions;
+    }
+
+    int userCount() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long friendshipCount() {
+        lock.readLock().lock();
+        try {
+            return edges;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int[] friendsOf(int user) {
+        int[] friends = adjacency[user];
+        return friends == null ? NO_FRIENDS : friends;
+    }
+
+    /**
+     * Returns the dense index of a user, assigning the next one on first sight. Requires the write lock.
+     */
+    private int intern(String userId) {
+        Integer existing = indexes.get(userId);
+        if (existing != null) {
+            return existing;
+        }
+        if (size == userIds.length) {
+            userIds = Arrays.copyOf(userIds, size * 2);
+            adjacency = Arrays.copyOf(adjacency, size * 2);
+        }
+        userIds[size] = userId;
+        indexes.put(userId, size);
+        return size++;
+    }
+
+    /**
+     * Publishes a copy of a user's friends with one more friend in sorted position. Requires the write lock.
+     */
+    private boolean insert(int user, int friend) {
+        int[] friends = friendsOf(user);
+        int position = Arrays.binarySearch(friends, friend);
+        if (position >= 0) {
+            return false;
+        }
+        position = -position - 1;
+        int[] updated = new int[friends.length + 1];
+        System.arraycopy(friends, 0, updated, 0, position);
+        updated[position] = friend;
+        System.arraycopy(friends, position, updated, position + 1, friends.length - position);
+        adjacency[user] = updated;
+        return true;
+    }
+
+    private static int[] sortedDistinct(int[] values, int self) {
+        Arrays.sort(values);
+        int length = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != self && (length == 0 || values[length - 1] != values[i])) {
+                values[length++] = values[i];
+            }
+        }
+        return length == values.length ? values : Arrays.copyOf(values, length);
+    }
+
+    /**
+     * Open-addressing map from int keys to counts, so counting candidates does not box them.
+     */
+    private static final class IntCounter {
+
+        private static final int EMPTY = -1;
+
+        private int[] keys;
+        private int[] counts;
+        private int size;
+
+        IntCounter(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+            keys = new int[capacity];
+            counts = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        void increment(int key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                if (++size * 2 > keys.length) {
+                    counts[slot] = 1;
+                    grow();
+                    return;
+                }
+            }
+            counts[slot]++;
+        }
+
+        void forEach(IntIntConsumer consumer) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != EMPTY) {
+                    consumer.accept(keys[slot], counts[slot]);
+                }
+            }
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldCounts = counts;
+            keys = new int[oldKeys.length * 2];
+            counts = new int[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = mix(oldKeys[i]) & mask;
+                    while (keys[slot] != EMPTY) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private static int mix(int key) {
+            int h = key * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Collects the friend lists of a rebuild one user at a time, as they are streamed.
+     * <p>
+     * Ids are interned on arrival and the friends are appended to one flat {@code int[]},
+     * so a rebuild never holds the friend lists themselves. A loader is used by a single
+     * thread and handed to {@link #load} once.
+     */
+    static final class Loader {
+
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private String[] userIds = new String[1024];
+        private int size;
+        private int[] friends = new int[4096];
+        private int[] owners = new int[1024];
+        private int[] ends = new int[1024];
+        private int lists;
+
+        /**
+         * Adds the friend list of one user.
+         *
+         * @param userId    The unique Id of the user.
+         * @param friendIds The friend ids stored on the user, possibly one-sided or repeated.
+         */
+        void add(String userId, List<String> friendIds) {
+            int user = intern(userId);
+            int end = lists == 0 ? 0 : ends[lists - 1];
+            if (end + friendIds.size() > friends.length) {
+                friends = Arrays.copyOf(friends, Math.max(friends.length * 2, end + friendIds.size()));
+            }
+            for (String friendId : friendIds) {
+                friends[end++] = intern(friendId);
+            }
+            if (lists == owners.length) {
+                owners = Arrays.copyOf(owners, lists * 2);
+                ends = Arrays.copyOf(ends, lists * 2);
+            }
+            owners[lists] = user;
+            ends[lists++] = end;
+        }
+
+        private int intern(String userId) {
+            Integer existing = indexes.get(userId);
+            if (existing != null) {
+                return existing;
+            }
+            if (size == userIds.length) {
+                userIds = Arrays.copyOf(userIds, size * 2);
+            }
+            userIds[size] = userId;
+            indexes.put(userId, size);
+            return size++;
+        }
+    }
+
+    @FunctionalInterface
+    private interface IntIntConsumer {
+        void accept(int key, int value);
+    }
+}
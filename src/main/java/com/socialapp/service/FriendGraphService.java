@@ -0,0 +1,118 @@
+package com.socialapp.service;
+
+import com.socialapp.dto.FriendSuggestion;
+import com.socialapp.model.User;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Service class that answers friendship queries from an in-memory {@link FriendGraph}.
+ * <p>
+ * The graph is built from the {@code friends} arrays of the "users" collection on
+ * startup and kept up to date by {@link UserService} as friend requests are accepted,
+ * so checking a friendship, counting mutual friends or suggesting friends does not
+ * load any user document.
+ * <p>
+ * The graph only sees friendships accepted through this node, so it is only correct
+ * on a single node; see {@link UnreadCounterService}.
+ */
+@Service
+@DependsOn("indexVerifier")
+public class FriendGraphService {
+
+    private static final Logger log = LoggerFactory.getLogger(FriendGraphService.class);
+    private static final int BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final FriendGraph graph = new FriendGraph();
+    private final int defaultSuggestions;
+    private final int maxSuggestions;
+    private final int scanLimit;
+
+    public FriendGraphService(MongoTemplate mongoTemplate,
+                              @Value("${socialapp.friends.suggestions:10}") int defaultSuggestions,
+                              @Value("${socialapp.friends.max-suggestions:100}") int maxSuggestions,
+                              @Value("${socialapp.friends.suggestion-scan-limit:100000}") int scanLimit) {
+        this.mongoTemplate = mongoTemplate;
+        this.defaultSuggestions = defaultSuggestions;
+        this.maxSuggestions = maxSuggestions;
+        this.scanLimit = scanLimit;
+    }
+
+    /**
+     * Loads the friend lists of every user with a cursor, reading only the {@code friends} field.
+     * <p>
+     * Each list is interned into the graph's {@code int} form as it is read, so the
+     * rebuild never holds every user's friend ids as strings at once.
+     * <p>
+     * It runs before the web server accepts requests, so no accepted friendship can be missed.
+     */
+    @PostConstruct
+    public void rebuild() {
+        Query query = new Query().cursorBatchSize(BATCH_SIZE);
+        query.fields().include("friends");
+        FriendGraph.Loader loader = new FriendGraph.Loader();
+        try (Stream<Document> users = mongoTemplate.stream(query, Document.class, mongoTemplate.getCollectionName(User.class))) {
+            users.forEach(user -> loader.add(user.get("_id").toString(), user.getList("friends", String.class, List.of())));
+        }
+        graph.load(loader);
+        log.info("Loaded friend graph with {} users and {} friendships", graph.userCount(), graph.friendshipCount());
+    }
+
+    /**
+     * Records a new friendship in the graph. Recording an existing friendship has no effect.
+     *
+     * @param userId   The unique Id of one user.
+     * @param friendId The unique Id of the other user.
+     */
+    public void addFriendship(String userId, String friendId) {
+        graph.addFriendship(userId, friendId);
+    }
+
+    /**
+     * Checks whether two users are friends.
+     *
+     * @param userId  The unique Id of one user.
+     * @param otherId The unique Id of the other user.
+     * @return {@code true} if they are friends.
+     */
+    public boolean areFriends(String userId, String otherId) {
+        return graph.areFriends(userId, otherId);
+    }
+
+    /**
+     * Counts the friends two users have in common.
+     *
+     * @param userId  The unique Id of one user.
+     * @param otherId The unique Id of the other user.
+     * @return The number of mutual friends.
+     */
+    public int countMutualFriends(String userId, String otherId) {
+        return graph.countMutualFriends(userId, otherId);
+    }
+
+    /**
+     * Suggests friends of a user's friends, ranked by the number of mutual friends.
+     * <p>
+     * At most {@code socialapp.friends.suggestion-scan-limit} friend-of-friend edges
+     * are visited, which bounds the latency for users with very large networks.
+     *
+     * @param userId The unique Id of the user.
+     * @param limit  The requested number of suggestions, or {@code null} for the configured default.
+     * @return The suggested users, best first.
+     */
+    public List<FriendSuggestion> suggestFriends(String userId, Integer limit) {
+        int size = limit == null ? defaultSuggestions : Math.min(Math.max(limit, 1), maxSuggestions);
+        return graph.suggest(userId, size, scanLimit);
+    }
+}
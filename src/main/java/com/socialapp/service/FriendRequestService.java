@@ -2,52 +2,207 @@ package com.socialapp.service;
 
 import com.socialapp.model.FriendRequest;
 import com.socialapp.repository.FriendRequestRepository;
-import com.socialapp.repository.PostRepository;
+import com.socialapp.util.PairKey;
+import com.socialapp.util.TokenBucketLimiter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDateTime;
+import java.util.function.Supplier;
 
 /**
  * Service class for handling friend request-related business logic.
  * It manages the lifecycle of a friend request, including its creation,
  * acceptance, and rejection.
+ * <p>
+ * A request only leaves {@code PENDING} through a conditional update, so when an
+ * accept and a reject race exactly one of them wins. When
+ * {@code socialapp.mongodb.transactions.enabled=true} the status change and the
+ * friend list updates are committed together, and a transaction that conflicts with
+ * another one is retried up to {@value #TRANSACTION_ATTEMPTS} times, so the losing side
+ * of a race gets a clean {@code 409 CONFLICT}. Otherwise a retried accept repairs
+ * the friend lists, which are only ever added to with {@code $addToSet}.
+ * <p>
+ * Sending is limited per sender by an in-memory token bucket of
+ * {@code socialapp.friend-requests.burst} requests refilled at
+ * {@code socialapp.friend-requests.per-minute}, so floods are turned away before
+ * they reach MongoDB.
  */
 @Service
 public class FriendRequestService {
+    private static final int TRANSACTION_ATTEMPTS = 10;
+
     private final FriendRequestRepository friendRequestRepository;
+    private final UserService userService;
+    private final FriendGraphService friendGraphService;
+    private final MongoTemplate mongoTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TokenBucketLimiter sendLimiter;
 
-    public FriendRequestService(PostRepository postRepository, FriendRequestRepository friendRequestRepository) {
+    public FriendRequestService(FriendRequestRepository friendRequestRepository, UserService userService,
+                                FriendGraphService friendGraphService, MongoTemplate mongoTemplate,
+                                ObjectProvider<MongoTransactionManager> transactionManager,
+                                @Value("${socialapp.friend-requests.burst:20}") int burst,
+                                @Value("${socialapp.friend-requests.per-minute:10}") double perMinute) {
         this.friendRequestRepository = friendRequestRepository;
+        this.userService = userService;
+        this.friendGraphService = friendGraphService;
+        this.mongoTemplate = mongoTemplate;
+        MongoTransactionManager manager = transactionManager.getIfAvailable();
+        this.transactionTemplate = manager == null ? null : new TransactionTemplate(manager);
+        this.sendLimiter = new TokenBucketLimiter(burst, perMinute / 60);
     }
 
     /**
      * Creates and sends a new friend request from one user to another.
      * <p>
-     * It sets the initial status to PENDING and records the creation time.
+     * It sets the initial status to PENDING and records the creation time. The request
+     * is upserted on the pair of users, so if one is already pending between them, in
+     * either direction, that request is returned and nothing is written.
      *
      * @param senderId   The unique Id of the user sending the request.
      * @param receiverId The unique Id of the user receiving the request.
-     * @return The newly created {@link FriendRequest} object.
+     * @return The pending {@link FriendRequest} between the two users.
      * @throws IllegalArgumentException if a user attempts to send a request to themselves.
+     * @throws ResponseStatusException with status 429 if the sender is over their rate,
+     * or 409 if the users are already friends.
      */
     public FriendRequest sendFriendRequest(String senderId, String receiverId) {
-        FriendRequest request = new FriendRequest();
-        request.setSenderId(senderId);
-        request.setReceiverId(receiverId);
-        request.setCreatedAt(LocalDateTime.now());
-        return friendRequestRepository.save(request);
+        if (senderId.equals(receiverId)) {
+            throw new IllegalArgumentException("Cannot send a friend request to yourself.");
+        }
+        if (!sendLimiter.tryAcquire(senderId)) {
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many friend requests, try again later.");
+        }
+        if (friendGraphService.areFriends(senderId, receiverId)) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Users are already friends.");
+        }
+        // The equality conditions are copied into an inserted document, setting its pairKey and status.
+        Query pending = new Query(Criteria.where("pairKey").is(PairKey.of(senderId, receiverId))
+                .and("status").is(FriendRequest.Status.PENDING));
+        Update request = new Update().setOnInsert("senderId", senderId)
+                .setOnInsert("receiverId", receiverId)
+                .setOnInsert("createdAt", LocalDateTime.now());
+        try {
+            return mongoTemplate.findAndModify(pending, request,
+                    FindAndModifyOptions.options().upsert(true).returnNew(true), FriendRequest.class);
+        } catch (DuplicateKeyException e) {
+            // A concurrent send for the same pair inserted first; its request is the pending one.
+            return mongoTemplate.findOne(pending, FriendRequest.class);
+        }
+    }
+
+    /**
+     * Accepts a friend request and makes its sender and receiver friends.
+     * <p>
+     * Accepting a request that is already accepted succeeds again, and re-applies the
+     * friend list updates in case a previous attempt stopped half-way.
+     *
+     * @param requestId The unique identifier of the friend request to be accepted.
+     * @return The accepted {@link FriendRequest}.
+     * @throws RuntimeException if no friend request with the given ID is found.
+     * @throws ResponseStatusException with status 409 if the request was rejected.
+     */
+    public FriendRequest acceptFriendRequest(String requestId) {
+        return inTransaction(() -> {
+            FriendRequest request = transition(requestId, FriendRequest.Status.ACCEPTED);
+            userService.acceptFriendRequest(request.getReceiverId(), request.getSenderId());
+            return request;
+        });
+    }
+
+    /**
+     * Accepts the pending request between two users, if any, and makes them friends.
+     *
+     * @param receiverId The unique Id of the user accepting the request.
+     * @param senderId   The unique Id of the user who sent it.
+     * @throws RuntimeException if either user is not found or if the users are the same.
+     */
+    public void acceptFriendRequest(String receiverId, String senderId) {
+        inTransaction(() -> {
+            // Requests sent before pairKey existed are matched on their sender and receiver.
+            Criteria pair = new Criteria().orOperator(
+                    Criteria.where("pairKey").is(PairKey.of(senderId, receiverId)),
+                    Criteria.where("senderId").is(senderId).and("receiverId").is(receiverId));
+            mongoTemplate.updateMulti(new Query(pair.and("status").is(FriendRequest.Status.PENDING)),
+                    new Update().set("status", FriendRequest.Status.ACCEPTED), FriendRequest.class);
+            userService.acceptFriendRequest(receiverId, senderId);
+            return null;
+        });
     }
 
     /**
      * Rejects a friend request by updating its status to REJECTED.
+     * <p>
+     * Rejecting a request that is already rejected has no effect.
      *
      * @param requestId The unique identifier of the friend request to be rejected.
      * @throws RuntimeException if no friend request with the given ID is found.
+     * @throws ResponseStatusException with status 409 if the request was accepted.
      */
     public void rejectFriendRequest(String requestId) {
-        FriendRequest request = friendRequestRepository.findById(requestId)
+        transition(requestId, FriendRequest.Status.REJECTED);
+    }
+
+    /**
+     * Moves a pending request to the given status with one conditional update.
+     *
+     * @return The request after the transition.
+     */
+    private FriendRequest transition(String requestId, FriendRequest.Status status) {
+        FriendRequest request = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(requestId).and("status").is(FriendRequest.Status.PENDING)),
+                new Update().set("status", status),
+                FindAndModifyOptions.options().returnNew(true),
+                FriendRequest.class);
+        if (request != null) {
+            return request;
+        }
+        FriendRequest existing = friendRequestRepository.findById(requestId)
                 .orElseThrow(() -> new RuntimeException("Friend Request Not Found"));
-        request.setStatus(FriendRequest.Status.REJECTED);
-        friendRequestRepository.save(request);
+        if (existing.getStatus() != status) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "Friend request is already " + existing.getStatus().name().toLowerCase());
+        }
+        return existing;
+    }
+
+    /**
+     * Drops the rate limiter state of senders who have not sent requests for a while.
+     */
+    @Scheduled(fixedDelayString = "${socialapp.friend-requests.limiter-cleanup-interval:PT10M}")
+    public void evictIdleSenders() {
+        sendLimiter.evictIdle();
+    }
+
+    /**
+     * Runs an action in a transaction when they are enabled, retrying it while it conflicts with another one.
+     */
+    private <T> T inTransaction(Supplier<T> action) {
+        if (transactionTemplate == null) {
+            return action.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (TransientDataAccessException e) {
+                if (attempt == TRANSACTION_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
     }
 }
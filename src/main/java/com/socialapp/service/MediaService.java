@@ -0,0 +1,234 @@
+package com.socialapp.service;
+
+import com.socialapp.model.Media;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLConnection;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Service class for storing and locating binary media such as photos.
+ * <p>
+ * Files are stored on disk under {@code socialapp.media.root}, named after the
+ * SHA-256 hash of their content, so identical uploads are stored once. Their metadata
+ * is kept in the "media" collection.
+ */
+@Service
+public class MediaService {
+
+    /**
+     * The number of leading bytes {@link #detectImageType} needs to recognise an image.
+     */
+    public static final int IMAGE_HEADER_LENGTH = 12;
+
+    private static final Pattern MEDIA_ID = Pattern.compile("[0-9a-f]{64}");
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+    private static final byte[] JPEG = {(byte) 0xFF, (byte) 0xD8, (byte) 0xFF};
+    private static final byte[] PNG = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final byte[] GIF87A = {'G', 'I', 'F', '8', '7', 'a'};
+    private static final byte[] GIF89A = {'G', 'I', 'F', '8', '9', 'a'};
+    private static final byte[] RIFF = {'R', 'I', 'F', 'F'};
+    private static final byte[] WEBP = {'W', 'E', 'B', 'P'};
+
+    private final MongoTemplate mongoTemplate;
+    private final Path root;
+
+    public MediaService(MongoTemplate mongoTemplate, @Value("${socialapp.media.root:media}") String root) {
+        this.mongoTemplate = mongoTemplate;
+        this.root = Paths.get(root).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Stores a binary and records its metadata, reusing the existing file if the same content was stored before.
+     * <p>
+     * The content is hashed while it is copied to a temporary file, which is then
+     * moved to its content-addressed location.
+     *
+     * @param content     The content to store. It is read fully and closed.
+     * @param contentType The MIME type of the content, or {@code null} to detect it.
+     * @return The {@link Media} describing the stored content.
+     */
+    public Media store(InputStream content, String contentType) {
+        try {
+            Path tmpDir = Files.createDirectories(root.resolve("tmp"));
+            Path tmp = Files.createTempFile(tmpDir, "upload", ".part");
+            try {
+                MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                long size;
+                try (DigestInputStream in = new DigestInputStream(content, digest)) {
+                    size = Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                }
+                String id = HexFormat.of().formatHex(digest.digest());
+                if (contentType == null) {
+                    contentType = detectContentType(tmp);
+                }
+                moveIntoPlace(tmp, getPath(id));
+                return saveMetadata(id, contentType, size);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not store media", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * Stores a binary that is already in memory.
+     *
+     * @see #store(InputStream, String)
+     */
+    public Media store(byte[] content, String contentType) {
+        return store(new ByteArrayInputStream(content), contentType);
+    }
+
+    /**
+     * Recognises the raster image formats that may be uploaded from their magic bytes.
+     * <p>
+     * The type declared by a client is not trusted: an SVG or HTML document served from
+     * this origin could run scripts in the browsers of the users who view it.
+     *
+     * @param header The first {@link #IMAGE_HEADER_LENGTH} bytes of the content, or fewer if it is shorter.
+     * @return {@code image/jpeg}, {@code image/png}, {@code image/gif} or {@code image/webp},
+     * or {@code null} if the content is none of them.
+     */
+    public static String detectImageType(byte[] header) {
+        if (startsWith(header, 0, JPEG)) {
+            return "image/jpeg";
+        }
+        if (startsWith(header, 0, PNG)) {
+            return "image/png";
+        }
+        if (startsWith(header, 0, GIF87A) || startsWith(header, 0, GIF89A)) {
+            return "image/gif";
+        }
+        if (startsWith(header, 0, RIFF) && startsWith(header, 8, WEBP)) {
+            return "image/webp";
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves the metadata of a stored binary.
+     *
+     * @param id The id of the media.
+     * @return The found {@link Media}.
+     * @throws ResponseStatusException with status 404 if the media does not exist.
+     */
+    public Media getMedia(String id) {
+        Media media = MEDIA_ID.matcher(id).matches() ? mongoTemplate.findById(id, Media.class) : null;
+        if (media == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Media not found: " + id);
+        }
+        return media;
+    }
+
+    /**
+     * Picks the requested variant of an image, falling back to the original while it is not available.
+     *
+     * @param media   The original media.
+     * @param variant The name of the requested {@link Media.Variant}, or {@code null} for the original.
+     * @return The media to serve.
+     */
+    public Media resolveVariant(Media media, String variant) {
+        if (variant == null) {
+            return media;
+        }
+        String variantId = media.getVariants().get(variant.toLowerCase(Locale.ROOT));
+        return variantId == null ? media : getMedia(variantId);
+    }
+
+    /**
+     * Records the generated variants of an image.
+     *
+     * @param id       The id of the original media.
+     * @param variants The ids of the variants, keyed by {@link Media.Variant} key.
+     */
+    public void saveVariants(String id, Map<String, String> variants) {
+        Update update = new Update();
+        variants.forEach((variant, variantId) -> update.set("variants." + variant, variantId));
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(id)), update, Media.class);
+    }
+
+    /**
+     * Resolves the file that holds a stored binary, fanned out over two directory levels.
+     *
+     * @param id The id of the media, which must be a SHA-256 hex string.
+     * @return The path of the file.
+     */
+    public Path getPath(String id) {
+        if (!MEDIA_ID.matcher(id).matches()) {
+            throw new IllegalArgumentException("Invalid media id: " + id);
+        }
+        return root.resolve(id.substring(0, 2)).resolve(id.substring(2, 4)).resolve(id);
+    }
+
+    private void moveIntoPlace(Path tmp, Path target) throws IOException {
+        if (Files.exists(target)) {
+            return;
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // Another upload of the same content won the race; its file is identical.
+        }
+    }
+
+    /**
+     * Records the metadata of stored content, keeping the existing document (and its variants) on a repeat upload.
+     */
+    private Media saveMetadata(String id, String contentType, long size) {
+        return mongoTemplate.findAndModify(new Query(Criteria.where("_id").is(id)),
+                new Update().setOnInsert("contentType", contentType)
+                        .setOnInsert("size", size)
+                        .setOnInsert("createdAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Media.class);
+    }
+
+    private static boolean startsWith(byte[] content, int offset, byte[] magic) {
+        if (content.length < offset + magic.length) {
+            return false;
+        }
+        for (int i = 0; i < magic.length; i++) {
+            if (content[offset + i] != magic[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String detectContentType(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            String detected = URLConnection.guessContentTypeFromStream(new BufferedInputStream(in));
+            return detected == null ? DEFAULT_CONTENT_TYPE : detected;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.socialapp.service;
+
+import com.socialapp.model.Message;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Service;
+
+/**
+ * Service class that pushes new messages to the live WebSocket sessions of their receiver.
+ * <p>
+ * The broker's {@link SimpUserRegistry} maps each user id to their open sessions.
+ * Receivers without a session are skipped; they find the message in the store the
+ * next time they fetch their conversations.
+ */
+@Service
+public class MessageDeliveryService {
+
+    /**
+     * The destination clients subscribe to, as {@code /user/queue/messages}.
+     */
+    public static final String MESSAGES_DESTINATION = "/queue/messages";
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final SimpUserRegistry userRegistry;
+
+    public MessageDeliveryService(SimpMessagingTemplate messagingTemplate, SimpUserRegistry userRegistry) {
+        this.messagingTemplate = messagingTemplate;
+        this.userRegistry = userRegistry;
+    }
+
+    /**
+     * Pushes a message to every live session of its receiver.
+     *
+     * @param message The saved {@link Message}.
+     * @return {@code true} if the receiver had at least one live session.
+     */
+    public boolean deliver(Message message) {
+        if (!isOnline(message.getReceiverId())) {
+            return false;
+        }
+        messagingTemplate.convertAndSendToUser(message.getReceiverId(), MESSAGES_DESTINATION, message);
+        return true;
+    }
+
+    /**
+     * Checks whether a user has at least one open WebSocket session on this node.
+     *
+     * @param userId The unique Id of the user.
+     * @return {@code true} if the user is connected.
+     */
+    public boolean isOnline(String userId) {
+        return userRegistry.getUser(userId) != null;
+    }
+}
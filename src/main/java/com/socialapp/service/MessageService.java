@@ -1,10 +1,23 @@
 package com.socialapp.service;
 
+import com.mongodb.client.result.UpdateResult;
+import com.socialapp.dto.CursorPage;
 import com.socialapp.model.Message;
+import com.socialapp.model.ReadWatermark;
 import com.socialapp.repository.MessageRepository;
+import com.socialapp.util.KeysetCursor;
+import com.socialapp.util.PairKey;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 /**
@@ -15,34 +28,193 @@ import java.util.List;
 @Service
 public class MessageService {
     private final MessageRepository messageRepository;
+    private final MessageDeliveryService messageDeliveryService;
+    private final UnreadCounterService unreadCounterService;
+    private final MongoTemplate mongoTemplate;
+    private final MessageWriteBehind writeBehind;
+    private final PageSizes pageSizes;
 
-    public MessageService(MessageRepository messageRepository) {
+    public MessageService(MessageRepository messageRepository, MessageDeliveryService messageDeliveryService,
+                          UnreadCounterService unreadCounterService, MongoTemplate mongoTemplate,
+                          ObjectProvider<MessageWriteBehind> writeBehind, PageSizes pageSizes) {
         this.messageRepository = messageRepository;
+        this.messageDeliveryService = messageDeliveryService;
+        this.unreadCounterService = unreadCounterService;
+        this.mongoTemplate = mongoTemplate;
+        this.writeBehind = writeBehind.getIfAvailable();
+        this.pageSizes = pageSizes;
     }
 
     /**
-     * Saves a new message to the database and sets its creation timestamp.
+     * Saves a new message to the database, sets its creation timestamp and pushes it
+     * to the receiver's live WebSocket sessions.
+     * <p>
+     * The store remains the source of truth, so receivers who are offline get the
+     * message the next time they fetch their conversations.
+     * <p>
+     * When the {@link MessageWriteBehind write-behind pipeline} is enabled, the message
+     * is journaled and written in a later batch, so it may take up to
+     * {@code socialapp.messages.write-behind.max-delay} to show up in queries. Marking it
+     * as read waits for it to be written.
      *
      * @param message The {@link Message} object to be sent. It should contain the senderId,
      * receiverId, and content.
-     * @return The saved {@link Message} entity with the server-set timestamp.
+     * @return The saved {@link Message} entity with the server-set id and timestamp.
      */
     public Message sendMessage(Message message) {
-        message.setTimestamp(LocalDateTime.now());
-        return messageRepository.save(message);
+        // Assigned here rather than by MongoDB, so a journaled message keeps its id when replayed.
+        message.setId(new ObjectId().toHexString());
+        message.setConversationId(PairKey.of(message.getSenderId(), message.getReceiverId()));
+        // MongoDB keeps millisecond precision, so cursors compare the stored value.
+        message.setTimestamp(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+        message.setIsRead(false);
+        if (writeBehind != null) {
+            writeBehind.enqueue(message);
+        } else {
+            messageRepository.insert(message);
+        }
+        unreadCounterService.increment(message);
+        messageDeliveryService.deliver(message);
+        return message;
     }
 
     /**
      * Marks a specific message as read.
+     * <p>
+     * This is a single conditional update; the message is not loaded first. The reader's
+     * watermark is then moved up to the message, unless an older message they received
+     * in the conversation is still unread, so the message also leaves
+     * {@link #getUnreadMessages(String, String, String, Integer)}.
      *
      * @param messageId The unique Id of the message to be marked as read.
      * @throws RuntimeException if no message with the given messageId exists.
      */
     public void markAsRead(String messageId){
-        Message message = messageRepository.findById(messageId)
-                .orElseThrow(() -> new RuntimeException("Message not found"));
-        message.setIsRead(true);
-        messageRepository.save(message);
+        if (writeBehind != null) {
+            writeBehind.awaitWritten(messageId);
+        }
+        Query unread = new Query(Criteria.where("_id").is(messageId).and("isRead").is(false));
+        unread.fields().include("receiverId", "conversationId", "timestamp");
+        // Returns the message as it was before the update, i.e. only if it was still unread.
+        Message message = mongoTemplate.findAndModify(unread, new Update().set("isRead", true), Message.class);
+        if (message != null) {
+            unreadCounterService.decrement(message.getReceiverId(), message.getConversationId(), 1);
+            boolean olderUnread = mongoTemplate.exists(new Query(Criteria.where("conversationId").is(message.getConversationId())
+                    .and("receiverId").is(message.getReceiverId())
+                    .and("isRead").is(false)
+                    .and("timestamp").lte(message.getTimestamp())), Message.class);
+            if (!olderUnread) {
+                advanceWatermark(message.getConversationId(), message.getReceiverId(), message.getTimestamp());
+            }
+        } else if (!messageRepository.existsById(messageId)) {
+            throw new RuntimeException("Message not found");
+        }
+    }
+
+    /**
+     * Marks every message a user received in a conversation, up to a point in time, as read.
+     * <p>
+     * The point in time is capped at the newest stored message the reader received, so the
+     * watermark never passes messages that are not stored yet. The reader's watermark for the
+     * conversation is moved forward (it never moves back), then all matching unread messages
+     * are flagged with one multi-document update.
+     *
+     * @param conversationId The identifier of the conversation.
+     * @param readerId       The unique Id of the user who read the conversation.
+     * @param upTo           The timestamp of the latest message read, or {@code null} for the newest one.
+     * @return The number of messages that were marked as read.
+     */
+    public long markConversationAsRead(String conversationId, String readerId, LocalDateTime upTo) {
+        if (writeBehind != null) {
+            // Otherwise buffered messages would be stored below the watermark and stay unread.
+            writeBehind.awaitWritten();
+        }
+        Query newest = new Query(Criteria.where("conversationId").is(conversationId).and("receiverId").is(readerId))
+                .with(Sort.by(Sort.Direction.DESC, "timestamp")).limit(1);
+        newest.fields().include("timestamp");
+        Message latest = mongoTemplate.findOne(newest, Message.class);
+        if (latest == null) {
+            return 0;
+        }
+        LocalDateTime readUpTo = upTo == null || upTo.isAfter(latest.getTimestamp()) ? latest.getTimestamp() : upTo;
+        advanceWatermark(conversationId, readerId, readUpTo);
+        UpdateResult result = mongoTemplate.updateMulti(new Query(Criteria.where("conversationId").is(conversationId)
+                        .and("receiverId").is(readerId)
+                        .and("isRead").is(false)
+                        .and("timestamp").lte(readUpTo)),
+                new Update().set("isRead", true), Message.class);
+        unreadCounterService.decrement(readerId, conversationId, result.getModifiedCount());
+        return result.getModifiedCount();
+    }
+
+    /**
+     * Marks every message a user received in a conversation, up to a given message, as read.
+     *
+     * @param conversationId The identifier of the conversation.
+     * @param readerId       The unique Id of the user who read the conversation.
+     * @param messageId      The unique Id of the latest message read.
+     * @return The number of messages that were marked as read.
+     * @throws RuntimeException if no message with the given messageId exists in the conversation.
+     */
+    public long markConversationAsRead(String conversationId, String readerId, String messageId) {
+        if (writeBehind != null) {
+            writeBehind.awaitWritten(messageId);
+        }
+        Query query = new Query(Criteria.where("_id").is(messageId).and("conversationId").is(conversationId));
+        query.fields().include("timestamp");
+        Message message = mongoTemplate.findOne(query, Message.class);
+        if (message == null) {
+            throw new RuntimeException("Message not found");
+        }
+        return markConversationAsRead(conversationId, readerId, message.getTimestamp());
+    }
+
+    /**
+     * Moves the read watermark of a reader forward; it never moves back.
+     */
+    private void advanceWatermark(String conversationId, String readerId, LocalDateTime readUpTo) {
+        mongoTemplate.upsert(new Query(Criteria.where("_id").is(ReadWatermark.idOf(conversationId, readerId))),
+                new Update().setOnInsert("conversationId", conversationId)
+                        .setOnInsert("readerId", readerId)
+                        .max("readUpTo", readUpTo),
+                ReadWatermark.class);
+    }
+
+    /**
+     * Retrieves one page of the messages of a conversation that a user has not read yet, oldest first.
+     * <p>
+     * They are the unread messages the user received after their read watermark, which
+     * narrows the scan to the tail of the (conversationId, timestamp) index. Messages
+     * marked read on their own, while an older one is still unread, are left out even
+     * though the watermark has not reached them.
+     *
+     * @param conversationId The identifier of the conversation.
+     * @param readerId       The unique Id of the reader.
+     * @param after          The cursor returned with the previous page, or {@code null} for the oldest unread messages.
+     * @param limit          The requested page size, or {@code null} for the configured default.
+     * @return A {@link CursorPage} of the unread messages and the cursor of the next, newer page.
+     */
+    public CursorPage<Message> getUnreadMessages(String conversationId, String readerId, String after, Integer limit) {
+        int size = pageSizes.clamp(limit);
+        ReadWatermark watermark = mongoTemplate.findById(ReadWatermark.idOf(conversationId, readerId), ReadWatermark.class);
+        Criteria criteria = Criteria.where("conversationId").is(conversationId)
+                .and("receiverId").is(readerId)
+                .and("isRead").is(false);
+        if (watermark != null) {
+            criteria = criteria.and("timestamp").gt(watermark.getReadUpTo());
+        }
+        KeysetCursor cursor = KeysetCursor.decode(after);
+        if (cursor != null) {
+            criteria = new Criteria().andOperator(criteria, cursor.afterAscending("timestamp"));
+        }
+        Query query = new Query(criteria).with(KeysetCursor.sortAscending("timestamp")).limit(size + 1);
+        List<Message> messages = mongoTemplate.find(query, Message.class);
+        if (messages.size() <= size) {
+            return new CursorPage<>(messages, null);
+        }
+        List<Message> page = messages.subList(0, size);
+        Message last = page.get(size - 1);
+        return new CursorPage<>(page, new KeysetCursor(last.getTimestamp(), last.getId()).encode());
     }
 
     /**
@@ -56,8 +228,38 @@ public class MessageService {
         return messageRepository.findBySenderIdAndReceiverId(senderId, receiverId);
     }
 
+    /**
+     * Retrieves one page of a conversation, newest first, covering both directions of the chat.
+     * <p>
+     * The page is read through the (conversationId, timestamp, _id) index.
+     *
+     * @param conversationId The identifier of the conversation.
+     * @param before         The cursor returned with the previous page, or {@code null} for the latest messages.
+     * @param limit          The requested page size, or {@code null} for the configured default.
+     * @return A {@link CursorPage} of messages and the cursor of the next, older page.
+     */
+    public CursorPage<Message> getConversation(String conversationId, String before, Integer limit) {
+        int size = pageSizes.clamp(limit);
+        Criteria criteria = Criteria.where("conversationId").is(conversationId);
+        KeysetCursor cursor = KeysetCursor.decode(before);
+        if (cursor != null) {
+            criteria = new Criteria().andOperator(criteria, cursor.after("timestamp"));
+        }
+        Query query = new Query(criteria).with(KeysetCursor.sort("timestamp")).limit(size + 1);
+        List<Message> messages = mongoTemplate.find(query, Message.class);
+        if (messages.size() <= size) {
+            return new CursorPage<>(messages, null);
+        }
+        List<Message> page = messages.subList(0, size);
+        Message last = page.get(size - 1);
+        return new CursorPage<>(page, new KeysetCursor(last.getTimestamp(), last.getId()).encode());
+    }
+
     /**
      * Retrieves all unread messages for a specific user.
+     * <p>
+     * The read flags are kept in step with the read watermarks by
+     * {@link #markConversationAsRead(String, String, LocalDateTime)}.
      *
      * @param receiverId The unique Id of the user whose unread messages are to be fetched.
      * @return A {@link List} of unread {@link Message} objects for the specified user.
@@ -0,0 +1,524 @@
+package com.socialapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import com.socialapp.model.Message;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Write-behind pipeline for new messages, used by {@link MessageService} when
+ * {@code socialapp.messages.write-behind.enabled=true}.
+ * <p>
+ * A message is acknowledged once it is appended to a local journal and placed in a
+ * bounded in-memory buffer. A single drainer thread takes messages from the buffer and
+ * inserts them in bulk, flushing when {@code max-batch-size} messages are waiting or
+ * when the oldest has waited {@code max-delay}.
+ * <p>
+ * The journal is a series of segment files, {@code <journal>.<n>}, each holding up to
+ * {@code segment-size} messages. Messages are written in the order they were journaled,
+ * so a full segment is deleted as soon as its last message is written, and the journal
+ * stays bounded even when the buffer is never empty.
+ * <p>
+ * With {@code journal-sync=ALWAYS}, senders append under the journal lock and then
+ * wait for a sync outside it: the first waiter forces the journal once for every line
+ * appended so far, and the senders queued behind it return without forcing again. A
+ * burst of sends thus shares one {@code fsync} per disk flush rather than one each.
+ * <p>
+ * The journal is replayed into MongoDB on startup, so messages acknowledged before a
+ * crash are not lost. Replayed messages keep their ids and duplicates are ignored, so
+ * a message that was already written is not stored twice; those that were not are
+ * counted by {@link UnreadCounterService}, whose rebuild only saw the stored ones. When the buffer stays full
+ * for {@code offer-timeout}, senders are rejected with {@code 503 SERVICE_UNAVAILABLE}.
+ * <p>
+ * A message is delivered to its receiver as soon as it is acknowledged, so it can be
+ * read before it is written. {@link #awaitWritten(String)} and {@link #awaitWritten()}
+ * let readers wait for the messages still buffered, for up to {@code flush-timeout}.
+ */
+@Component
+@DependsOn("indexVerifier")
+@ConditionalOnProperty(name = "socialapp.messages.write-behind.enabled", havingValue = "true")
+public class MessageWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(MessageWriteBehind.class);
+    private static final int DUPLICATE_KEY = 11000;
+
+    /**
+     * When the journal is forced to disk.
+     */
+    public enum JournalSync {
+        /**
+         * Before every acknowledgement; survives power loss.
+         */
+        ALWAYS,
+
+        /**
+         * Left to the operating system; survives a crash of the process only.
+         */
+        OS
+    }
+
+    /**
+     * A full journal segment, whose messages are all written once {@code end} messages have been.
+     */
+    private record Segment(Path path, long end) {
+    }
+
+    private final MongoTemplate mongoTemplate;
+    private final UnreadCounterService unreadCounterService;
+    private final ObjectMapper objectMapper;
+    private final Path journalPath;
+    private final JournalSync journalSync;
+    private final int segmentSize;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long offerTimeoutNanos;
+    private final long flushTimeoutNanos;
+    private final BlockingQueue<Message> buffer;
+    private final Semaphore slots;
+    private final ReentrantLock journalLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final ReentrantLock writtenLock = new ReentrantLock();
+    private final Condition writtenAdvanced = writtenLock.newCondition();
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+    private final Thread.Builder drainerBuilder;
+
+    private final Deque<Segment> fullSegments = new ArrayDeque<>();
+
+    private FileChannel journal;
+    private Path segmentPath;
+    private long segmentNumber;
+    private int segmentMessages;
+    // Updated under journalLock, read without it.
+    private volatile long journaled;
+    private volatile long written;
+    // Only touched under syncLock.
+    private long synced;
+    private volatile boolean running;
+    private Thread drainer;
+
+    public MessageWriteBehind(MongoTemplate mongoTemplate, UnreadCounterService unreadCounterService,
+                              ObjectMapper objectMapper, MeterRegistry meterRegistry, Environment environment,
+                              @Value("${socialapp.messages.write-behind.journal:journal/messages.jsonl}") String journal,
+                              @Value("${socialapp.messages.write-behind.journal-sync:ALWAYS}") JournalSync journalSync,
+                              @Value("${socialapp.messages.write-behind.segment-size:10000}") int segmentSize,
+                              @Value("${socialapp.messages.write-behind.capacity:10000}") int capacity,
+                              @Value("${socialapp.messages.write-behind.max-batch-size:500}") int maxBatchSize,
+                              @Value("${socialapp.messages.write-behind.max-delay:PT0.05S}") Duration maxDelay,
+                              @Value("${socialapp.messages.write-behind.offer-timeout:PT0.1S}") Duration offerTimeout,
+                              @Value("${socialapp.messages.write-behind.flush-timeout:PT5S}") Duration flushTimeout) {
+        this.mongoTemplate = mongoTemplate;
+        this.unreadCounterService = unreadCounterService;
+        this.objectMapper = objectMapper;
+        this.journalPath = Paths.get(journal).toAbsolutePath();
+        this.journalSync = journalSync;
+        this.segmentSize = segmentSize;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.flushTimeoutNanos = flushTimeout.toNanos();
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.slots = new Semaphore(capacity);
+        // The drainer mostly waits on MongoDB, so it follows spring.threads.virtual.enabled.
+        this.drainerBuilder = Threading.VIRTUAL.isActive(environment) ? Thread.ofVirtual() : Thread.ofPlatform();
+        Gauge.builder("messages.write.behind.queue.size", buffer, BlockingQueue::size)
+                .description("Acknowledged messages waiting to be written to MongoDB")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Replays the journal left by a previous run, then starts the drainer.
+     * <p>
+     * It runs before the web server accepts requests, so replayed messages are stored
+     * before any new message is acknowledged. The unread counters are built first, as
+     * this bean depends on them.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        Files.createDirectories(journalPath.getParent());
+        List<Path> segments = segments();
+        List<Path> replayed = new ArrayList<>(segments);
+        if (Files.exists(journalPath)) {
+            // Journals written before segmenting are a single file, older than any segment.
+            replayed.add(0, journalPath);
+        }
+        for (Path segment : replayed) {
+            replay(segment);
+        }
+        for (Path segment : replayed) {
+            Files.delete(segment);
+        }
+        segmentNumber = segments.isEmpty() ? 0 : segmentNumber(segments.get(segments.size() - 1)) + 1;
+        openSegment();
+        running = true;
+        drainer = drainerBuilder.name("message-write-behind").start(this::drain);
+    }
+
+    /**
+     * Journals a message and queues it for writing.
+     *
+     * @param message The message to store; its id must already be assigned.
+     * @throws ResponseStatusException with status 503 if the buffer stays full for the offer timeout.
+     */
+    public void enqueue(Message message) {
+        try {
+            if (!running || !slots.tryAcquire(offerTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many messages are waiting to be stored.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while queueing the message.");
+        }
+        byte[] line = toJournalLine(message);
+        long sequence;
+        journalLock.lock();
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(line);
+            while (bytes.hasRemaining()) {
+                journal.write(bytes);
+            }
+            sequence = ++journaled;
+            // Messages are written in the order they are journaled, so this one is stored once `written` reaches it.
+            pending.put(message.getId(), sequence);
+            // Cannot fail: a slot was reserved above and only the drainer frees one.
+            buffer.add(message);
+            if (++segmentMessages == segmentSize) {
+                if (journalSync == JournalSync.ALWAYS) {
+                    // Once per segment: the lines of a closed segment cannot be forced by a later sync.
+                    journal.force(false);
+                }
+                journal.close();
+                fullSegments.add(new Segment(segmentPath, journaled));
+                segmentNumber++;
+                openSegment();
+            }
+        } catch (IOException e) {
+            slots.release();
+            throw new UncheckedIOException("Could not journal the message", e);
+        } finally {
+            journalLock.unlock();
+        }
+        if (journalSync == JournalSync.ALWAYS) {
+            sync(sequence);
+        }
+    }
+
+    /**
+     * Returns once the journal line of the given message is on disk, forcing the journal
+     * for every line appended so far unless a concurrent sync already covered it.
+     */
+    private void sync(long sequence) {
+        syncLock.lock();
+        try {
+            if (synced >= sequence) {
+                return;
+            }
+            FileChannel channel;
+            long appended;
+            journalLock.lock();
+            try {
+                channel = journal;
+                appended = journaled;
+            } finally {
+                journalLock.unlock();
+            }
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // The segment filled up and was forced before it was closed.
+            }
+            synced = appended;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not sync the message journal", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Waits until a message acknowledged by {@link #enqueue(Message)} is written to MongoDB.
+     * Returns at once if it is not buffered.
+     *
+     * @param messageId The unique Id of the message.
+     * @throws ResponseStatusException with status 503 if it is not written within the flush timeout.
+     */
+    public void awaitWritten(String messageId) {
+        Long sequence = pending.get(messageId);
+        if (sequence != null) {
+            awaitWritten(sequence);
+        }
+    }
+
+    /**
+     * Waits until every message acknowledged so far is written to MongoDB.
+     *
+     * @throws ResponseStatusException with status 503 if they are not written within the flush timeout.
+     */
+    public void awaitWritten() {
+        awaitWritten(journaled);
+    }
+
+    private void awaitWritten(long sequence) {
+        if (written >= sequence) {
+            return;
+        }
+        writtenLock.lock();
+        try {
+            long remaining = flushTimeoutNanos;
+            while (written < sequence) {
+                if (remaining <= 0) {
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The message is not stored yet.");
+                }
+                remaining = writtenAdvanced.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for the message to be stored.");
+        } finally {
+            writtenLock.unlock();
+        }
+    }
+
+    /**
+     * Stops accepting messages, writes everything still buffered and closes the journal.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException, IOException {
+        running = false;
+        drainer.interrupt();
+        drainer.join();
+        List<Message> remaining = new ArrayList<>();
+        buffer.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            write(remaining);
+        }
+        journal.close();
+    }
+
+    private void drain() {
+        List<Message> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                Message first = buffer.poll(maxDelayNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    Message next = buffer.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                writeWithRetry(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                // Interrupted by stop(); put back what was taken so that it is written on shutdown.
+                buffer.addAll(batch);
+                return;
+            }
+        }
+    }
+
+    private void writeWithRetry(List<Message> batch) throws InterruptedException {
+        long backoffMillis = 100;
+        while (true) {
+            try {
+                write(batch);
+                return;
+            } catch (RuntimeException e) {
+                // The messages are still journaled, so keep retrying rather than dropping them.
+                log.warn("Could not write {} messages, retrying in {} ms", batch.size(), backoffMillis, e);
+                Thread.sleep(backoffMillis);
+                backoffMillis = Math.min(backoffMillis * 2, 5000);
+            }
+        }
+    }
+
+    /**
+     * Inserts a batch, frees its buffer slots and drops the journal segments that hold nothing unwritten.
+     */
+    private void write(List<Message> batch) {
+        insertIgnoringDuplicates(batch);
+        slots.release(batch.size());
+        batch.forEach(message -> pending.remove(message.getId()));
+        List<Path> obsolete = new ArrayList<>();
+        journalLock.lock();
+        try {
+            written += batch.size();
+            while (!fullSegments.isEmpty() && fullSegments.peek().end() <= written) {
+                obsolete.add(fullSegments.poll().path());
+            }
+            if (written == journaled && segmentMessages > 0) {
+                journal.truncate(0);
+                segmentMessages = 0;
+            }
+        } catch (IOException e) {
+            log.warn("Could not truncate the message journal", e);
+        } finally {
+            journalLock.unlock();
+        }
+        writtenLock.lock();
+        try {
+            writtenAdvanced.signalAll();
+        } finally {
+            writtenLock.unlock();
+        }
+        for (Path segment : obsolete) {
+            try {
+                Files.deleteIfExists(segment);
+            } catch (IOException e) {
+                log.warn("Could not delete the written journal segment {}", segment, e);
+            }
+        }
+    }
+
+    private void openSegment() throws IOException {
+        segmentPath = journalPath.resolveSibling(journalPath.getFileName() + "." + segmentNumber);
+        journal = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        journal.truncate(0);
+        segmentMessages = 0;
+    }
+
+    /**
+     * The segments left in the journal directory, oldest first.
+     */
+    private List<Path> segments() throws IOException {
+        String prefix = journalPath.getFileName() + ".";
+        try (Stream<Path> files = Files.list(journalPath.getParent())) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix))
+                    .filter(file -> file.getFileName().toString().substring(prefix.length()).matches("\\d+"))
+                    .sorted(Comparator.comparingLong(this::segmentNumber))
+                    .toList();
+        }
+    }
+
+    private long segmentNumber(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(name.lastIndexOf('.') + 1));
+    }
+
+    private void replay(Path segment) throws IOException {
+        List<Message> batch = new ArrayList<>(maxBatchSize);
+        long replayed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(objectMapper.readValue(line, Message.class));
+                } catch (IOException e) {
+                    // A torn last line from a crash mid-write was never acknowledged.
+                    log.warn("Skipping unreadable journal entry", e);
+                    continue;
+                }
+                if (batch.size() == maxBatchSize) {
+                    replayed += replay(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            replayed += replay(batch);
+        }
+        log.info("Replayed {} journaled messages from {}", replayed, segment.getFileName());
+    }
+
+    /**
+     * Stores replayed messages and counts the ones that were not stored before as unread.
+     *
+     * @return The number of messages that were not stored before.
+     */
+    private int replay(List<Message> batch) {
+        List<Message> inserted = insertIgnoringDuplicates(batch);
+        inserted.forEach(unreadCounterService::increment);
+        return inserted.size();
+    }
+
+    /**
+     * Inserts messages, ignoring those whose id is already stored.
+     *
+     * @return The messages that were inserted.
+     */
+    private List<Message> insertIgnoringDuplicates(List<Message> messages) {
+        BulkOperations inserts = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class);
+        inserts.insert(messages);
+        try {
+            inserts.execute();
+            return messages;
+        } catch (BulkOperationException e) {
+            boolean onlyDuplicates = e.getErrors().stream()
+                    .mapToInt(BulkWriteError::getCode)
+                    .allMatch(code -> code == DUPLICATE_KEY);
+            if (!onlyDuplicates) {
+                throw e;
+            }
+            Set<Integer> duplicates = new HashSet<>();
+            e.getErrors().forEach(error -> duplicates.add(error.getIndex()));
+            List<Message> inserted = new ArrayList<>(messages.size() - duplicates.size());
+            for (int i = 0; i < messages.size(); i++) {
+                if (!duplicates.contains(i)) {
+                    inserted.add(messages.get(i));
+                }
+            }
+            return inserted;
+        }
+    }
+
+    private byte[] toJournalLine(Message message) {
+        try {
+            return (objectMapper.writeValueAsString(message) + "\n").getBytes(StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not serialize the message", e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.socialapp.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * The page sizes shared by every paginated endpoint.
+ * <p>
+ * A request may ask for any page size; it gets {@code socialapp.feed.page-size} when it
+ * does not, and no more than {@code socialapp.feed.max-page-size} when it asks for more.
+ */
+@Component
+public class PageSizes {
+
+    private final int defaultSize;
+    private final int maxSize;
+
+    public PageSizes(@Value("${socialapp.feed.page-size:20}") int defaultSize,
+                     @Value("${socialapp.feed.max-page-size:100}") int maxSize) {
+        this.defaultSize = defaultSize;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Clamps a requested page size to the configured bounds.
+     *
+     * @param requested The requested page size, or {@code null} for the configured default.
+     * @return The number of items to return, between 1 and the maximum page size.
+     */
+    public int clamp(Integer requested) {
+        if (requested == null) {
+            return defaultSize;
+        }
+        return Math.min(Math.max(requested, 1), maxSize);
+    }
+
+    /**
+     * The largest page any endpoint returns.
+     */
+    public int max() {
+        return maxSize;
+    }
+}
@@ -0,0 +1,134 @@
+package com.socialapp.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Service class that hashes and checks passwords away from the request threads.
+ * <p>
+ * Password hashes are deliberately slow, so they run on a fixed pool of
+ * {@code socialapp.passwords.workers} threads fed by a queue of
+ * {@code socialapp.passwords.queue-capacity} tasks. Callers get a future and, when the
+ * controller returns it, the request thread is released while the hash runs. When the
+ * queue is full, new work is rejected with {@code 503 SERVICE_UNAVAILABLE} right away:
+ * a signup spike then costs at most the pool's CPUs and never the threads serving
+ * other requests.
+ * <p>
+ * It publishes the hashing latency ({@code passwords.hash.latency}, tagged with the
+ * operation), the queue depth ({@code passwords.hash.queue.size}) and the rejected
+ * requests ({@code passwords.hash.rejected}).
+ */
+@Service
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeLatency;
+    private final Timer matchesLatency;
+    private final Counter rejected;
+    private final String unknownUserHash;
+
+    /**
+     * The result of checking a password.
+     *
+     * @param matches      Whether the password matches the stored hash.
+     * @param upgradedHash A new hash of the password if the stored one uses an outdated algorithm or cost,
+     *                     otherwise {@code null}.
+     */
+    public record Verification(boolean matches, String upgradedHash) {
+    }
+
+    public PasswordHashingService(PasswordEncoder passwordEncoder, MeterRegistry meterRegistry,
+                                  @Value("${socialapp.passwords.workers:0}") int workers,
+                                  @Value("${socialapp.passwords.queue-capacity:64}") int queueCapacity) {
+        this.passwordEncoder = passwordEncoder;
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue,
+                new CustomizableThreadFactory("password-hashing-"), new ThreadPoolExecutor.AbortPolicy());
+        this.encodeLatency = latency(meterRegistry, "encode");
+        this.matchesLatency = latency(meterRegistry, "matches");
+        this.rejected = Counter.builder("passwords.hash.rejected")
+                .description("Password hashes rejected because too many were waiting")
+                .register(meterRegistry);
+        Gauge.builder("passwords.hash.queue.size", queue, BlockingQueue::size)
+                .description("Password hashes waiting for a worker")
+                .register(meterRegistry);
+        // Checked instead of a real hash for unknown users, so a login takes as long either way.
+        this.unknownUserHash = passwordEncoder.encode(UUID.randomUUID().toString());
+    }
+
+    /**
+     * Hashes a password with the configured algorithm.
+     *
+     * @param rawPassword The plain-text password.
+     * @return A future completed with the encoded hash.
+     * @throws ResponseStatusException with status 503 if too many hashes are waiting.
+     */
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(() -> encodeLatency.record(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    /**
+     * Checks a password against a stored hash, and rehashes it in the same task if the hash is outdated.
+     *
+     * @param rawPassword     The plain-text password.
+     * @param encodedPassword The stored hash, or {@code null} if there is no such user; the check then
+     *                        still costs one hash and never matches.
+     * @return A future completed with the {@link Verification}.
+     * @throws ResponseStatusException with status 503 if too many hashes are waiting.
+     */
+    public CompletableFuture<Verification> verify(String rawPassword, String encodedPassword) {
+        return submit(() -> {
+            String hash = encodedPassword != null ? encodedPassword : unknownUserHash;
+            boolean matches = matchesLatency.record(() -> passwordEncoder.matches(rawPassword, hash));
+            if (!matches || encodedPassword == null) {
+                return new Verification(false, null);
+            }
+            String upgradedHash = passwordEncoder.upgradeEncoding(hash)
+                    ? encodeLatency.record(() -> passwordEncoder.encode(rawPassword))
+                    : null;
+            return new Verification(true, upgradedHash);
+        });
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many sign-ins in progress, try again shortly.");
+        }
+    }
+
+    private static Timer latency(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("passwords.hash.latency")
+                .description("Time to hash or check a password, excluding the wait in the queue")
+                .tag("operation", operation)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,563 @@
+package com.socialapp.service;
+
+import com.socialapp.util.TextNormalizer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over the titles and contents of posts, kept by {@link PostSearchService}.
+ * <p>
+ * Posts get consecutive {@code int} ids in the order they are added, so every posting
+ * list is appended in ascending order and stored as variable-length deltas: a post id
+ * gap and the term frequency, usually one byte each, with a skip entry every
+ * {@link #SKIP_INTERVAL} posts. A query walks the posting lists of its words together
+ * (document at a time), scores each post with BM25 and keeps only the best
+ * {@code offset + limit} in a heap of primitives. Once the heap is full, the lists of
+ * words too common to lift a post into it on their own are no longer walked, only
+ * skipped to the posts found in the other lists (MaxScore), so a common word costs
+ * little next to a rare one. Words in the title count {@link #TITLE_WEIGHT} times.
+ * <p>
+ * The whole index can be written to and read back from a stream, which lets a node
+ * restart without re-reading every post.
+ */
+final class PostSearchIndex {
+
+    static final int TITLE_WEIGHT = 3;
+    static final int MAX_TERM_LENGTH = 32;
+    static final int SKIP_INTERVAL = 64;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MAGIC = 0x50534958;
+    private static final int VERSION = 1;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> terms = new HashMap<>();
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private String[] postIds = new String[1024];
+    private int[] lengths = new int[1024];
+    private int size;
+    private long totalLength;
+    private long indexedUntil = Long.MIN_VALUE;
+
+    /**
+     * A post returned by {@link #search}, with the score it was ranked by.
+     */
+    record Hit(String postId, double score) {
+    }
+
+    /**
+     * The requested slice of the ranking, and whether more posts match the query.
+     */
+    record Page(List<Hit> hits, boolean hasMore) {
+    }
+
+    /**
+     * Adds a post, unless it is already indexed.
+     *
+     * @param postId    The unique Id of the post.
+     * @param title     The title of the post.
+     * @param content   The content of the post.
+     * @param createdAt The creation time of the post, in epoch milliseconds.
+     * @return {@code true} if the post was added.
+     */
+    boolean add(String postId, String title, String content, long createdAt) {
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        int length = TITLE_WEIGHT * tokenize(title, frequencies, TITLE_WEIGHT) + tokenize(content, frequencies, 1);
+        lock.writeLock().lock();
+        try {
+            if (indexes.putIfAbsent(postId, size) != null) {
+                return false;
+            }
+            int post = size++;
+            if (post == postIds.length) {
+                postIds = Arrays.copyOf(postIds, post * 2);
+                lengths = Arrays.copyOf(lengths, post * 2);
+            }
+            postIds[post] = postId;
+            lengths[post] = length;
+            totalLength += length;
+            indexedUntil = Math.max(indexedUntil, createdAt);
+            frequencies.forEach((term, frequency) -> terms.computeIfAbsent(term, t -> new Postings()).add(post, frequency));
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ranks the posts containing any word of a query, best match first, and returns one slice of the ranking.
+     * <p>
+     * Posts with the same score are ranked newest first.
+     *
+     * @param query  The words to look for.
+     * @param offset The number of top-ranked posts to skip.
+     * @param limit  The maximum number of posts returned.
+     * @return The posts at ranks {@code offset} to {@code offset + limit}, and whether more posts follow.
+     */
+    Page search(String query, int offset, int limit) {
+        Map<String, Integer> words = new LinkedHashMap<>();
+        tokenize(query, words, 1);
+        if (words.isEmpty() || limit < 1) {
+            return new Page(List.of(), false);
+        }
+        lock.readLock().lock();
+        try {
+            List<Cursor> cursors = new ArrayList<>(words.size());
+            for (String word : words.keySet()) {
+                Postings postings = terms.get(word);
+                if (postings != null) {
+                    double idf = Math.log(1 + (size - postings.docFreq + 0.5) / (postings.docFreq + 0.5));
+                    cursors.add(new Cursor(postings, idf * (K1 + 1)));
+                }
+            }
+            if (cursors.isEmpty()) {
+                return new Page(List.of(), false);
+            }
+            return rank(cursors.toArray(new Cursor[0]), offset, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the index, holding the read lock only while the arrays are copied.
+     * <p>
+     * The copy is what a snapshot writes, so new posts are never held up by the disk.
+     */
+    PostSearchIndex copy() {
+        PostSearchIndex copy = new PostSearchIndex();
+        lock.readLock().lock();
+        try {
+            copy.postIds = Arrays.copyOf(postIds, postIds.length);
+            copy.lengths = Arrays.copyOf(lengths, lengths.length);
+            copy.indexes.putAll(indexes);
+            copy.size = size;
+            copy.totalLength = totalLength;
+            copy.indexedUntil = indexedUntil;
+            terms.forEach((term, postings) -> copy.terms.put(term, postings.copy()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return copy;
+    }
+
+    /**
+     * Writes the whole index in a binary form that {@link #readFrom} accepts.
+     */
+    void writeTo(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            out.writeLong(indexedUntil);
+            for (int post = 0; post < size; post++) {
+                out.writeUTF(postIds[post]);
+                out.writeInt(lengths[post]);
+            }
+            out.writeInt(terms.size());
+            for (Map.Entry<String, Postings> entry : terms.entrySet()) {
+                Postings postings = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(postings.docFreq);
+                out.writeInt(postings.lastPost);
+                out.writeInt(postings.length);
+                out.write(postings.bytes, 0, postings.length);
+                for (int i = 0; i < 2 * postings.skipCount(); i++) {
+                    out.writeInt(postings.skips[i]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads an index written by {@link #writeTo}.
+     * <p>
+     * Every count and offset is checked before it is used, so a corrupt snapshot is
+     * reported as such rather than allocating arbitrary arrays or failing later in a query.
+     *
+     * @throws IOException if the stream cannot be read or does not hold a valid index of this version.
+     */
+    static PostSearchIndex readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a post search index of version " + VERSION);
+        }
+        PostSearchIndex index = new PostSearchIndex();
+        int size = check(in.readInt(), 0, Integer.MAX_VALUE - 8, "post count");
+        index.indexedUntil = in.readLong();
+        index.postIds = new String[Math.max(size, 1024)];
+        index.lengths = new int[index.postIds.length];
+        for (int post = 0; post < size; post++) {
+            String postId = in.readUTF();
+            int length = check(in.readInt(), 0, Integer.MAX_VALUE, "post length");
+            if (index.indexes.put(postId, post) != null) {
+                throw new IOException("Corrupt post search index: post " + postId + " is indexed twice");
+            }
+            index.postIds[post] = postId;
+            index.lengths[post] = length;
+            index.totalLength += length;
+        }
+        index.size = size;
+        int termCount = check(in.readInt(), 0, Integer.MAX_VALUE, "term count");
+        for (int i = 0; i < termCount; i++) {
+            String term = in.readUTF();
+            Postings postings = new Postings();
+            postings.docFreq = check(in.readInt(), 1, size, "document frequency");
+            postings.lastPost = check(in.readInt(), postings.docFreq - 1, size - 1, "last post");
+            // Each pair is two varints of at most five bytes.
+            postings.length = check(in.readInt(), 2 * postings.docFreq, 10 * postings.docFreq, "postings length");
+            postings.bytes = new byte[postings.length];
+            in.readFully(postings.bytes);
+            postings.skips = new int[2 * postings.skipCount()];
+            for (int j = 0; j < postings.skips.length; j += 2) {
+                postings.skips[j] = check(in.readInt(), 0, postings.lastPost, "skipped post");
+                postings.skips[j + 1] = check(in.readInt(), 0, postings.length - 1, "skip offset");
+            }
+            if (index.terms.put(term, postings) != null) {
+                throw new IOException("Corrupt post search index: term " + term + " is stored twice");
+            }
+        }
+        return index;
+    }
+
+    private static int check(int value, int min, int max, String name) throws IOException {
+        if (value < min || value > max) {
+            throw new IOException("Corrupt post search index: " + name + " " + value + " is not within [" + min + ", " + max + "]");
+        }
+        return value;
+    }
+
+    int postCount() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The creation time of the newest indexed post, in epoch milliseconds, or {@link Long#MIN_VALUE} if empty.
+     */
+    long indexedUntil() {
+        lock.readLock().lock();
+        try {
+            return indexedUntil;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Merges the posting lists in post id order and keeps the best posts. Requires the read lock.
+     * <p>
+     * The lists are ordered by the highest score they can add to a post. A list is
+     * non-essential while the sum of its bound and the bounds of the lists before it
+     * is below the lowest score in a full heap: a post found only in those lists could
+     * not enter the heap, so they are only consulted for the posts of the other lists.
+     */
+    private Page rank(Cursor[] cursors, int offset, int limit) {
+        Arrays.sort(cursors, Comparator.comparingDouble(cursor -> cursor.weight));
+        double[] bounds = new double[cursors.length];
+        double bound = 0;
+        for (int i = 0; i < cursors.length; i++) {
+            bound += cursors[i].weight;
+            bounds[i] = bound;
+            cursors[i].next();
+        }
+        double lengthNorm = K1 * B * size / Math.max(totalLength, 1);
+        TopK best = new TopK(offset + limit + 1);
+        int essential = 0;
+        while (true) {
+            int post = Integer.MAX_VALUE;
+            for (int i = essential; i < cursors.length; i++) {
+                post = Math.min(post, cursors[i].post);
+            }
+            if (post == Integer.MAX_VALUE) {
+                break;
+            }
+            double norm = K1 * (1 - B) + lengthNorm * lengths[post];
+            double score = 0;
+            for (int i = essential; i < cursors.length; i++) {
+                if (cursors[i].post == post) {
+                    score += cursors[i].score(norm);
+                    cursors[i].next();
+                }
+            }
+            for (int i = essential - 1; i >= 0 && score + bounds[i] >= best.threshold(); i--) {
+                cursors[i].advance(post);
+                if (cursors[i].post == post) {
+                    score += cursors[i].score(norm);
+                }
+            }
+            if (best.offer(post, score)) {
+                while (essential < cursors.length && bounds[essential] < best.threshold()) {
+                    essential++;
+                }
+            }
+        }
+        int[] ranked = best.ranked();
+        List<Hit> hits = new ArrayList<>(Math.max(Math.min(ranked.length, offset + limit) - offset, 0));
+        for (int i = offset; i < Math.min(ranked.length, offset + limit); i++) {
+            hits.add(new Hit(postIds[best.posts[ranked[i]]], best.scores[ranked[i]]));
+        }
+        return new Page(hits, ranked.length > offset + limit);
+    }
+
+    /**
+     * Counts the normalized words of a text into {@code frequencies}, each occurrence adding {@code weight}.
+     *
+     * @return The number of words in the text.
+     */
+    static int tokenize(String text, Map<String, Integer> frequencies, int weight) {
+        String normalized = TextNormalizer.normalize(text);
+        int words = 0;
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                String word = normalized.substring(start, Math.min(i, start + MAX_TERM_LENGTH));
+                frequencies.merge(word, weight, Integer::sum);
+                words++;
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * The posts containing a term, as varint-encoded (post id gap, frequency) pairs. Guarded by the index lock.
+     * <p>
+     * Every {@link #SKIP_INTERVAL} posts, the last post id so far and the offset of the
+     * next pair are recorded in {@code skips}, so a query can jump over whole blocks.
+     */
+    private static final class Postings {
+
+        private static final int[] NO_SKIPS = new int[0];
+
+        private byte[] bytes = new byte[4];
+        private int[] skips = NO_SKIPS;
+        private int length;
+        private int docFreq;
+        private int lastPost = -1;
+
+        void add(int post, int frequency) {
+            if (docFreq > 0 && docFreq % SKIP_INTERVAL == 0) {
+                int skip = 2 * (docFreq / SKIP_INTERVAL - 1);
+                if (skip == skips.length) {
+                    skips = Arrays.copyOf(skips, Math.max(skips.length * 2, 8));
+                }
+                skips[skip] = lastPost;
+                skips[skip + 1] = length;
+            }
+            if (bytes.length - length < 10) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 10));
+            }
+            writeVarInt(post - lastPost);
+            writeVarInt(frequency);
+            lastPost = post;
+            docFreq++;
+        }
+
+        int skipCount() {
+            return docFreq == 0 ? 0 : (docFreq - 1) / SKIP_INTERVAL;
+        }
+
+        Postings copy() {
+            Postings copy = new Postings();
+            copy.bytes = Arrays.copyOf(bytes, length);
+            copy.skips = Arrays.copyOf(skips, 2 * skipCount());
+            copy.length = length;
+            copy.docFreq = docFreq;
+            copy.lastPost = lastPost;
+            return copy;
+        }
+
+        private void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+    }
+
+    /**
+     * Decodes one posting list during a query.
+     */
+    private static final class Cursor {
+
+        private final byte[] bytes;
+        private final int end;
+        private final int[] skips;
+        private final int skipCount;
+        private final double weight;
+        private int position;
+        private int skip;
+        private int post = -1;
+        private int frequency;
+
+        /**
+         * @param weight The idf of the term times {@code K1 + 1}, also the highest score the term can add.
+         */
+        Cursor(Postings postings, double weight) {
+            this.bytes = postings.bytes;
+            this.end = postings.length;
+            this.skips = postings.skips;
+            this.skipCount = postings.skipCount();
+            this.weight = weight;
+        }
+
+        double score(double norm) {
+            return weight * frequency / (frequency + norm);
+        }
+
+        /**
+         * Moves to the next post, or to {@link Integer#MAX_VALUE} at the end of the list.
+         */
+        void next() {
+            if (position >= end) {
+                post = Integer.MAX_VALUE;
+                return;
+            }
+            post += readVarInt();
+            frequency = readVarInt();
+        }
+
+        /**
+         * Moves to the first post at or after {@code target}, jumping over the blocks that end before it.
+         */
+        void advance(int target) {
+            while (skip < skipCount && skips[2 * skip] < target) {
+                if (skips[2 * skip + 1] > position) {
+                    post = skips[2 * skip];
+                    position = skips[2 * skip + 1];
+                }
+                skip++;
+            }
+            while (post < target) {
+                next();
+            }
+        }
+
+        private int readVarInt() {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+
+    /**
+     * Bounded min-heap of (post, score) pairs, kept in parallel arrays.
+     * <p>
+     * The root is the worst post: the lowest score, and of equal scores the oldest.
+     * Posts are offered in ascending order, so a new post beats an equal score.
+     */
+    private static final class TopK {
+
+        private final int[] posts;
+        private final double[] scores;
+        private int size;
+
+        TopK(int capacity) {
+            posts = new int[capacity];
+            scores = new double[capacity];
+        }
+
+        /**
+         * The score a post needs to enter the heap, or negative infinity while it is not full.
+         */
+        double threshold() {
+            return size < posts.length ? Double.NEGATIVE_INFINITY : scores[0];
+        }
+
+        /**
+         * @return {@code true} if the post entered the heap.
+         */
+        boolean offer(int post, double score) {
+            if (size < posts.length) {
+                int i = size++;
+                while (i > 0 && score < scores[(i - 1) / 2]) {
+                    posts[i] = posts[(i - 1) / 2];
+                    scores[i] = scores[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                posts[i] = post;
+                scores[i] = score;
+                return true;
+            }
+            if (score < scores[0]) {
+                return false;
+            }
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && worse(child + 1, child)) {
+                    child++;
+                }
+                if (scores[child] > score || (scores[child] == score && posts[child] > post)) {
+                    break;
+                }
+                posts[i] = posts[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            posts[i] = post;
+            scores[i] = score;
+            return true;
+        }
+
+        /**
+         * The heap slots, best post first.
+         */
+        int[] ranked() {
+            Integer[] slots = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = i;
+            }
+            Arrays.sort(slots, (a, b) -> worse(a, b) ? 1 : worse(b, a) ? -1 : 0);
+            int[] ranked = new int[size];
+            for (int i = 0; i < size; i++) {
+                ranked[i] = slots[i];
+            }
+            return ranked;
+        }
+
+        private boolean worse(int a, int b) {
+            return scores[a] < scores[b] || (scores[a] == scores[b] && posts[a] < posts[b]);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.socialapp.service;
+
+import com.socialapp.dto.CursorPage;
+import com.socialapp.dto.PostSummary;
+import com.socialapp.event.PostCreatedEvent;
+import com.socialapp.model.Post;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Service class that ranks posts by the words of their title and content, from an in-memory {@link PostSearchIndex}.
+ * <p>
+ * New posts are indexed from the {@link PostCreatedEvent}s published by {@link PostService}.
+ * The index is written to {@code socialapp.posts.search.snapshot} every
+ * {@code snapshot-interval} and on shutdown. On startup the snapshot is read back and
+ * only the posts created since, minus a safety margin for posts indexed out of order,
+ * are read from MongoDB; without a usable snapshot every post is read.
+ * <p>
+ * The index only sees posts created through this node, so it is only correct on a
+ * single node; see {@link UnreadCounterService}.
+ */
+@Service
+@DependsOn("indexVerifier")
+public class PostSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(PostSearchService.class);
+    private static final int BATCH_SIZE = 1000;
+    private static final Duration CATCH_UP_MARGIN = Duration.ofMinutes(5);
+
+    private final MongoTemplate mongoTemplate;
+    private final PostService postService;
+    private final Path snapshotPath;
+    private final PageSizes pageSizes;
+    private final int maxResults;
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    private volatile PostSearchIndex index = new PostSearchIndex();
+    private volatile int snapshotPostCount = -1;
+
+    public PostSearchService(MongoTemplate mongoTemplate, PostService postService,
+                             @Value("${socialapp.posts.search.snapshot:search/posts.idx}") String snapshot,
+                             @Value("${socialapp.posts.search.max-results:1000}") int maxResults,
+                             PageSizes pageSizes) {
+        this.mongoTemplate = mongoTemplate;
+        this.postService = postService;
+        this.snapshotPath = Paths.get(snapshot).toAbsolutePath();
+        this.maxResults = maxResults;
+        this.pageSizes = pageSizes;
+    }
+
+    /**
+     * Loads the snapshot if there is one and indexes the posts it is missing.
+     * <p>
+     * It runs before the web server accepts requests, so no created post can be missed.
+     */
+    @PostConstruct
+    public void load() {
+        LocalDateTime since = null;
+        if (Files.exists(snapshotPath)) {
+            try (InputStream in = Files.newInputStream(snapshotPath)) {
+                PostSearchIndex loaded = PostSearchIndex.readFrom(new DataInputStream(new BufferedInputStream(in)));
+                index = loaded;
+                snapshotPostCount = loaded.postCount();
+                if (loaded.indexedUntil() != Long.MIN_VALUE) {
+                    since = toDateTime(loaded.indexedUntil()).minus(CATCH_UP_MARGIN);
+                }
+                log.info("Loaded {} posts from the search snapshot {}", loaded.postCount(), snapshotPath);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Could not read the search snapshot {}, rebuilding the index", snapshotPath, e);
+                index = new PostSearchIndex();
+                snapshotPostCount = -1;
+                since = null;
+            }
+        }
+
+        Query query = new Query().cursorBatchSize(BATCH_SIZE);
+        if (since != null) {
+            query.addCriteria(Criteria.where("createdAt").gte(since));
+        }
+        query.fields().include("title", "content", "createdAt");
+        int added = 0;
+        try (Stream<Post> posts = mongoTemplate.stream(query, Post.class)) {
+            for (Post post : (Iterable<Post>) posts::iterator) {
+                if (add(post)) {
+                    added++;
+                }
+            }
+        }
+        log.info("Indexed {} posts from MongoDB; {} posts under {} search terms",
+                added, index.postCount(), index.termCount());
+    }
+
+    /**
+     * Indexes a newly created post.
+     * <p>
+     * It runs asynchronously so that creating a post does not wait for a snapshot to finish.
+     *
+     * @param event The event carrying the saved post.
+     */
+    @Async
+    @EventListener
+    public void onPostCreated(PostCreatedEvent event) {
+        add(event.getPost());
+    }
+
+    /**
+     * Retrieves one page of the posts matching a query, best match first.
+     *
+     * @param query  The words to look for.
+     * @param cursor The cursor returned with the previous page, or {@code null} for the first page.
+     * @param size   The requested page size, or {@code null} for the configured default.
+     * @return A {@link CursorPage} of post summaries and the cursor of the next page.
+     * @throws ResponseStatusException with status 400 if the cursor is malformed.
+     */
+    public CursorPage<PostSummary> search(String query, String cursor, Integer size) {
+        int limit = pageSizes.clamp(size);
+        int offset = decodeCursor(cursor);
+        limit = Math.min(limit, maxResults - offset);
+        if (limit <= 0) {
+            return new CursorPage<>(List.of(), null);
+        }
+        PostSearchIndex.Page page = index.search(query, offset, limit);
+        int next = offset + page.hits().size();
+        String nextCursor = page.hasMore() && next < maxResults ? Integer.toString(next) : null;
+        List<String> postIds = page.hits().stream().map(PostSearchIndex.Hit::postId).toList();
+        return new CursorPage<>(postService.getSummaries(postIds), nextCursor);
+    }
+
+    /**
+     * Writes the index to the snapshot file if posts were added since the last snapshot.
+     * <p>
+     * The index is copied first, and the copy is written to a temporary file that is
+     * then moved over the previous one: new posts wait for the copy only, never for the
+     * disk, and a crash never leaves a partial snapshot behind.
+     */
+    @Scheduled(initialDelayString = "${socialapp.posts.search.snapshot-interval:PT5M}",
+            fixedDelayString = "${socialapp.posts.search.snapshot-interval:PT5M}")
+    public void snapshot() throws IOException {
+        snapshotLock.lock();
+        try {
+            if (index.postCount() == snapshotPostCount) {
+                return;
+            }
+            PostSearchIndex copy = index.copy();
+            int postCount = copy.postCount();
+            Files.createDirectories(snapshotPath.getParent());
+            Path temporary = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 1 << 16));
+                copy.writeTo(data);
+                data.flush();
+            }
+            Files.move(temporary, snapshotPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            snapshotPostCount = postCount;
+            log.debug("Wrote {} posts to the search snapshot {}", postCount, snapshotPath);
+        } finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    /**
+     * Writes a last snapshot on shutdown, so the next start only reads the posts created meanwhile.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        snapshot();
+    }
+
+    private boolean add(Post post) {
+        long createdAt = post.getCreatedAt() == null
+                ? Long.MIN_VALUE
+                : post.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli();
+        return index.add(post.getId(), post.getTitle(), post.getContent(), createdAt);
+    }
+
+    private static LocalDateTime toDateTime(long epochMilli) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneOffset.UTC);
+    }
+
+    private int decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0;
+        }
+        try {
+            int offset = Integer.parseInt(cursor);
+            if (offset >= 0) {
+                return offset;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
+        }
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Malformed search cursor.");
+    }
+}
@@ -1,59 +1,322 @@
 package com.socialapp.service;
 
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.socialapp.dto.CursorPage;
+import com.socialapp.dto.LikeResult;
+import com.socialapp.dto.PostSummary;
+import com.socialapp.event.PostCreatedEvent;
+import com.socialapp.model.Comment;
 import com.socialapp.model.Post;
-import com.socialapp.model.Post.Comment;
+import com.socialapp.model.PostLike;
+import com.socialapp.repository.CommentRepository;
 import com.socialapp.repository.PostRepository;
+import com.socialapp.util.KeysetCursor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.mongodb.MongoTransactionManager;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
- * a service that handles post-related logic, like adding likes and comments.
+ * a service that handles post-related logic, like creating posts and adding likes and comments.
+ * <p>
+ * With {@code socialapp.mongodb.transactions.enabled=true}, a like and the change of its
+ * post's counter commit together. Concurrent likes of one post then conflict on the
+ * counter, and the losing transaction is retried up to {@value #TRANSACTION_ATTEMPTS}
+ * times. Without transactions, a like whose counter could not be changed is removed
+ * again, but a crash between the two writes leaves the counter one off.
  */
 @Service
 public class PostService {
+    private static final int TRANSACTION_ATTEMPTS = 10;
+
     private final PostRepository postRepository;
+    private final CommentRepository commentRepository;
+    private final MongoTemplate mongoTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PageSizes pageSizes;
 
-    public PostService(PostRepository postRepository) {
+    public PostService(PostRepository postRepository, CommentRepository commentRepository, MongoTemplate mongoTemplate,
+                       ObjectProvider<MongoTransactionManager> transactionManager,
+                       ApplicationEventPublisher eventPublisher, PageSizes pageSizes) {
         this.postRepository = postRepository;
+        this.commentRepository = commentRepository;
+        this.mongoTemplate = mongoTemplate;
+        MongoTransactionManager manager = transactionManager.getIfAvailable();
+        this.transactionTemplate = manager == null ? null : new TransactionTemplate(manager);
+        this.eventPublisher = eventPublisher;
+        this.pageSizes = pageSizes;
+    }
+
+    /**
+     * Saves a new post and announces it with a {@link PostCreatedEvent}.
+     * <p>
+     * Server-managed fields are reset so that clients cannot choose the id, timestamp or counters.
+     *
+     * @param post The {@link Post} to be created.
+     * @return The saved {@link Post} entity.
+     */
+    public Post createPost(Post post) {
+        post.setId(null);
+        // MongoDB keeps millisecond precision, so timelines and cursors compare the stored value.
+        post.setCreatedAt(LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS));
+        post.setLikeCount(0);
+        post.setCommentCount(0);
+        Post saved = postRepository.insert(post);
+        eventPublisher.publishEvent(new PostCreatedEvent(saved));
+        return saved;
     }
 
     /**
      * Adds a user's like to a specific post.
      * <p>
-     * The user cannot like a post again, once he has liked a post.
+     * The user cannot like a post again, once he has liked a post. The unique
+     * (postId, userId) index on "post_likes" rejects the duplicate insert, so the
+     * post document is only touched to increment its like counter.
      *
      * @param postId The unique Id of the post to be liked.
      * @param userId The unique Id of the user who is liking the post.
-     * @return The updated {@link Post} object with the new like added.
+     * @return A {@link LikeResult} with the like state and the current like count.
+     * @throws RuntimeException if no post with the given postId exists.
+     */
+    public LikeResult addLike(String postId, String userId){
+        Post updated;
+        try {
+            updated = inTransaction(() -> {
+                mongoTemplate.insert(new PostLike(postId, userId));
+                Post post = incrementLikeCount(postId, 1);
+                if (post == null) {
+                    // Undo the like so that no orphan is left behind for a missing post.
+                    mongoTemplate.remove(likeQuery(postId, userId), PostLike.class);
+                    throw new RuntimeException("Post not found");
+                }
+                return post;
+            });
+        } catch (DuplicateKeyException e) {
+            return new LikeResult(postId, userId, true, false, getLikeCount(postId));
+        }
+        return new LikeResult(postId, userId, true, true, updated.getLikeCount());
+    }
+
+    /**
+     * Removes a user's like from a specific post.
+     * <p>
+     * The counter is only decremented when a like document was actually deleted,
+     * so unliking a post that was not liked is a no-op.
+     *
+     * @param postId The unique Id of the post to be unliked.
+     * @param userId The unique Id of the user who is removing the like.
+     * @return A {@link LikeResult} with the like state and the current like count.
      * @throws RuntimeException if no post with the given postId exists.
      */
-    public Post addLike(String postId, String userId){
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new RuntimeException("Post not found"));
-        // To prevent duplicate likes
-        if (!post.getLikes().contains(userId)) {
-            post.getLikes().add(userId);
+    public LikeResult removeLike(String postId, String userId){
+        Post updated = inTransaction(() -> {
+            DeleteResult deleted = mongoTemplate.remove(likeQuery(postId, userId), PostLike.class);
+            if (deleted.getDeletedCount() == 0) {
+                return null;
+            }
+            Post post = incrementLikeCount(postId, -1);
+            if (post == null) {
+                throw new RuntimeException("Post not found");
+            }
+            return post;
+        });
+        if (updated == null) {
+            return new LikeResult(postId, userId, false, false, getLikeCount(postId));
         }
-        return postRepository.save(post);
+        return new LikeResult(postId, userId, false, true, updated.getLikeCount());
+    }
+
+    /**
+     * Retrieves one page of the posts created by an author, newest first.
+     * <p>
+     * The page is read through the (authorId, createdAt, _id) index and only the
+     * fields of {@link PostSummary} are returned by MongoDB.
+     *
+     * @param authorId The unique Id of the author.
+     * @param cursor   The cursor returned with the previous page, or {@code null} for the first page.
+     * @param size     The requested page size, or {@code null} for the configured default.
+     * @return A {@link CursorPage} of post summaries and the cursor of the next page.
+     */
+    public CursorPage<PostSummary> getPostsByAuthor(String authorId, String cursor, Integer size) {
+        int limit = pageSizes.clamp(size);
+        Query query = keysetQuery(Criteria.where("authorId").is(authorId), KeysetCursor.decode(cursor), limit);
+        List<PostSummary> posts = mongoTemplate.query(Post.class).as(PostSummary.class).matching(query).all();
+        return toPage(posts, limit, post -> new KeysetCursor(post.getCreatedAt(), post.getId()));
+    }
+
+    /**
+     * Retrieves one page of the posts liked by a user, most recently liked first.
+     * <p>
+     * The likes are read through the (userId, createdAt, _id) index on "post_likes" and
+     * the matching post summaries are then loaded with a single {@code $in} query.
+     *
+     * @param userId The unique Id of the user whose liked posts are to be retrieved.
+     * @param cursor The cursor returned with the previous page, or {@code null} for the first page.
+     * @param size   The requested page size, or {@code null} for the configured default.
+     * @return A {@link CursorPage} of post summaries, in the order in which they were liked.
+     */
+    public CursorPage<PostSummary> getLikedPosts(String userId, String cursor, Integer size) {
+        int limit = pageSizes.clamp(size);
+        Query query = keysetQuery(Criteria.where("userId").is(userId), KeysetCursor.decode(cursor), limit);
+        query.fields().include("postId", "createdAt");
+        CursorPage<PostLike> likes = toPage(mongoTemplate.find(query, PostLike.class), limit,
+                like -> new KeysetCursor(like.getCreatedAt(), like.getId()));
+        List<String> postIds = likes.getItems().stream().map(PostLike::getPostId).toList();
+        return new CursorPage<>(getSummaries(postIds), likes.getNextCursor());
+    }
+
+    /**
+     * Loads the summaries of the given posts with a single {@code $in} query.
+     *
+     * @param postIds The unique Ids of the posts, in the order they should be returned.
+     * @return The summaries of the posts that still exist, in the order of {@code postIds}.
+     */
+    public List<PostSummary> getSummaries(List<String> postIds) {
+        if (postIds.isEmpty()) {
+            return List.of();
+        }
+        Map<String, PostSummary> postsById = new HashMap<>();
+        mongoTemplate.query(Post.class).as(PostSummary.class)
+                .matching(new Query(Criteria.where("_id").in(postIds)))
+                .all()
+                .forEach(post -> postsById.put(post.getId(), post));
+        return postIds.stream()
+                .map(postsById::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 
     /**
      * Adds a new comment to a specific post.
      * <p>
-     * This method sets values for the comment, such as the creation
-     * timestamp and a unique ID, before saving it.
+     * The post is never read: its comment counter is incremented in place, which also
+     * tells whether the post exists, and the comment is then appended to "post_comments".
      *
      * @param postId  The unique Id of the post to add the comment to.
      * @param comment The {@link Comment} object to be added. It must contain the authorId and text.
-     * @return The updated {@link Post} object with the new comment included.
+     * @return The saved {@link Comment} with its id and creation timestamp.
      * @throws RuntimeException if no post with the given postId exists.
      */
-    public Post addComment(String postId, Comment comment){
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new RuntimeException("Post not found"));
+    public Comment addComment(String postId, Comment comment){
+        UpdateResult result = mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(postId)),
+                new Update().inc("commentCount", 1), Post.class);
+        if (result.getMatchedCount() == 0) {
+            throw new RuntimeException("Post not found");
+        }
+        comment.setId(null);
+        comment.setPostId(postId);
         comment.setCreatedAt(LocalDateTime.now());
-        post.getComments().add(comment);
-        return postRepository.save(post);
+        return commentRepository.insert(comment);
+    }
+
+    /**
+     * Retrieves one page of the comments on a post, oldest first.
+     *
+     * @param postId The unique Id of the post whose comments are to be retrieved.
+     * @param after  The cursor returned with the previous page, or {@code null} for the first page.
+     * @param limit  The requested page size, or {@code null} for the configured default.
+     * @return A {@link CursorPage} of comments and the cursor of the next page.
+     */
+    public CursorPage<Comment> getComments(String postId, String after, Integer limit) {
+        Pageable pageable = PageRequest.of(0, pageSizes.clamp(limit));
+        Slice<Comment> comments = after == null
+                ? commentRepository.findByPostIdOrderByIdAsc(postId, pageable)
+                : commentRepository.findByPostIdAndIdGreaterThanOrderByIdAsc(postId, after, pageable);
+        List<Comment> items = comments.getContent();
+        String nextCursor = comments.hasNext() ? items.get(items.size() - 1).getId() : null;
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    /**
+     * Adds {@code delta} to the like counter and returns the post with only that counter loaded.
+     *
+     * @return The updated post, or {@code null} if no post with the given postId exists.
+     */
+    private Post incrementLikeCount(String postId, int delta) {
+        Query query = new Query(Criteria.where("_id").is(postId));
+        query.fields().include("likeCount");
+        return mongoTemplate.findAndModify(query, new Update().inc("likeCount", delta),
+                FindAndModifyOptions.options().returnNew(true), Post.class);
+    }
+
+    /**
+     * Builds a newest-first keyset query that fetches one item more than the page,
+     * which tells whether another page follows.
+     */
+    private Query keysetQuery(Criteria criteria, KeysetCursor cursor, int limit) {
+        if (cursor != null) {
+            criteria = new Criteria().andOperator(criteria, cursor.after("createdAt"));
+        }
+        return new Query(criteria).with(KeysetCursor.sort("createdAt")).limit(limit + 1);
+    }
+
+    /**
+     * Trims the extra item fetched by {@link #keysetQuery} and derives the cursor of the next page from it.
+     */
+    private <T> CursorPage<T> toPage(List<T> items, int limit, Function<T, KeysetCursor> cursorOf) {
+        if (items.size() <= limit) {
+            return new CursorPage<>(items, null);
+        }
+        List<T> page = items.subList(0, limit);
+        return new CursorPage<>(page, cursorOf.apply(page.get(limit - 1)).encode());
+    }
+
+    /**
+     * Runs an action in a transaction when they are enabled, retrying it while it conflicts with another one.
+     */
+    private <T> T inTransaction(Supplier<T> action) {
+        if (transactionTemplate == null) {
+            return action.get();
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (TransientDataAccessException e) {
+                if (attempt == TRANSACTION_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private Query likeQuery(String postId, String userId) {
+        return new Query(Criteria.where("postId").is(postId).and("userId").is(userId));
+    }
+
+    /**
+     * Reads the like counter of a post without loading the rest of the document.
+     *
+     * @throws RuntimeException if no post with the given postId exists.
+     */
+    private long getLikeCount(String postId) {
+        Query query = new Query(Criteria.where("_id").is(postId));
+        query.fields().include("likeCount");
+        Post post = mongoTemplate.findOne(query, Post.class);
+        if (post == null) {
+            throw new RuntimeException("Post not found");
+        }
+        return post.getLikeCount();
     }
 }
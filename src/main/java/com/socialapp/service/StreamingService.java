@@ -0,0 +1,107 @@
+package com.socialapp.service;
+
+import com.socialapp.dto.PostSummary;
+import com.socialapp.model.Message;
+import com.socialapp.model.User;
+import com.socialapp.repository.reactive.ReactiveMessageRepository;
+import com.socialapp.repository.reactive.ReactivePostRepository;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Service class that streams whole feeds and conversation histories from MongoDB.
+ * <p>
+ * Unlike the paged reads of {@link TimelineService} and {@link MessageService}, the
+ * results are {@link Flux}es over a single cursor that nothing collects: documents are
+ * fetched a batch at a time as the subscriber asks for them, so a stream of millions of
+ * posts holds about one batch in memory and never blocks a thread while waiting on the
+ * database. It is only available when {@code socialapp.reactive.enabled} is {@code true}.
+ */
+@Service
+@ConditionalOnProperty(name = "socialapp.reactive.enabled", havingValue = "true")
+public class StreamingService {
+
+    /**
+     * The most authors one feed query asks for.
+     * <p>
+     * MongoDB answers an {@code $in} on authorId sorted by createdAt with one index scan per
+     * author merged in order (SORT_MERGE), but only up to 200 scans
+     * ({@code internalQueryMaxScansToExplode}); past that it reads every matching post and
+     * sorts them in memory before returning the first one.
+     */
+    static final int MAX_AUTHORS_PER_QUERY = 200;
+
+    private static final Comparator<PostSummary> NEWEST_FIRST = Comparator
+            .comparing(PostSummary::getCreatedAt)
+            .thenComparing(PostSummary::getId)
+            .reversed();
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ReactivePostRepository postRepository;
+    private final ReactiveMessageRepository messageRepository;
+
+    public StreamingService(ReactiveMongoTemplate mongoTemplate, ReactivePostRepository postRepository,
+                            ReactiveMessageRepository messageRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.postRepository = postRepository;
+        this.messageRepository = messageRepository;
+    }
+
+    /**
+     * Streams every post of a user and their friends, newest first.
+     * <p>
+     * The posts are read on demand through the (authorId, createdAt, _id) index, whatever the
+     * fan-out limit of the authors, so the stream goes back further than the cached timeline.
+     * A user with more than {@link #MAX_AUTHORS_PER_QUERY} authors in their feed gets one
+     * cursor per group of that many authors, merged newest first as they are read, so that
+     * no query falls back to sorting all of its posts in memory.
+     *
+     * @param userId The unique Id of the user whose feed is to be streamed.
+     * @return A {@link Flux} of post summaries, empty only if nobody in the feed has posted.
+     */
+    public Flux<PostSummary> streamFeed(String userId) {
+        Query query = new Query(Criteria.where("_id").is(userId));
+        query.fields().include("friends");
+        return mongoTemplate.findOne(query, User.class)
+                .map(user -> {
+                    List<String> authorIds = new ArrayList<>(user.getFriends().size() + 1);
+                    authorIds.add(userId);
+                    authorIds.addAll(user.getFriends());
+                    return authorIds;
+                })
+                .defaultIfEmpty(List.of(userId))
+                .flatMapMany(this::streamPosts);
+    }
+
+    private Flux<PostSummary> streamPosts(List<String> authorIds) {
+        if (authorIds.size() <= MAX_AUTHORS_PER_QUERY) {
+            return postRepository.findByAuthorIdInOrderByCreatedAtDescIdDesc(authorIds);
+        }
+        List<Flux<PostSummary>> groups = new ArrayList<>();
+        for (int from = 0; from < authorIds.size(); from += MAX_AUTHORS_PER_QUERY) {
+            List<String> group = authorIds.subList(from, Math.min(from + MAX_AUTHORS_PER_QUERY, authorIds.size()));
+            groups.add(postRepository.findByAuthorIdInOrderByCreatedAtDescIdDesc(List.copyOf(group)));
+        }
+        @SuppressWarnings("unchecked")
+        Flux<PostSummary>[] sources = groups.toArray(new Flux[0]);
+        return Flux.mergeComparing(NEWEST_FIRST, sources);
+    }
+
+    /**
+     * Streams the whole history of a conversation, newest first.
+     *
+     * @param conversationId The identifier of the conversation.
+     * @return A {@link Flux} of the messages, read on demand through the (conversationId, timestamp) index.
+     */
+    public Flux<Message> streamConversation(String conversationId) {
+        return messageRepository.findByConversationIdOrderByTimestampDescIdDesc(conversationId);
+    }
+}
@@ -0,0 +1,177 @@
+package com.socialapp.service;
+
+import com.socialapp.model.Media;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service class that generates the downscaled {@link Media.Variant variants} of uploaded images.
+ * <p>
+ * Uploads are handed to a fixed pool of {@code socialapp.media.thumbnail.workers}
+ * threads through a queue of {@code socialapp.media.thumbnail.queue-capacity} tasks.
+ * Each task decodes the original once and derives every variant from it. When the
+ * queue is full the uploading thread generates its own variants, which slows uploads
+ * down instead of letting the backlog grow without bound.
+ * <p>
+ * The dimensions of an image are read from its header before it is decoded, and images
+ * of more than {@code socialapp.media.thumbnail.max-pixels} pixels are left without
+ * variants: a small, highly compressed file can otherwise decode to gigabytes.
+ * <p>
+ * It publishes the processing latency ({@code media.thumbnail.latency}), the queue
+ * depth ({@code media.thumbnail.queue.size}) and how often the queue was full
+ * ({@code media.thumbnail.caller.runs}).
+ */
+@Service
+public class ThumbnailService {
+
+    private static final Logger log = LoggerFactory.getLogger(ThumbnailService.class);
+
+    private final MediaService mediaService;
+    private final ThreadPoolExecutor executor;
+    private final Timer latency;
+    private final long maxPixels;
+
+    public ThumbnailService(MediaService mediaService, MeterRegistry meterRegistry,
+                            @Value("${socialapp.media.thumbnail.workers:0}") int workers,
+                            @Value("${socialapp.media.thumbnail.queue-capacity:100}") int queueCapacity,
+                            @Value("${socialapp.media.thumbnail.max-pixels:40000000}") long maxPixels) {
+        this.mediaService = mediaService;
+        this.maxPixels = maxPixels;
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+        Counter callerRuns = Counter.builder("media.thumbnail.caller.runs")
+                .description("Uploads that generated their own thumbnails because the queue was full")
+                .register(meterRegistry);
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, queue,
+                (task, pool) -> {
+                    callerRuns.increment();
+                    if (!pool.isShutdown()) {
+                        task.run();
+                    }
+                });
+        this.latency = Timer.builder("media.thumbnail.latency")
+                .description("Time to decode an image and generate all of its variants")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        Gauge.builder("media.thumbnail.queue.size", queue, BlockingQueue::size)
+                .description("Images waiting for their thumbnails")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Schedules the generation of the variants of an image that does not have them yet.
+     *
+     * @param media The original image.
+     */
+    public void submit(Media media) {
+        if (media.getContentType().startsWith("image/") && media.getVariants().isEmpty()) {
+            executor.execute(() -> latency.record(() -> generate(media)));
+        }
+    }
+
+    private void generate(Media media) {
+        try {
+            BufferedImage original = read(media);
+            if (original == null) {
+                return;
+            }
+            Map<String, String> variants = new HashMap<>();
+            for (Media.Variant variant : Media.Variant.values()) {
+                int longestEdge = Math.max(original.getWidth(), original.getHeight());
+                if (longestEdge <= variant.maxEdge()) {
+                    // Never upscale; the original is already small enough for this variant.
+                    variants.put(variant.key(), media.getId());
+                    continue;
+                }
+                variants.put(variant.key(), store(scale(original, variant.maxEdge())).getId());
+            }
+            mediaService.saveVariants(media.getId(), variants);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not generate thumbnails for media {}", media.getId(), e);
+        }
+    }
+
+    /**
+     * Decodes an image after checking its dimensions against the pixel cap.
+     *
+     * @return The decoded image, or {@code null} if it has no reader or is too large.
+     */
+    BufferedImage read(Media media) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(mediaService.getPath(media.getId()).toFile())) {
+            Iterator<ImageReader> readers = in == null ? Collections.emptyIterator() : ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                log.debug("No image reader for media {} ({})", media.getId(), media.getContentType());
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels > maxPixels) {
+                    log.warn("Not generating thumbnails for media {}: {}x{} is over {} pixels",
+                            media.getId(), reader.getWidth(0), reader.getHeight(0), maxPixels);
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private BufferedImage scale(BufferedImage original, int maxEdge) {
+        double ratio = (double) maxEdge / Math.max(original.getWidth(), original.getHeight());
+        int width = Math.max(1, (int) Math.round(original.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(original.getHeight() * ratio));
+        int type = original.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage scaled = new BufferedImage(width, height, type);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(original, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Encodes a variant as PNG when it has transparency and as JPEG otherwise, and stores it.
+     */
+    private Media store(BufferedImage image) throws IOException {
+        boolean alpha = image.getColorModel().hasAlpha();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, alpha ? "png" : "jpg", out);
+        return mediaService.store(out.toByteArray(), alpha ? "image/png" : "image/jpeg");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
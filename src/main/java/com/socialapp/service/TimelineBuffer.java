@@ -0,0 +1,99 @@
+package com.socialapp.service;
+
+import com.socialapp.model.Timeline;
+import com.socialapp.util.KeysetCursor;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-memory copy of one user's home timeline, kept by {@link TimelineService}.
+ * <p>
+ * Entries are held newest first and capped at a fixed capacity, mirroring the
+ * persisted {@link Timeline} document. The buffer also remembers which friends of
+ * the owner are too popular to fan out to, so reads do not have to look them up.
+ */
+final class TimelineBuffer {
+
+    /**
+     * Newest first, ties broken by post id like {@link KeysetCursor}.
+     */
+    static final Comparator<Timeline.Entry> NEWEST_FIRST = Comparator
+            .comparing(Timeline.Entry::getCreatedAt)
+            .thenComparing(Timeline.Entry::getPostId)
+            .reversed();
+
+    private final int capacity;
+    private final List<Timeline.Entry> entries;
+
+    private volatile Set<String> celebrities = Set.of();
+    private volatile long celebritiesLoadedAt = Long.MIN_VALUE;
+
+    TimelineBuffer(int capacity, List<Timeline.Entry> entries) {
+        this.capacity = capacity;
+        this.entries = new ArrayList<>(entries);
+        this.entries.sort(NEWEST_FIRST);
+        trim();
+    }
+
+    /**
+     * Inserts an entry at its position in the timeline, ignoring posts that are already on it.
+     */
+    synchronized void add(Timeline.Entry entry) {
+        for (Timeline.Entry existing : entries) {
+            if (existing.getPostId().equals(entry.getPostId())) {
+                return;
+            }
+        }
+        int index = 0;
+        while (index < entries.size() && NEWEST_FIRST.compare(entries.get(index), entry) < 0) {
+            index++;
+        }
+        entries.add(index, entry);
+        trim();
+    }
+
+    /**
+     * Returns up to {@code limit} entries that come after the cursor.
+     *
+     * @param cursor The position to resume from, or {@code null} for the newest entries.
+     */
+    synchronized List<Timeline.Entry> page(KeysetCursor cursor, int limit) {
+        List<Timeline.Entry> page = new ArrayList<>(Math.min(limit, entries.size()));
+        for (Timeline.Entry entry : entries) {
+            if (page.size() == limit) {
+                break;
+            }
+            if (cursor == null || isAfter(entry, cursor)) {
+                page.add(entry);
+            }
+        }
+        return page;
+    }
+
+    Set<String> getCelebrities() {
+        return celebrities;
+    }
+
+    boolean celebritiesOlderThan(long maxAgeNanos, long now) {
+        return celebritiesLoadedAt == Long.MIN_VALUE || now - celebritiesLoadedAt > maxAgeNanos;
+    }
+
+    void setCelebrities(Set<String> celebrities, long now) {
+        this.celebrities = celebrities;
+        this.celebritiesLoadedAt = now;
+    }
+
+    static boolean isAfter(Timeline.Entry entry, KeysetCursor cursor) {
+        int byTime = entry.getCreatedAt().compareTo(cursor.getTimestamp());
+        return byTime < 0 || (byTime == 0 && entry.getPostId().compareTo(cursor.getId()) < 0);
+    }
+
+    private void trim() {
+        while (entries.size() > capacity) {
+            entries.remove(entries.size() - 1);
+        }
+    }
+}
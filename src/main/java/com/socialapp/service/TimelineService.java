@@ -0,0 +1,245 @@
+package com.socialapp.service;
+
+import com.socialapp.dto.CursorPage;
+import com.socialapp.dto.PostSummary;
+import com.socialapp.event.PostCreatedEvent;
+import com.socialapp.model.Post;
+import com.socialapp.model.Timeline;
+import com.socialapp.model.User;
+import com.socialapp.util.KeysetCursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Service class that builds users' home timelines.
+ * <p>
+ * When a post is created its id is pushed onto the timelines of the author and of
+ * every friend (fan-out on write), both in memory and in the "timelines" collection.
+ * Authors with more than {@code socialapp.timeline.fanout-limit} friends are skipped
+ * at write time; their posts are instead merged into their friends' timelines when
+ * those are read (fan-out on read), so one popular author cannot trigger millions
+ * of writes.
+ */
+@Service
+public class TimelineService {
+
+    private static final Sort ENTRY_ORDER = Sort.by(Sort.Direction.DESC, "createdAt", "postId");
+
+    private final MongoTemplate mongoTemplate;
+    private final PostService postService;
+    private final int capacity;
+    private final int fanoutLimit;
+    private final long celebrityRefreshNanos;
+    private final PageSizes pageSizes;
+    private final Map<String, TimelineBuffer> buffers;
+
+    public TimelineService(MongoTemplate mongoTemplate, PostService postService,
+                           @Value("${socialapp.timeline.capacity:500}") int capacity,
+                           @Value("${socialapp.timeline.fanout-limit:5000}") int fanoutLimit,
+                           @Value("${socialapp.timeline.cached-users:10000}") int cachedUsers,
+                           @Value("${socialapp.timeline.celebrity-refresh:PT1M}") Duration celebrityRefresh,
+                           PageSizes pageSizes) {
+        this.mongoTemplate = mongoTemplate;
+        this.postService = postService;
+        this.capacity = capacity;
+        this.fanoutLimit = fanoutLimit;
+        this.celebrityRefreshNanos = celebrityRefresh.toNanos();
+        this.pageSizes = pageSizes;
+        // Access-ordered map that evicts the least recently read timeline once full.
+        this.buffers = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TimelineBuffer> eldest) {
+                return size() > cachedUsers;
+            }
+        });
+    }
+
+    /**
+     * Pushes a newly created post onto the timelines of its author and the author's friends.
+     * <p>
+     * It runs asynchronously so that creating a post does not wait for the fan-out.
+     *
+     * @param event The event carrying the saved post.
+     */
+    @Async
+    @EventListener
+    public void onPostCreated(PostCreatedEvent event) {
+        Post post = event.getPost();
+        Timeline.Entry entry = new Timeline.Entry(post.getId(), post.getCreatedAt());
+
+        Set<String> owners = new LinkedHashSet<>();
+        owners.add(post.getAuthorId());
+        // Probed first, so the friends array of an author above the limit is never loaded.
+        if (!isAboveFanoutLimit(post.getAuthorId())) {
+            owners.addAll(getFriends(post.getAuthorId()));
+        }
+
+        BulkOperations pushes = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Timeline.class);
+        for (String owner : owners) {
+            pushes.upsert(new Query(Criteria.where("_id").is(owner)),
+                    new Update().push("entries").sort(ENTRY_ORDER).slice(capacity).each(entry));
+        }
+        pushes.execute();
+
+        // Only timelines that are already cached are updated; the others load the new entry from MongoDB.
+        for (String owner : owners) {
+            TimelineBuffer buffer = buffers.get(owner);
+            if (buffer != null) {
+                buffer.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Retrieves one page of a user's home timeline, newest first.
+     * <p>
+     * The page combines the entries fanned out to the user with the recent posts of
+     * friends who are above the fan-out limit.
+     *
+     * @param userId The unique Id of the user whose timeline is to be retrieved.
+     * @param cursor The cursor returned with the previous page, or {@code null} for the first page.
+     * @param size   The requested page size, or {@code null} for the configured default.
+     * @return A {@link CursorPage} of post summaries and the cursor of the next page.
+     */
+    public CursorPage<PostSummary> getFeed(String userId, String cursor, Integer size) {
+        int limit = pageSizes.clamp(size);
+        KeysetCursor position = KeysetCursor.decode(cursor);
+        TimelineBuffer buffer = getBuffer(userId);
+
+        List<Timeline.Entry> entries = buffer.page(position, limit + 1);
+        Set<String> celebrities = getCelebrities(userId, buffer);
+        if (!celebrities.isEmpty()) {
+            entries = merge(entries, getRecentPosts(celebrities, position, limit + 1), limit + 1);
+        }
+
+        String nextCursor = null;
+        if (entries.size() > limit) {
+            entries = entries.subList(0, limit);
+            Timeline.Entry last = entries.get(limit - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getPostId()).encode();
+        }
+        List<String> postIds = entries.stream().map(Timeline.Entry::getPostId).toList();
+        return new CursorPage<>(postService.getSummaries(postIds), nextCursor);
+    }
+
+    /**
+     * Returns the cached timeline of a user, loading it from MongoDB on a miss.
+     * <p>
+     * The load happens outside the cache lock so that one slow read does not block other users.
+     * A fan-out that ran between the load and the insert skipped the buffer, as it was not
+     * cached yet, but had already pushed its entry to MongoDB; the timeline is read again
+     * once the buffer is cached, so that entry is not lost.
+     */
+    private TimelineBuffer getBuffer(String userId) {
+        TimelineBuffer buffer = buffers.get(userId);
+        if (buffer != null) {
+            return buffer;
+        }
+        TimelineBuffer loaded = new TimelineBuffer(capacity, loadEntries(userId));
+        TimelineBuffer raced = buffers.putIfAbsent(userId, loaded);
+        if (raced != null) {
+            return raced;
+        }
+        loadEntries(userId).forEach(loaded::add);
+        return loaded;
+    }
+
+    private List<Timeline.Entry> loadEntries(String userId) {
+        Timeline timeline = mongoTemplate.findById(userId, Timeline.class);
+        return timeline == null ? List.of() : timeline.getEntries();
+    }
+
+    /**
+     * Returns the friends of a user whose posts are not fanned out, refreshing them periodically.
+     * <p>
+     * A friend is above the fan-out limit when their {@code friends} array has an element
+     * at index {@code fanoutLimit}, which MongoDB can check without returning the array.
+     */
+    private Set<String> getCelebrities(String userId, TimelineBuffer buffer) {
+        long now = System.nanoTime();
+        if (buffer.celebritiesOlderThan(celebrityRefreshNanos, now)) {
+            List<String> friends = getFriends(userId);
+            Set<String> celebrities = Set.of();
+            if (!friends.isEmpty()) {
+                Query query = new Query(Criteria.where("_id").in(friends).and("friends." + fanoutLimit).exists(true));
+                query.fields().include("_id");
+                celebrities = mongoTemplate.find(query, User.class).stream()
+                        .map(User::getId)
+                        .collect(Collectors.toUnmodifiableSet());
+            }
+            buffer.setCelebrities(celebrities, now);
+        }
+        return buffer.getCelebrities();
+    }
+
+    /**
+     * Reads the most recent posts of the given authors after the cursor, as timeline entries.
+     */
+    private List<Timeline.Entry> getRecentPosts(Set<String> authorIds, KeysetCursor cursor, int limit) {
+        Criteria criteria = Criteria.where("authorId").in(authorIds);
+        if (cursor != null) {
+            criteria = new Criteria().andOperator(criteria, cursor.after("createdAt"));
+        }
+        Query query = new Query(criteria).with(KeysetCursor.sort("createdAt")).limit(limit);
+        query.fields().include("createdAt");
+        return mongoTemplate.find(query, Post.class).stream()
+                .map(post -> new Timeline.Entry(post.getId(), post.getCreatedAt()))
+                .toList();
+    }
+
+    /**
+     * Merges two newest-first lists of entries, dropping duplicates, up to {@code limit} entries.
+     */
+    private List<Timeline.Entry> merge(List<Timeline.Entry> left, List<Timeline.Entry> right, int limit) {
+        List<Timeline.Entry> merged = new ArrayList<>(Math.min(limit, left.size() + right.size()));
+        Set<String> seen = new HashSet<>();
+        int i = 0;
+        int j = 0;
+        while (merged.size() < limit && (i < left.size() || j < right.size())) {
+            Timeline.Entry next;
+            if (j >= right.size() || (i < left.size() && TimelineBuffer.NEWEST_FIRST.compare(left.get(i), right.get(j)) <= 0)) {
+                next = left.get(i++);
+            } else {
+                next = right.get(j++);
+            }
+            if (seen.add(next.getPostId())) {
+                merged.add(next);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Whether a user has more than {@code fanoutLimit} friends, checked without returning the array.
+     */
+    private boolean isAboveFanoutLimit(String userId) {
+        Query query = new Query(Criteria.where("_id").is(userId).and("friends." + fanoutLimit).exists(true));
+        return mongoTemplate.exists(query, User.class);
+    }
+
+    private List<String> getFriends(String userId) {
+        Query query = new Query(Criteria.where("_id").is(userId));
+        query.fields().include("friends");
+        User user = mongoTemplate.findOne(query, User.class);
+        return user == null ? List.of() : user.getFriends();
+    }
+}
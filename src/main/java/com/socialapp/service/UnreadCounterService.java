@@ -0,0 +1,216 @@
+package com.socialapp.service;
+
+import com.socialapp.dto.UnreadCount;
+import com.socialapp.model.Message;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service class that keeps unread message counts in memory.
+ * <p>
+ * Each receiver has a total and one counter per conversation, all of them
+ * {@link LongAdder}s so that concurrent senders do not contend on a single value.
+ * The counters are rebuilt from the unread messages on startup and updated by
+ * {@link MessageService} as messages are sent and read. The unread messages are the
+ * only record kept: the rebuild counts them exactly through the partial
+ * {@code receiver_unread} index, which a saved copy of the counters could not do,
+ * since reads leave no trace to replay after it.
+ * <p>
+ * Counters that drop to zero are evicted every {@code socialapp.unread.sweep-interval},
+ * so memory follows the receivers with unread messages rather than every receiver
+ * seen since startup. Senders update the adders without a lock, so an update may
+ * land on a counter just after it was evicted; an evicted counter is therefore checked
+ * again on the next sweep and whatever reached it is added back.
+ * <p>
+ * The counters live in this node's memory, so they are only correct when the application
+ * runs as a single node. With several nodes, each one only sees the sends and reads it
+ * handles: a message sent through one node and read through another leaves the first
+ * node's count too high and clamps the second's at zero, and rebuilding on startup does
+ * not keep them in step afterwards. The same holds for the {@link FriendGraphService friend graph}
+ * and the {@link UserSearchService user} and {@link PostSearchService post} search indexes.
+ */
+@Service
+@DependsOn("indexVerifier")
+public class UnreadCounterService {
+
+    private static final Logger log = LoggerFactory.getLogger(UnreadCounterService.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final Map<String, ReceiverCounters> counters = new ConcurrentHashMap<>();
+    // Only touched by sweep(), which never runs concurrently with itself.
+    private List<Evicted> evicted = new ArrayList<>();
+
+    public UnreadCounterService(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * Counts the unread messages of every receiver and conversation with one aggregation.
+     * <p>
+     * It runs before the web server accepts requests, so no update can race with it.
+     */
+    @PostConstruct
+    public void rebuild() {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("isRead").is(false)),
+                Aggregation.group("receiverId", "conversationId").count().as("count"));
+        counters.clear();
+        mongoTemplate.aggregate(aggregation, Message.class, Document.class).forEach(row -> {
+            Document key = row.get("_id", Document.class);
+            ReceiverCounters receiver = counters.computeIfAbsent(key.getString("receiverId"), id -> new ReceiverCounters());
+            receiver.add(key.getString("conversationId"), ((Number) row.get("count")).longValue());
+        });
+        log.info("Rebuilt unread counters for {} receivers", counters.size());
+    }
+
+    /**
+     * Counts a newly sent message as unread.
+     *
+     * @param message The sent {@link Message}.
+     */
+    public void increment(Message message) {
+        add(message.getReceiverId(), message.getConversationId(), 1);
+    }
+
+    /**
+     * Discounts messages that have been read.
+     *
+     * @param receiverId     The unique Id of the user who read the messages.
+     * @param conversationId The identifier of the conversation they belong to.
+     * @param count          The number of messages that changed from unread to read.
+     */
+    public void decrement(String receiverId, String conversationId, long count) {
+        if (count > 0) {
+            add(receiverId, conversationId, -count);
+        }
+    }
+
+    /**
+     * Reads the unread counts of a user from memory.
+     *
+     * @param receiverId The unique Id of the user.
+     * @return The total and per-conversation unread counts.
+     */
+    public UnreadCount getUnreadCount(String receiverId) {
+        ReceiverCounters receiver = counters.get(receiverId);
+        if (receiver == null) {
+            return new UnreadCount(receiverId, 0, Map.of());
+        }
+        return new UnreadCount(receiverId, receiver.total(), receiver.conversations());
+    }
+
+    /**
+     * The number of receivers with counters in memory.
+     */
+    int receiverCount() {
+        return counters.size();
+    }
+
+    /**
+     * Adds back what reached the counters evicted by the previous sweep, then evicts the counters now at zero.
+     */
+    @Scheduled(fixedDelayString = "${socialapp.unread.sweep-interval:PT1M}")
+    public void sweep() {
+        evicted.forEach(this::restore);
+        List<Evicted> now = new ArrayList<>();
+        counters.forEach((receiverId, receiver) -> {
+            if (receiver.isEmpty()) {
+                if (counters.remove(receiverId, receiver)) {
+                    now.add(new Evicted(receiverId, receiver, null, null));
+                }
+                return;
+            }
+            receiver.conversations.forEach((conversationId, count) -> {
+                if (count.sum() == 0 && receiver.conversations.remove(conversationId, count)) {
+                    now.add(new Evicted(receiverId, null, conversationId, count));
+                }
+            });
+        });
+        evicted = now;
+    }
+
+    private void restore(Evicted entry) {
+        if (entry.receiver() == null) {
+            long late = entry.count().sum();
+            if (late != 0) {
+                // The receiver's total already has these updates.
+                counters.computeIfAbsent(entry.receiverId(), id -> new ReceiverCounters())
+                        .conversation(entry.conversationId()).add(late);
+            }
+            return;
+        }
+        if (!entry.receiver().isEmpty()) {
+            ReceiverCounters live = counters.computeIfAbsent(entry.receiverId(), id -> new ReceiverCounters());
+            live.total.add(entry.receiver().total.sum());
+            entry.receiver().conversations.forEach((conversationId, count) -> live.conversation(conversationId).add(count.sum()));
+        }
+    }
+
+    private void add(String receiverId, String conversationId, long delta) {
+        counters.computeIfAbsent(receiverId, id -> new ReceiverCounters()).add(conversationId, delta);
+    }
+
+    /**
+     * A receiver, or one conversation of a receiver, evicted by the last sweep.
+     *
+     * @param receiver       The evicted receiver, or {@code null} when only a conversation was evicted.
+     * @param conversationId The evicted conversation.
+     * @param count          The counter of the evicted conversation.
+     */
+    private record Evicted(String receiverId, ReceiverCounters receiver, String conversationId, LongAdder count) {
+    }
+
+    /**
+     * The counters of one receiver.
+     */
+    private static final class ReceiverCounters {
+
+        private final LongAdder total = new LongAdder();
+        private final Map<String, LongAdder> conversations = new ConcurrentHashMap<>();
+
+        void add(String conversationId, long delta) {
+            total.add(delta);
+            if (conversationId != null) {
+                conversation(conversationId).add(delta);
+            }
+        }
+
+        LongAdder conversation(String conversationId) {
+            return conversations.computeIfAbsent(conversationId, id -> new LongAdder());
+        }
+
+        boolean isEmpty() {
+            return total.sum() == 0 && conversations.values().stream().allMatch(count -> count.sum() == 0);
+        }
+
+        long total() {
+            return Math.max(0, total.sum());
+        }
+
+        Map<String, Long> conversations() {
+            Map<String, Long> snapshot = new HashMap<>();
+            conversations.forEach((conversationId, count) -> {
+                long value = count.sum();
+                if (value > 0) {
+                    snapshot.put(conversationId, value);
+                }
+            });
+            return snapshot;
+        }
+    }
+}
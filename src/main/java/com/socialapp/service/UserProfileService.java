@@ -0,0 +1,256 @@
+package com.socialapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.socialapp.dto.CursorPage;
+import com.socialapp.dto.UserProfile;
+import com.socialapp.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+/**
+ * Service class that serves {@link UserProfile}s through a read-through cache.
+ * <p>
+ * The cache is a Caffeine cache (W-TinyLFU eviction) bounded by the approximate
+ * memory footprint of its profiles, {@code socialapp.users.profile-cache.max-weight}
+ * bytes. Concurrent misses on the same user share one load, and the misses of a
+ * batch lookup are loaded together with a single {@code $in} query. Entries are
+ * invalidated by {@link UserService} when a user is saved, and expire after
+ * {@code socialapp.users.profile-cache.expire-after-write} in case another node
+ * changed them.
+ * <p>
+ * A batch lookup may name at most {@code socialapp.users.profiles.max-ids} users.
+ * <p>
+ * It also lists the user directory, page by page or as an NDJSON stream, reading the
+ * same projection straight from MongoDB.
+ */
+@Service
+public class UserProfileService {
+
+    /**
+     * Rough per-entry overhead of the cache node, the profile object and its strings, in bytes.
+     */
+    private static final int ENTRY_OVERHEAD = 160;
+    private static final int EXPORT_BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final ObjectWriter profileWriter;
+    private final PageSizes pageSizes;
+    private final int maxIds;
+    private final AsyncLoadingCache<String, UserProfile> profiles;
+
+    public UserProfileService(MongoTemplate mongoTemplate, MeterRegistry meterRegistry, ObjectMapper objectMapper,
+                              Environment environment,
+                              @Value("${socialapp.users.profile-cache.max-weight:67108864}") long maxWeight,
+                              @Value("${socialapp.users.profile-cache.expire-after-write:PT10M}") Duration expireAfterWrite,
+                              PageSizes pageSizes,
+                              @Value("${socialapp.users.profiles.max-ids:100}") int maxIds) {
+        this.mongoTemplate = mongoTemplate;
+        this.profileWriter = objectMapper.writerFor(UserProfile.class);
+        this.pageSizes = pageSizes;
+        this.maxIds = maxIds;
+        this.profiles = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((String id, UserProfile profile) -> weigh(profile))
+                .expireAfterWrite(expireAfterWrite)
+                .executor(loadExecutor(environment))
+                .recordStats()
+                .buildAsync(new ProfileLoader());
+        CaffeineCacheMetrics.monitor(meterRegistry, profiles.synchronous(), "userProfiles");
+    }
+
+    /**
+     * Retrieves the profile of a user.
+     *
+     * @param userId The unique Id of the user.
+     * @return The {@link UserProfile} of the user.
+     * @throws ResponseStatusException with status 404 if the user does not exist.
+     */
+    public UserProfile getProfile(String userId) {
+        UserProfile profile = profiles.synchronous().get(userId);
+        if (profile == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found: " + userId);
+        }
+        return profile;
+    }
+
+    /**
+     * Retrieves the profiles of several users, loading all cache misses with one query.
+     *
+     * @param userIds The unique Ids of the users, in the order they should be returned.
+     * @return The profiles of the users that exist, in the order of {@code userIds}.
+     * @throws ResponseStatusException with status 400 if more than the configured maximum of ids are given.
+     */
+    public List<UserProfile> getProfiles(List<String> userIds) {
+        if (userIds.size() > maxIds) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxIds + " user ids may be requested at once");
+        }
+        return lookup(userIds);
+    }
+
+    /**
+     * Retrieves one page of a user's friends, in id order, reading only the {@code friends} field of the user.
+     *
+     * @param userId The unique Id of the user.
+     * @param after  The cursor returned with the previous page, or {@code null} for the first page.
+     * @param limit  The requested page size, or {@code null} for the configured default.
+     * @return A {@link CursorPage} of the friends' profiles and the cursor of the next page.
+     * @throws ResponseStatusException with status 404 if the user does not exist.
+     */
+    public CursorPage<UserProfile> getFriends(String userId, String after, Integer limit) {
+        int size = pageSizes.clamp(limit);
+        Query query = new Query(Criteria.where("_id").is(userId));
+        query.fields().include("friends");
+        User user = mongoTemplate.findOne(query, User.class);
+        if (user == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "User not found: " + userId);
+        }
+        List<String> friendIds = user.getFriends().stream()
+                .filter(id -> after == null || after.isBlank() || id.compareTo(after) > 0)
+                .sorted()
+                .limit(size + 1)
+                .toList();
+        if (friendIds.size() <= size) {
+            return new CursorPage<>(lookup(friendIds), null);
+        }
+        List<String> page = friendIds.subList(0, size);
+        return new CursorPage<>(lookup(page), page.get(size - 1));
+    }
+
+    /**
+     * Retrieves one page of the user directory, in id order.
+     * <p>
+     * The page is read through the {@code _id} index and only the profile fields are
+     * returned, so the cost of a page does not depend on the number of users.
+     *
+     * @param after The cursor returned with the previous page, or {@code null} for the first page.
+     * @param limit The requested page size, or {@code null} for the configured default.
+     * @return A {@link CursorPage} of profiles and the cursor of the next page.
+     */
+    public CursorPage<UserProfile> getDirectory(String after, Integer limit) {
+        int size = pageSizes.clamp(limit);
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "_id")).limit(size + 1);
+        if (after != null && !after.isBlank()) {
+            query.addCriteria(Criteria.where("_id").gt(after));
+        }
+        List<UserProfile> users = mongoTemplate.query(User.class).as(UserProfile.class).matching(query).all();
+        if (users.size() <= size) {
+            return new CursorPage<>(users, null);
+        }
+        List<UserProfile> page = users.subList(0, size);
+        return new CursorPage<>(page, page.get(size - 1).getId());
+    }
+
+    /**
+     * Writes the profile of every user as newline-delimited JSON, one user per line.
+     * <p>
+     * Users are read from a cursor in batches and each line is written as soon as it is
+     * read, so memory use does not grow with the number of users.
+     *
+     * @param out The stream to write to. It is flushed but not closed.
+     * @throws IOException if the stream cannot be written, for example because the client went away.
+     */
+    public void exportProfiles(OutputStream out) throws IOException {
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "_id")).cursorBatchSize(EXPORT_BATCH_SIZE);
+        BufferedOutputStream buffered = new BufferedOutputStream(out);
+        try (Stream<UserProfile> users = mongoTemplate.query(User.class).as(UserProfile.class).matching(query).stream()) {
+            for (UserProfile profile : (Iterable<UserProfile>) users::iterator) {
+                buffered.write(profileWriter.writeValueAsBytes(profile));
+                buffered.write('\n');
+            }
+        }
+        buffered.flush();
+    }
+
+    /**
+     * Drops the cached profile of a user after it changed.
+     *
+     * @param userId The unique Id of the user.
+     */
+    public void invalidate(String userId) {
+        profiles.synchronous().invalidate(userId);
+    }
+
+    /**
+     * Runs cache loads on the calling thread, while other callers of the same key wait on its future.
+     * <p>
+     * Caffeine starts a load inside the compute of its map, which holds a monitor, so a
+     * virtual thread running the query there would pin its carrier for the whole round
+     * trip. With virtual threads each load gets its own thread instead, and callers wait
+     * on the future outside the monitor.
+     */
+    private static Executor loadExecutor(Environment environment) {
+        return Threading.VIRTUAL.isActive(environment) ? Executors.newVirtualThreadPerTaskExecutor() : Runnable::run;
+    }
+
+    private List<UserProfile> lookup(List<String> userIds) {
+        if (userIds.isEmpty()) {
+            return List.of();
+        }
+        Map<String, UserProfile> found = profiles.synchronous().getAll(Set.copyOf(userIds));
+        return userIds.stream()
+                .map(found::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private static int weigh(UserProfile profile) {
+        int chars = length(profile.getId()) + length(profile.getUsername())
+                + length(profile.getName()) + length(profile.getProfilePhotoId());
+        return ENTRY_OVERHEAD + 2 * chars;
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    /**
+     * Loads profiles as projections, so the password hash and other fields are never read.
+     */
+    private final class ProfileLoader implements CacheLoader<String, UserProfile> {
+
+        @Override
+        public UserProfile load(String userId) {
+            return mongoTemplate.query(User.class).as(UserProfile.class)
+                    .matching(new Query(Criteria.where("_id").is(userId)))
+                    .oneValue();
+        }
+
+        @Override
+        public Map<String, UserProfile> loadAll(Set<? extends String> userIds) {
+            Map<String, UserProfile> loaded = new HashMap<>();
+            mongoTemplate.query(User.class).as(UserProfile.class)
+                    .matching(new Query(Criteria.where("_id").in(userIds)))
+                    .all()
+                    .forEach(profile -> loaded.put(profile.getId(), profile));
+            return loaded;
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.socialapp.service;
+
+import com.socialapp.util.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory prefix index over the usernames and names of users, kept by {@link UserSearchService}.
+ * <p>
+ * Every username and every word of a name is normalized (lower case, accents removed)
+ * into a term, and the terms are kept in a sorted map, so the terms starting with a
+ * prefix are one contiguous range. Each term holds the sorted {@code int} ids of the
+ * users it belongs to. A query starts from its most selective word and visits at most
+ * {@code scanLimit} of its users, taking the terms in order from the word itself, which
+ * bounds its cost however common the prefix is. The other words are checked against the
+ * terms of those users only, so a common word such as "john" never cuts off the users a
+ * rarer word such as "smi" would have matched.
+ * <p>
+ * A user matches when every word of the query is a prefix of one of their terms.
+ * Users are ranked by how closely the words match: a username counts more than a
+ * name, a whole word more than a prefix, and a short term more than a long one.
+ */
+final class UserSearchIndex {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Term> terms = new TreeMap<>();
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private String[] userIds = new String[1024];
+    private String[] usernameTerms = new String[1024];
+    private String[] names = new String[1024];
+    private int size;
+
+    /**
+     * A user returned by {@link #search}, with the score it was ranked by.
+     */
+    record Hit(String userId, double score) {
+    }
+
+    /**
+     * Adds a user, or replaces the username and name indexed for them.
+     */
+    void put(String userId, String username, String name) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = indexes.get(userId);
+            int user;
+            if (existing != null) {
+                user = existing;
+                removeTerms(user);
+            } else {
+                user = size++;
+                if (user == userIds.length) {
+                    userIds = Arrays.copyOf(userIds, user * 2);
+                    usernameTerms = Arrays.copyOf(usernameTerms, user * 2);
+                    names = Arrays.copyOf(names, user * 2);
+                }
+                userIds[user] = userId;
+                indexes.put(userId, user);
+            }
+            usernameTerms[user] = TextNormalizer.normalize(username);
+            names[user] = name;
+            for (String term : termsOf(username, name)) {
+                terms.computeIfAbsent(term, t -> new Term()).add(user);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the users matching a query, best match first.
+     *
+     * @param query     The words to look for; the last one may be incomplete.
+     * @param limit     The maximum number of users returned.
+     * @param scanLimit The maximum number of users visited for the most selective word of the query.
+     * @return The matching users and their scores.
+     */
+    List<Hit> search(String query, int limit, int scanLimit) {
+        Set<String> words = tokenize(query);
+        if (words.isEmpty() || limit < 1) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            List<String> bySelectivity = new ArrayList<>(words);
+            Map<String, Integer> counts = new HashMap<>();
+            bySelectivity.forEach(word -> counts.put(word, count(word, scanLimit)));
+            bySelectivity.sort(Comparator.comparing(counts::get));
+
+            Scores scores = match(bySelectivity.get(0), scanLimit);
+            List<String> rest = bySelectivity.subList(1, bySelectivity.size());
+            if (!rest.isEmpty()) {
+                scores = scores.filter((user, score) -> {
+                    double others = matchTerms(user, rest);
+                    return others < 0 ? -1 : score + others;
+                });
+            }
+            return scores.isEmpty() ? List.of() : top(scores, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int userCount() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int termCount() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the users of the terms starting with {@code word}, stopping once there are more than {@code scanLimit}.
+     * Requires the read lock.
+     */
+    private int count(String word, int scanLimit) {
+        int count = 0;
+        for (Map.Entry<String, Term> entry : terms.tailMap(word, true).entrySet()) {
+            if (!entry.getKey().startsWith(word) || count > scanLimit) {
+                break;
+            }
+            count += entry.getValue().count;
+        }
+        return count;
+    }
+
+    /**
+     * Scores every user with a term starting with {@code word}, keeping each user's best term. Requires the read lock.
+     */
+    private Scores match(String word, int scanLimit) {
+        Scores matches = new Scores(Math.min(scanLimit, 1024));
+        int scanned = 0;
+        for (Map.Entry<String, Term> entry : terms.tailMap(word, true).entrySet()) {
+            String term = entry.getKey();
+            if (!term.startsWith(word) || scanned >= scanLimit) {
+                break;
+            }
+            Term users = entry.getValue();
+            for (int i = 0; i < users.count && scanned < scanLimit; i++, scanned++) {
+                int user = users.users[i];
+                matches.max(user, score(word, term, user));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Scores the given words against the terms of one user. Requires the read lock.
+     *
+     * @return The sum of the best score of each word, or a negative value if a word matches none of the terms.
+     */
+    private double matchTerms(int user, List<String> words) {
+        Set<String> userTerms = termsOf(usernameTerms[user], names[user]);
+        double total = 0;
+        for (String word : words) {
+            double best = -1;
+            for (String term : userTerms) {
+                if (term.startsWith(word)) {
+                    best = Math.max(best, score(word, term, user));
+                }
+            }
+            if (best < 0) {
+                return -1;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    /**
+     * How closely a word matches a term of a user: whole words beat prefixes and usernames count twice.
+     */
+    private double score(String word, String term, int user) {
+        double closeness = (double) word.length() / term.length() + (term.length() == word.length() ? 1 : 0);
+        return term.equals(usernameTerms[user]) ? 2 * closeness : closeness;
+    }
+
+    /**
+     * Selects the {@code limit} best users with a small sorted array, without sorting every match. Requires the read lock.
+     */
+    private List<Hit> top(Scores scores, int limit) {
+        int[] best = new int[Math.min(limit, scores.size)];
+        double[] bestScores = new double[best.length];
+        int[] count = {0};
+        scores.forEach((user, score) -> {
+            int position = count[0];
+            while (position > 0 && ranksBefore(user, score, best[position - 1], bestScores[position - 1])) {
+                position--;
+            }
+            if (position == best.length) {
+                return;
+            }
+            int moved = Math.min(count[0], best.length - 1) - position;
+            System.arraycopy(best, position, best, position + 1, moved);
+            System.arraycopy(bestScores, position, bestScores, position + 1, moved);
+            best[position] = user;
+            bestScores[position] = score;
+            count[0] = Math.min(count[0] + 1, best.length);
+        });
+        List<Hit> hits = new ArrayList<>(count[0]);
+        for (int i = 0; i < count[0]; i++) {
+            hits.add(new Hit(userIds[best[i]], bestScores[i]));
+        }
+        return hits;
+    }
+
+    /**
+     * Higher score first, then shorter username, then user id.
+     */
+    private boolean ranksBefore(int user, double score, int other, double otherScore) {
+        if (score != otherScore) {
+            return score > otherScore;
+        }
+        int length = usernameTerms[user].length();
+        int otherLength = usernameTerms[other].length();
+        if (length != otherLength) {
+            return length < otherLength;
+        }
+        return userIds[user].compareTo(userIds[other]) < 0;
+    }
+
+    /**
+     * Unlinks a user from the terms of their current username and name. Requires the write lock.
+     */
+    private void removeTerms(int user) {
+        for (String term : termsOf(usernameTerms[user], names[user])) {
+            Term entry = terms.get(term);
+            if (entry != null && entry.remove(user)) {
+                terms.remove(term);
+            }
+        }
+    }
+
+    private static Set<String> termsOf(String username, String name) {
+        Set<String> terms = new LinkedHashSet<>();
+        String normalizedUsername = TextNormalizer.normalize(username);
+        if (!normalizedUsername.isEmpty()) {
+            terms.add(normalizedUsername);
+        }
+        terms.addAll(tokenize(name));
+        return terms;
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> words = new LinkedHashSet<>();
+        String normalized = TextNormalizer.normalize(text);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && isWordChar(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+    }
+
+    /**
+     * The sorted ids of the users sharing a term, in a growable array. Guarded by the index lock.
+     */
+    private static final class Term {
+
+        private int[] users = new int[1];
+        private int count;
+
+        void add(int user) {
+            int position = Arrays.binarySearch(users, 0, count, user);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (count == users.length) {
+                users = Arrays.copyOf(users, count * 2);
+            }
+            System.arraycopy(users, position, users, position + 1, count - position);
+            users[position] = user;
+            count++;
+        }
+
+        /**
+         * @return {@code true} if no user is left.
+         */
+        boolean remove(int user) {
+            int position = Arrays.binarySearch(users, 0, count, user);
+            if (position >= 0) {
+                System.arraycopy(users, position + 1, users, position, count - position - 1);
+                count--;
+            }
+            return count == 0;
+        }
+    }
+
+    /**
+     * Open-addressing map from user ids to scores, so scoring matches does not box them.
+     */
+    private static final class Scores {
+
+        private static final int EMPTY = -1;
+
+        private int[] keys;
+        private double[] values;
+        private int size;
+
+        Scores(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(expected, 8) * 2 - 1) << 1;
+            keys = new int[capacity];
+            values = new double[capacity];
+            Arrays.fill(keys, EMPTY);
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        /**
+         * Records a score for a user, keeping the higher one if the user already has a score.
+         */
+        void max(int key, double value) {
+            int slot = slot(key);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size * 2 > keys.length) {
+                    grow();
+                }
+            } else if (value > values[slot]) {
+                values[slot] = value;
+            }
+        }
+
+        /**
+         * Rescores every user, dropping those whose new score is negative.
+         */
+        Scores filter(IntDoubleOperator rescore) {
+            Scores result = new Scores(size);
+            forEach((key, value) -> {
+                double score = rescore.apply(key, value);
+                if (score >= 0) {
+                    result.max(key, score);
+                }
+            });
+            return result;
+        }
+
+        void forEach(IntDoubleConsumer consumer) {
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != EMPTY) {
+                    consumer.accept(keys[slot], values[slot]);
+                }
+            }
+        }
+
+        private int slot(int key) {
+            int mask = keys.length - 1;
+            int h = key * 0x9E3779B9;
+            int slot = (h ^ (h >>> 16)) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            double[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new double[oldKeys.length * 2];
+            Arrays.fill(keys, EMPTY);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    max(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface IntDoubleConsumer {
+        void accept(int key, double value);
+    }
+
+    @FunctionalInterface
+    private interface IntDoubleOperator {
+        double apply(int key, double value);
+    }
+}
@@ -0,0 +1,95 @@
+package com.socialapp.service;
+
+import com.socialapp.dto.UserProfile;
+import com.socialapp.event.UserChangedEvent;
+import com.socialapp.model.User;
+import jakarta.annotation.PostConstruct;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Service class that finds users by username or name from an in-memory {@link UserSearchIndex}.
+ * <p>
+ * The index is built from the "users" collection on startup and updated from the
+ * {@link UserChangedEvent}s published by {@link UserService}, so searching never
+ * queries MongoDB except to load the profiles of the matches, which usually come
+ * from the profile cache.
+ * <p>
+ * The index only sees users saved through this node, so it is only correct on a
+ * single node; see {@link UnreadCounterService}.
+ */
+@Service
+@DependsOn("indexVerifier")
+public class UserSearchService {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSearchService.class);
+    private static final int BATCH_SIZE = 1000;
+
+    private final MongoTemplate mongoTemplate;
+    private final UserProfileService userProfileService;
+    private final UserSearchIndex index = new UserSearchIndex();
+    private final int defaultLimit;
+    private final int maxLimit;
+    private final int scanLimit;
+
+    public UserSearchService(MongoTemplate mongoTemplate, UserProfileService userProfileService,
+                             @Value("${socialapp.users.search.limit:10}") int defaultLimit,
+                             @Value("${socialapp.users.search.max-limit:50}") int maxLimit,
+                             @Value("${socialapp.users.search.scan-limit:5000}") int scanLimit) {
+        this.mongoTemplate = mongoTemplate;
+        this.userProfileService = userProfileService;
+        this.defaultLimit = defaultLimit;
+        this.maxLimit = maxLimit;
+        this.scanLimit = scanLimit;
+    }
+
+    /**
+     * Indexes the username and name of every user, read with a cursor.
+     * <p>
+     * It runs before the web server accepts requests, so no saved user can be missed.
+     */
+    @PostConstruct
+    public void rebuild() {
+        Query query = new Query().cursorBatchSize(BATCH_SIZE);
+        query.fields().include("username", "name");
+        try (Stream<Document> users = mongoTemplate.stream(query, Document.class, mongoTemplate.getCollectionName(User.class))) {
+            users.forEach(user -> index.put(user.get("_id").toString(), user.getString("username"), user.getString("name")));
+        }
+        log.info("Indexed {} users under {} search terms", index.userCount(), index.termCount());
+    }
+
+    /**
+     * Re-indexes a user after they were saved.
+     *
+     * @param event The event carrying the saved username and name.
+     */
+    @EventListener
+    public void onUserChanged(UserChangedEvent event) {
+        index.put(event.getUserId(), event.getUsername(), event.getName());
+    }
+
+    /**
+     * Finds users whose username or name words start with the words of a query, best match first.
+     *
+     * @param query The text to search for.
+     * @param limit The requested number of results, or {@code null} for the configured default.
+     * @return The profiles of the matching users.
+     */
+    public List<UserProfile> search(String query, Integer limit) {
+        int size = limit == null ? defaultLimit : Math.min(Math.max(limit, 1), maxLimit);
+        List<String> userIds = index.search(query, size, scanLimit).stream()
+                .map(UserSearchIndex.Hit::userId)
+                .toList();
+        return userProfileService.getProfiles(userIds);
+    }
+}
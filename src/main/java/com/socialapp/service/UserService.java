@@ -1,11 +1,30 @@
 package com.socialapp.service;
 
 
+import com.socialapp.dto.UserProfile;
+import com.socialapp.event.UserChangedEvent;
 import com.socialapp.model.User;
 import com.socialapp.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.env.Environment;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 
 /**
@@ -13,32 +32,95 @@ import org.springframework.stereotype.Service;
  * <p>
  * This includes user creation, profile management, and social interactions
  * like managing friend lists.
+ * <p>
+ * Passwords are hashed on the CPU-sized pool of the {@link PasswordHashingService}; the
+ * database work that follows a hash runs on a separate executor, so a slow save never
+ * holds a hashing worker. That executor needs no bound of its own: at most the hashing
+ * pool and its queue can be waiting for it.
  */
 @Service
 public class UserService {
 
     private final UserRepository userRepository;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final FriendGraphService friendGraphService;
+    private final UserProfileService userProfileService;
+    private final MongoTemplate mongoTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ExecutorService storeExecutor;
 
     @Autowired
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordHashingService passwordHashingService,
+                       FriendGraphService friendGraphService, UserProfileService userProfileService,
+                       MongoTemplate mongoTemplate, ApplicationEventPublisher eventPublisher, Environment environment,
+                       @Value("${socialapp.passwords.store-workers:8}") int storeWorkers) {
         this.userRepository = userRepository;
-        this.passwordEncoder = passwordEncoder;
+        this.passwordHashingService = passwordHashingService;
+        this.friendGraphService = friendGraphService;
+        this.userProfileService = userProfileService;
+        this.mongoTemplate = mongoTemplate;
+        this.eventPublisher = eventPublisher;
+        this.storeExecutor = Threading.VIRTUAL.isActive(environment)
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(storeWorkers, new CustomizableThreadFactory("user-store-"));
     }
 
     /**
      * Registers a new user by hashing their password and saving them to the database.
+     * <p>
+     * The password is hashed by the {@link PasswordHashingService}, and the user is saved
+     * on the store executor once the hash is ready. Any cached profile of the user is
+     * dropped, so the next read sees the saved values, and a {@link UserChangedEvent} is
+     * published for the search index.
      *
      * @param user The new {@link User} object containing a plain-text password.
-     * @return The saved {@link User} entity with the password securely hashed.
+     * @return A future completed with the saved {@link User} entity, its password securely hashed.
+     * @throws ResponseStatusException with status 503 if too many passwords are waiting to be hashed.
+     */
+    public CompletableFuture<User> saveUser (User user) {
+        return passwordHashingService.encode(user.getPassword()).thenApplyAsync(hash -> {
+            user.setPassword(hash);
+            User saved = userRepository.save(user);
+            userProfileService.invalidate(saved.getId());
+            eventPublisher.publishEvent(new UserChangedEvent(saved.getId(), saved.getUsername(), saved.getName()));
+            return saved;
+        }, storeExecutor);
+    }
+
+    /**
+     * Checks the email and password of a user.
+     * <p>
+     * If the stored hash uses an outdated algorithm or cost, it is replaced by a new hash
+     * of the password, unless the password was changed in the meantime.
+     *
+     * @param email    The email address of the user.
+     * @param password The plain-text password.
+     * @return A future completed with the {@link UserProfile} of the user.
+     * @throws ResponseStatusException with status 401 (through the future) if the email or password is wrong,
+     *                                 or 503 if too many passwords are waiting to be hashed.
      */
-    public User saveUser (User user) {
-        user.setPassword(passwordEncoder.encode(user.getPassword()));
-        return userRepository.save(user);
+    public CompletableFuture<UserProfile> authenticate(String email, String password) {
+        User user = userRepository.findByEmail(email).orElse(null);
+        String hash = user == null ? null : user.getPassword();
+        return passwordHashingService.verify(password, hash).thenApplyAsync(verification -> {
+            if (!verification.matches()) {
+                throw new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Invalid email or password.");
+            }
+            if (verification.upgradedHash() != null) {
+                mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(user.getId()).and("password").is(hash)),
+                        Update.update("password", verification.upgradedHash()), User.class);
+            }
+            return userProfileService.getProfile(user.getId());
+        }, storeExecutor);
     }
 
     /**
      * Accepts a friend request by adding both users to each other's friend list
+     * <p>
+     * Each side is a single {@code $addToSet} on the {@code friends} field, so no user
+     * document is loaded and calling it again for the same pair changes nothing. When
+     * it runs inside a transaction the friend graph is only updated after the commit.
+     *
      * @param userId The Id of the user accepting the request
      * @param friendId The Id of the user to be added as a friend
      * @throws RuntimeException Occurs when either user is not found or if the users are same
@@ -47,16 +129,36 @@ public class UserService {
         if (userId.equals(friendId)) {
             throw new RuntimeException("Cannot friend yourself.");
         }
+        // Both users are checked first, so a missing user never leaves a one-sided friendship.
+        if (!userRepository.existsById(userId)) {
+            throw new RuntimeException("User not found." + userId);
+        }
+        if (!userRepository.existsById(friendId)) {
+            throw new RuntimeException("Friend not found." + friendId);
+        }
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found." + userId));
-        User friend = userRepository.findById(friendId)
-                .orElseThrow(() -> new RuntimeException("Friend not found." + friendId));
+        addFriend(userId, friendId);
+        addFriend(friendId, userId);
 
-        user.getFriends().add(friendId);
-        friend.getFriends().add(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    friendGraphService.addFriendship(userId, friendId);
+                }
+            });
+        } else {
+            friendGraphService.addFriendship(userId, friendId);
+        }
+    }
+
+    private void addFriend(String userId, String friendId) {
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(userId)),
+                new Update().addToSet("friends", friendId), User.class);
+    }
 
-        userRepository.save(user);
-        userRepository.save(friend);
+    @PreDestroy
+    void shutdown() {
+        storeExecutor.shutdown();
     }
 }
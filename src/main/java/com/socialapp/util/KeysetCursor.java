@@ -0,0 +1,107 @@
+package com.socialapp.util;
+
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by {@code (timestamp, _id)} descending, or ascending for
+ * the listings read oldest first.
+ * <p>
+ * Keyset pagination resumes right after the last item of the previous page instead of
+ * skipping over an offset, so every page costs the same index seek however deep the
+ * client scrolls. The cursor is handed to clients as an opaque URL-safe string.
+ */
+@Getter
+public final class KeysetCursor {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * The timestamp of the last item of the previous page.
+     */
+    private final LocalDateTime timestamp;
+
+    /**
+     * The id of the last item of the previous page, used to break ties between equal timestamps.
+     */
+    private final String id;
+
+    public KeysetCursor(LocalDateTime timestamp, String id) {
+        this.timestamp = timestamp;
+        this.id = id;
+    }
+
+    /**
+     * Builds the criteria that matches the items after this cursor in descending order.
+     *
+     * @param timestampField The name of the timestamp field the listing is ordered by.
+     * @return A criteria to combine with the rest of the listing query.
+     */
+    public Criteria after(String timestampField) {
+        return new Criteria().orOperator(
+                Criteria.where(timestampField).lt(timestamp),
+                Criteria.where(timestampField).is(timestamp).and("_id").lt(id));
+    }
+
+    /**
+     * The sort order that matches {@link #after(String)}: newest first, ties broken by id.
+     */
+    public static Sort sort(String timestampField) {
+        return Sort.by(Sort.Direction.DESC, timestampField, "_id");
+    }
+
+    /**
+     * Builds the criteria that matches the items after this cursor in ascending order.
+     *
+     * @param timestampField The name of the timestamp field the listing is ordered by.
+     * @return A criteria to combine with the rest of the listing query.
+     */
+    public Criteria afterAscending(String timestampField) {
+        return new Criteria().orOperator(
+                Criteria.where(timestampField).gt(timestamp),
+                Criteria.where(timestampField).is(timestamp).and("_id").gt(id));
+    }
+
+    /**
+     * The sort order that matches {@link #afterAscending(String)}: oldest first, ties broken by id.
+     */
+    public static Sort sortAscending(String timestampField) {
+        return Sort.by(Sort.Direction.ASC, timestampField, "_id");
+    }
+
+    /**
+     * Encodes this cursor as an opaque string for clients.
+     */
+    public String encode() {
+        String raw = timestamp + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor previously produced by {@link #encode()}.
+     *
+     * @param cursor The encoded cursor, may be {@code null}.
+     * @return The decoded cursor, or {@code null} if none was given.
+     * @throws ResponseStatusException with status 400 if the cursor is malformed.
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)), raw.substring(separator + 1));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid cursor: " + cursor);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.socialapp.util;
+
+/**
+ * Canonical key for an unordered pair of user ids.
+ * <p>
+ * The two ids are ordered before being joined, so {@code of(a, b)} and {@code of(b, a)}
+ * give the same key. It identifies a conversation regardless of who wrote a message.
+ */
+public final class PairKey {
+
+    private static final String SEPARATOR = ":";
+
+    private PairKey() {}
+
+    /**
+     * Builds the key of the pair formed by two user ids.
+     *
+     * @param first  The unique Id of one user.
+     * @param second The unique Id of the other user.
+     * @return The smaller id and the larger id, joined by a colon.
+     */
+    public static String of(String first, String second) {
+        return first.compareTo(second) <= 0
+                ? first + SEPARATOR + second
+                : second + SEPARATOR + first;
+    }
+}
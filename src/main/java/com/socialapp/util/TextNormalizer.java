@@ -0,0 +1,37 @@
+package com.socialapp.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Folds text into the form the search indexes compare: lower case, without accents.
+ * <p>
+ * "José" and "JOSE" both become "jose". Plain ASCII text, by far the most common,
+ * skips the Unicode decomposition.
+ */
+public final class TextNormalizer {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private TextNormalizer() {}
+
+    /**
+     * Lower-cases a text and strips its accents and surrounding whitespace.
+     *
+     * @param text The text to normalize, possibly {@code null}.
+     * @return The normalized text, empty for {@code null}.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+                return MARKS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT).strip();
+            }
+        }
+        return text.toLowerCase(Locale.ROOT).strip();
+    }
+}
@@ -0,0 +1,90 @@
+package com.socialapp.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory token-bucket rate limiter with one bucket per key.
+ * <p>
+ * Each bucket holds up to {@code capacity} tokens and gains {@code refillPerSecond}
+ * tokens per second; an action is allowed when a token can be taken. A key can
+ * therefore burst up to the capacity and is then held to the refill rate. Buckets
+ * that have refilled completely carry no state and can be dropped with
+ * {@link #evictIdle()}.
+ */
+public final class TokenBucketLimiter {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final long fullRefillNanos;
+    private final LongSupplier clock;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+    public TokenBucketLimiter(int capacity, double refillPerSecond) {
+        this(capacity, refillPerSecond, System::nanoTime);
+    }
+
+    /**
+     * @param clock Source of monotonic nanoseconds, replaceable in tests.
+     */
+    public TokenBucketLimiter(int capacity, double refillPerSecond, LongSupplier clock) {
+        if (capacity < 1 || refillPerSecond <= 0) {
+            throw new IllegalArgumentException("Capacity and refill rate must be positive");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerSecond / NANOS_PER_SECOND;
+        this.fullRefillNanos = (long) Math.ceil(capacity / tokensPerNano);
+        this.clock = clock;
+    }
+
+    /**
+     * Takes a token from the bucket of a key.
+     *
+     * @param key The key to limit, such as a user id.
+     * @return {@code true} if the action is allowed, {@code false} if the key is over its rate.
+     */
+    public boolean tryAcquire(String key) {
+        long now = clock.getAsLong();
+        return buckets.computeIfAbsent(key, k -> new Bucket(capacity, now)).tryAcquire(now);
+    }
+
+    /**
+     * Drops the buckets that would be full by now, which behave exactly like new ones.
+     */
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    private final class Bucket {
+
+        private double tokens;
+        private long updatedAt;
+
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.updatedAt = now;
+        }
+
+        synchronized boolean tryAcquire(long now) {
+            tokens = Math.min(capacity, tokens + (now - updatedAt) * tokensPerNano);
+            updatedAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        synchronized boolean isFull(long now) {
+            return now - updatedAt >= fullRefillNanos;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.socialapp;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+/**
+ * Runs the application against a MongoDB container, so that tests need nothing but Docker.
+ * <p>
+ * The container is started once, when the first context is loaded, and shared by every
+ * test class: the contexts cached between classes keep pointing at a running server.
+ */
+@SpringBootTest
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class MongoContainerTest {
+
+	private static final MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+	@DynamicPropertySource
+	static void mongoProperties(DynamicPropertyRegistry registry) {
+		mongo.start();
+		registry.add("spring.data.mongodb.uri", () -> mongo.getReplicaSetUrl("socialapp"));
+	}
+}
@@ -1,10 +1,8 @@
 package com.socialapp;
 
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
-class SocialMediaAppApplicationTests {
+class SocialMediaAppApplicationTests extends MongoContainerTest {
 
 	@Test
 	void contextLoads() {
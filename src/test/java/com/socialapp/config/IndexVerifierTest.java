@@ -0,0 +1,109 @@
+package com.socialapp.config;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import com.socialapp.model.Message;
+import com.socialapp.repository.CommentRepository;
+import com.socialapp.repository.FriendRequestRepository;
+import com.socialapp.repository.MessageRepository;
+import com.socialapp.repository.PostRepository;
+import com.socialapp.repository.UserRepository;
+import com.socialapp.repository.reactive.ReactiveMessageRepository;
+import com.socialapp.repository.reactive.ReactivePostRepository;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@Testcontainers(disabledWithoutDocker = true)
+class IndexVerifierTest {
+
+	private static final List<Class<?>> REPOSITORIES = List.of(CommentRepository.class, FriendRequestRepository.class,
+			MessageRepository.class, PostRepository.class, UserRepository.class, ReactiveMessageRepository.class,
+			ReactivePostRepository.class);
+
+	@Container
+	private static final MongoDBContainer mongo = new MongoDBContainer("mongo:7.0");
+
+	private static MongoClient client;
+	private static MongoTemplate mongoTemplate;
+	private static IndexVerifier verifier;
+
+	interface UnindexedMessageRepository extends MongoRepository<Message, String> {
+		List<Message> findByContent(String content);
+
+		List<Message> findByReceiverIdAndIsReadTrue(String receiverId);
+	}
+
+	@BeforeAll
+	static void createIndexes() {
+		client = MongoClients.create(mongo.getConnectionString());
+		mongoTemplate = new MongoTemplate(client, "index_verifier");
+		verifier = new IndexVerifier(mongoTemplate, new DefaultListableBeanFactory(), true, "fail");
+		verifier.createIndexes(REPOSITORIES);
+	}
+
+	@AfterAll
+	static void close() {
+		client.close();
+	}
+
+	@Test
+	void createsThePartialIndexOfUnreadMessages() {
+		assertThat(mongoTemplate.indexOps(Message.class).getIndexInfo())
+				.anySatisfy(index -> {
+					assertThat(index.getName()).isEqualTo("receiver_unread");
+					assertThat(Document.parse(index.getPartialFilterExpression())).isEqualTo(new Document("isRead", false));
+				});
+	}
+
+	@Test
+	void findsAnIndexForEveryRepositoryQuery() {
+		assertThat(verifier.verify(REPOSITORIES)).isEmpty();
+	}
+
+	@Test
+	void plansEveryRepositoryQueryAsAnIndexScan() {
+		for (Class<?> repository : REPOSITORIES) {
+			for (IndexVerifier.QueryShape shape : verifier.shapes(repository)) {
+				assertThat(winningPlan(shape)).as(shape.method()).contains("IXSCAN").doesNotContain("COLLSCAN");
+			}
+		}
+	}
+
+	@Test
+	void reportsQueriesThatScanTheCollection() {
+		List<IndexVerifier.QueryShape> shapes = verifier.shapes(UnindexedMessageRepository.class);
+
+		assertThat(shapes).allSatisfy(shape -> assertThat(winningPlan(shape)).as(shape.method()).contains("COLLSCAN"));
+		assertThat(verifier.verify(List.of(UnindexedMessageRepository.class)))
+				.hasSize(2)
+				.anySatisfy(line -> assertThat(line).startsWith("UnindexedMessageRepository.findByContent on messages"))
+				.anySatisfy(line -> assertThat(line).startsWith("UnindexedMessageRepository.findByReceiverIdAndIsReadTrue"));
+	}
+
+	@Test
+	void rejectsAnUnknownMode() {
+		assertThatThrownBy(() -> new IndexVerifier(mongoTemplate, new DefaultListableBeanFactory(), true, "strict"))
+				.isInstanceOf(IllegalStateException.class);
+	}
+
+	private static String winningPlan(IndexVerifier.QueryShape shape) {
+		Document explain = mongoTemplate.getCollection(shape.collection())
+				.find(shape.filter())
+				.sort(shape.sort())
+				.explain();
+		return explain.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+	}
+}
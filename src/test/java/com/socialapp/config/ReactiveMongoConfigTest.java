@@ -0,0 +1,37 @@
+package com.socialapp.config;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.socialapp.repository.reactive.ReactivePostRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveMongoConfigTest {
+
+	private final ApplicationContextRunner runner = new ApplicationContextRunner()
+			.withConfiguration(AutoConfigurations.of(MongoAutoConfiguration.class, MongoDataAutoConfiguration.class))
+			.withUserConfiguration(ReactiveMongoConfig.class);
+
+	@Test
+	void opensNoReactiveClientByDefault() {
+		runner.run(context -> assertThat(context)
+				.hasNotFailed()
+				.doesNotHaveBean(MongoClient.class)
+				.doesNotHaveBean(ReactiveMongoTemplate.class)
+				.doesNotHaveBean(ReactivePostRepository.class));
+	}
+
+	@Test
+	void createsTheReactiveStackWhenEnabled() {
+		runner.withPropertyValues("socialapp.reactive.enabled=true")
+				.run(context -> assertThat(context)
+						.hasSingleBean(MongoClient.class)
+						.hasSingleBean(ReactiveMongoTemplate.class)
+						.hasSingleBean(ReactivePostRepository.class));
+	}
+}
@@ -0,0 +1,32 @@
+package com.socialapp.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SecurityConfigTest {
+
+	@Test
+	void permitsScrapesOnTheManagementPortOnly() {
+		RequestMatcher scrape = SecurityConfig.prometheusScrape(8081);
+
+		assertThat(scrape.matches(request(8081, SecurityConfig.PROMETHEUS_PATH))).isTrue();
+		assertThat(scrape.matches(request(8080, SecurityConfig.PROMETHEUS_PATH))).isFalse();
+		assertThat(scrape.matches(request(8081, "/actuator/env"))).isFalse();
+	}
+
+	@Test
+	void permitsNoScrapeWithoutAManagementPort() {
+		RequestMatcher scrape = SecurityConfig.prometheusScrape(-1);
+
+		assertThat(scrape.matches(request(8080, SecurityConfig.PROMETHEUS_PATH))).isFalse();
+	}
+
+	private static MockHttpServletRequest request(int port, String path) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+		request.setLocalPort(port);
+		return request;
+	}
+}
@@ -0,0 +1,118 @@
+package com.socialapp.controller;
+
+import com.socialapp.model.Message;
+import com.socialapp.service.StreamingService;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.embedded.tomcat.TomcatConnectorCustomizer;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import reactor.core.publisher.Flux;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Streams a very large conversation through Tomcat and the MVC write path to a client that
+ * reads a few hundred messages and then stops, and checks that the server stops reading
+ * the cursor once the socket buffers are full instead of queueing the rest in memory.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "socialapp.reactive.enabled=true")
+class StreamControllerTest {
+
+	private static final int LARGE = 1_000_000;
+	private static final int READ = 500;
+	private static final AtomicLong produced = new AtomicLong();
+
+	@SpringBootConfiguration
+	@ImportAutoConfiguration({ServletWebServerFactoryAutoConfiguration.class, DispatcherServletAutoConfiguration.class,
+			WebMvcAutoConfiguration.class, HttpMessageConvertersAutoConfiguration.class, JacksonAutoConfiguration.class})
+	@Import(StreamController.class)
+	static class Config {
+
+		@Bean
+		TomcatConnectorCustomizer smallSendBuffer() {
+			// Keeps the kernel from buffering much of the stream, so the test stalls quickly.
+			return connector -> connector.setProperty("socket.txBufSize", Integer.toString(8 * 1024));
+		}
+
+		@Bean
+		StreamingService streamingService() {
+			StreamingService service = mock(StreamingService.class);
+			when(service.streamConversation("a:b")).thenAnswer(invocation -> messages());
+			return service;
+		}
+	}
+
+	@LocalServerPort
+	private int port;
+
+	@Test
+	void aSlowClientSlowsTheCursorDown() throws Exception {
+		try (Socket socket = new Socket()) {
+			socket.setReceiveBufferSize(8 * 1024);
+			socket.connect(new InetSocketAddress("localhost", port));
+			OutputStream out = socket.getOutputStream();
+			out.write(("GET /api/test/stream/conversations/a:b/messages HTTP/1.1\r\n"
+					+ "Host: localhost\r\nAccept: application/x-ndjson\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+			out.flush();
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+			int messages = 0;
+			while (messages < READ) {
+				String line = in.readLine();
+				assertThat(line).isNotNull();
+				if (line.contains("\"conversationId\":\"a:b\"")) {
+					messages++;
+				}
+			}
+			// Wait for the server to fill every buffer between the cursor and the client, and stall.
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+			long before;
+			do {
+				before = produced.get();
+				Thread.sleep(500);
+			} while (produced.get() != before && System.nanoTime() < deadline);
+
+			assertThat(produced.get()).as("stalled until the client reads").isEqualTo(before);
+			assertThat(before - messages).isPositive().isLessThan(LARGE / 10);
+		}
+	}
+
+	/**
+	 * A cursor over {@link #LARGE} messages that creates each one when it is requested.
+	 */
+	private static Flux<Message> messages() {
+		produced.set(0);
+		return Flux.generate(sink -> {
+			if (produced.get() == LARGE) {
+				sink.complete();
+				return;
+			}
+			Message message = new Message();
+			message.setId(Long.toString(produced.incrementAndGet()));
+			message.setConversationId("a:b");
+			message.setContent("hello");
+			sink.next(message);
+		});
+	}
+}
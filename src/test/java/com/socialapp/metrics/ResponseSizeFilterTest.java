@@ -0,0 +1,59 @@
+package com.socialapp.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseSizeFilterTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ResponseSizeFilter filter = new ResponseSizeFilter(meterRegistry);
+
+	@Test
+	void recordsTheBytesWrittenPerUriTemplate() throws Exception {
+		MockHttpServletRequest request = request("/api/test/posts/author/{authorId}");
+
+		filter.doFilter(request, new MockHttpServletResponse(),
+				(req, res) -> res.getOutputStream().write("[{\"id\":\"1\"}]".getBytes(StandardCharsets.UTF_8)));
+		filter.doFilter(request("/api/test/posts/author/{authorId}"), new MockHttpServletResponse(),
+				(req, res) -> res.getOutputStream().write(new byte[100], 0, 40));
+
+		DistributionSummary sizes = meterRegistry.get("http.server.response.size")
+				.tag("method", "GET").tag("uri", "/api/test/posts/author/{authorId}").summary();
+		assertThat(sizes.count()).isEqualTo(2);
+		assertThat(sizes.totalAmount()).isEqualTo(12 + 40);
+	}
+
+	@Test
+	void recordsAsynchronousResponsesWhenTheyComplete() throws Exception {
+		MockHttpServletRequest request = request("/api/test/stream/feed/{userId}");
+		request.setAsyncSupported(true);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+
+		filter.doFilter(request, response, (req, res) -> {
+			req.startAsync(req, res);
+			res.getWriter().write("{}\n");
+		});
+		assertThat(meterRegistry.find("http.server.response.size").summary()).isNull();
+
+		((MockAsyncContext) request.getAsyncContext()).getResponse().getWriter().write("{}\n");
+		request.getAsyncContext().complete();
+
+		assertThat(meterRegistry.get("http.server.response.size").tag("uri", "/api/test/stream/feed/{userId}")
+				.summary().totalAmount()).isEqualTo(6);
+	}
+
+	private static MockHttpServletRequest request(String uriTemplate) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, uriTemplate);
+		return request;
+	}
+}
@@ -0,0 +1,86 @@
+package com.socialapp.migration;
+
+import com.socialapp.MongoContainerTest;
+import com.socialapp.model.Comment;
+import com.socialapp.model.Post;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddedCommentsMigrationTest extends MongoContainerTest {
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private final ObjectId postId = new ObjectId();
+	private final ObjectId otherPostId = new ObjectId();
+
+	@AfterEach
+	void cleanUp() {
+		List<String> postIds = List.of(postId.toHexString(), otherPostId.toHexString());
+		mongoTemplate.remove(new Query(Criteria.where("postId").in(postIds)), Comment.class);
+		mongoTemplate.remove(new Query(Criteria.where("_id").in(postId, otherPostId)), Post.class);
+	}
+
+	@Test
+	void keepsCommentsPostedInTheSameInstantAndRunsAgainSafely() {
+		Date createdAt = new Date();
+		List<Document> legacy = List.of(
+				new Document("authorId", "a").append("text", "first").append("createdAt", createdAt),
+				new Document("authorId", "a").append("text", "second").append("createdAt", createdAt));
+		mongoTemplate.insert(new Document("_id", postId).append("authorId", "author").append("comments", legacy),
+				mongoTemplate.getCollectionName(Post.class));
+		EmbeddedCommentsMigration migration = new EmbeddedCommentsMigration(mongoTemplate, 1);
+
+		migration.migrate();
+		// As if the first run had stopped before stripping the array.
+		mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(postId)), new Update().set("comments", legacy),
+				Post.class);
+		migration.migrate();
+
+		List<Comment> comments = mongoTemplate.find(new Query(Criteria.where("postId").is(postId.toHexString()))
+				.with(Sort.by("_id")), Comment.class);
+		assertThat(comments).extracting(Comment::getText).containsExactly("first", "second");
+		assertThat(mongoTemplate.findById(postId, Post.class).getCommentCount()).isEqualTo(2);
+	}
+
+	@Test
+	void migratesPostsWhoseFirstCommentsWerePostedInTheSameSecond() {
+		Date createdAt = new Date();
+		String collection = mongoTemplate.getCollectionName(Post.class);
+		mongoTemplate.insert(new Document("_id", postId).append("authorId", "author").append("comments",
+				List.of(new Document("authorId", "a").append("text", "first").append("createdAt", createdAt))), collection);
+		mongoTemplate.insert(new Document("_id", otherPostId).append("authorId", "author").append("comments",
+				List.of(new Document("authorId", "b").append("text", "other").append("createdAt", createdAt))), collection);
+
+		long migrated = new EmbeddedCommentsMigration(mongoTemplate, 10).migrate();
+
+		assertThat(migrated).isEqualTo(2);
+		assertThat(mongoTemplate.findById(postId, Post.class).getCommentCount()).isEqualTo(1);
+		assertThat(mongoTemplate.findById(otherPostId, Post.class).getCommentCount()).isEqualTo(1);
+	}
+
+	@Test
+	void ordersMigratedCommentsBeforeTheOnesWrittenSince() {
+		Date yesterday = new Date(System.currentTimeMillis() - 86_400_000L);
+		String post = postId.toHexString();
+
+		assertThat(EmbeddedCommentsMigration.legacyId(post, yesterday, 1))
+				.isGreaterThan(EmbeddedCommentsMigration.legacyId(post, yesterday, 0))
+				.isLessThan(new ObjectId());
+		assertThat(EmbeddedCommentsMigration.legacyId(post, yesterday, 0))
+				.isNotEqualTo(EmbeddedCommentsMigration.legacyId(otherPostId.toHexString(), yesterday, 0));
+	}
+}
@@ -0,0 +1,25 @@
+package com.socialapp.migration;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EmbeddedLikesMigrationTest {
+
+	@Test
+	void keepsEachLegacyLikerOnce() {
+		ObjectId legacyId = new ObjectId();
+		Document post = new Document("likes", Arrays.asList("a", "b", "a", " b ", "", null, legacyId));
+
+		assertThat(EmbeddedLikesMigration.likers(post)).containsExactly("a", "b", legacyId.toHexString());
+	}
+
+	@Test
+	void readsAPostWithoutLikes() {
+		assertThat(EmbeddedLikesMigration.likers(new Document())).isEmpty();
+	}
+}
@@ -0,0 +1,86 @@
+package com.socialapp.service;
+
+import com.socialapp.dto.FriendSuggestion;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FriendGraphTest {
+
+	private static FriendGraph graph() {
+		FriendGraph.Loader loader = new FriendGraph.Loader();
+		// One-sided and repeated entries, as left behind by the old accept path.
+		loader.add("alice", List.of("bob", "carol", "dave"));
+		loader.add("bob", List.of("alice", "carol", "erin"));
+		loader.add("carol", List.of("alice", "erin", "erin"));
+		loader.add("dave", List.of("frank"));
+		FriendGraph graph = new FriendGraph();
+		graph.load(loader);
+		return graph;
+	}
+
+	@Test
+	void loadIsSymmetricAndDeduplicated() {
+		FriendGraph graph = graph();
+
+		assertThat(graph.areFriends("erin", "carol")).isTrue();
+		assertThat(graph.areFriends("frank", "dave")).isTrue();
+		assertThat(graph.areFriends("alice", "erin")).isFalse();
+		assertThat(graph.areFriends("alice", "nobody")).isFalse();
+		assertThat(graph.userCount()).isEqualTo(6);
+		assertThat(graph.friendshipCount()).isEqualTo(7);
+	}
+
+	@Test
+	void countsMutualFriends() {
+		FriendGraph graph = graph();
+
+		assertThat(graph.countMutualFriends("alice", "erin")).isEqualTo(2);
+		assertThat(graph.countMutualFriends("bob", "carol")).isEqualTo(2);
+		assertThat(graph.countMutualFriends("alice", "nobody")).isZero();
+	}
+
+	@Test
+	void addFriendshipIsIdempotent() {
+		FriendGraph graph = graph();
+
+		graph.addFriendship("frank", "grace");
+		graph.addFriendship("grace", "frank");
+		graph.addFriendship("grace", "grace");
+
+		assertThat(graph.areFriends("grace", "frank")).isTrue();
+		assertThat(graph.areFriends("grace", "grace")).isFalse();
+		assertThat(graph.friendshipCount()).isEqualTo(8);
+	}
+
+	@Test
+	void reloadReplacesTheGraph() {
+		FriendGraph graph = graph();
+		FriendGraph.Loader loader = new FriendGraph.Loader();
+		loader.add("erin", List.of("grace"));
+		loader.add("grace", List.of());
+
+		graph.load(loader);
+		graph.addFriendship("grace", "heidi");
+
+		assertThat(graph.areFriends("alice", "bob")).isFalse();
+		assertThat(graph.areFriends("grace", "erin")).isTrue();
+		assertThat(graph.areFriends("heidi", "grace")).isTrue();
+		assertThat(graph.userCount()).isEqualTo(3);
+		assertThat(graph.friendshipCount()).isEqualTo(2);
+	}
+
+	@Test
+	void suggestsFriendsOfFriendsByMutualCount() {
+		FriendGraph graph = graph();
+
+		List<FriendSuggestion> suggestions = graph.suggest("alice", 10, 1000);
+
+		assertThat(suggestions).extracting(FriendSuggestion::getUserId).containsExactly("erin", "frank");
+		assertThat(suggestions).extracting(FriendSuggestion::getMutualFriends).containsExactly(2, 1);
+		assertThat(graph.suggest("alice", 1, 1000)).extracting(FriendSuggestion::getUserId).containsExactly("erin");
+		assertThat(graph.suggest("nobody", 10, 1000)).isEmpty();
+	}
+}
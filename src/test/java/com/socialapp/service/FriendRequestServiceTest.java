@@ -0,0 +1,137 @@
+package com.socialapp.service;
+
+import com.socialapp.MongoContainerTest;
+import com.socialapp.model.FriendRequest;
+import com.socialapp.model.User;
+import com.socialapp.repository.FriendRequestRepository;
+import com.socialapp.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "socialapp.mongodb.transactions.enabled=true")
+class FriendRequestServiceTest extends MongoContainerTest {
+
+	private static final int THREADS = 16;
+	private static final int ROUNDS = 20;
+
+	@Autowired
+	private FriendRequestService friendRequestService;
+
+	@Autowired
+	private FriendRequestRepository friendRequestRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	private final List<String> userIds = new ArrayList<>();
+	private final List<String> requestIds = new ArrayList<>();
+
+	@AfterEach
+	void cleanUp() {
+		friendRequestRepository.deleteAllById(requestIds);
+		userRepository.deleteAllById(userIds);
+	}
+
+	@Test
+	void acceptAndRejectRacesHaveOneWinner() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			for (int round = 0; round < ROUNDS; round++) {
+				User sender = createUser();
+				User receiver = createUser();
+				String requestId = friendRequestService.sendFriendRequest(sender.getId(), receiver.getId()).getId();
+				requestIds.add(requestId);
+
+				AtomicInteger accepted = new AtomicInteger();
+				AtomicInteger rejected = new AtomicInteger();
+				CountDownLatch start = new CountDownLatch(1);
+				List<Future<?>> results = new ArrayList<>();
+				for (int i = 0; i < THREADS; i++) {
+					boolean accept = i % 2 == 0;
+					results.add(executor.submit((Callable<Void>) () -> {
+						start.await();
+						try {
+							if (accept) {
+								friendRequestService.acceptFriendRequest(requestId);
+								accepted.incrementAndGet();
+							} else {
+								friendRequestService.rejectFriendRequest(requestId);
+								rejected.incrementAndGet();
+							}
+						} catch (ResponseStatusException conflict) {
+							// The other outcome won the race.
+							assertThat(conflict.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+						}
+						return null;
+					}));
+				}
+				start.countDown();
+				for (Future<?> result : results) {
+					result.get(30, TimeUnit.SECONDS);
+				}
+
+				FriendRequest request = friendRequestRepository.findById(requestId).orElseThrow();
+				List<String> senderFriends = userRepository.findById(sender.getId()).orElseThrow().getFriends();
+				List<String> receiverFriends = userRepository.findById(receiver.getId()).orElseThrow().getFriends();
+				if (request.getStatus() == FriendRequest.Status.ACCEPTED) {
+					assertThat(rejected).hasValue(0);
+					assertThat(accepted).hasValue(THREADS / 2);
+					assertThat(senderFriends).containsExactly(receiver.getId());
+					assertThat(receiverFriends).containsExactly(sender.getId());
+				} else {
+					assertThat(request.getStatus()).isEqualTo(FriendRequest.Status.REJECTED);
+					assertThat(accepted).hasValue(0);
+					assertThat(rejected).hasValue(THREADS / 2);
+					assertThat(senderFriends).isEmpty();
+					assertThat(receiverFriends).isEmpty();
+				}
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void acceptingTwiceDoesNotDuplicateFriends() {
+		User sender = createUser();
+		User receiver = createUser();
+		String requestId = friendRequestService.sendFriendRequest(sender.getId(), receiver.getId()).getId();
+		requestIds.add(requestId);
+
+		friendRequestService.acceptFriendRequest(requestId);
+		friendRequestService.acceptFriendRequest(requestId);
+		friendRequestService.acceptFriendRequest(receiver.getId(), sender.getId());
+
+		assertThat(userRepository.findById(sender.getId()).orElseThrow().getFriends()).containsExactly(receiver.getId());
+		assertThat(userRepository.findById(receiver.getId()).orElseThrow().getFriends()).containsExactly(sender.getId());
+	}
+
+	private User createUser() {
+		String suffix = UUID.randomUUID().toString().substring(0, 8);
+		User user = new User();
+		user.setEmail(suffix + "@example.com");
+		user.setUsername("u" + suffix.substring(0, 7));
+		user.setPassword("not-a-real-hash");
+		user.setName("Test " + suffix);
+		User saved = userRepository.save(user);
+		userIds.add(saved.getId());
+		return saved;
+	}
+}
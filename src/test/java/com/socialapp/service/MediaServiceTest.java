@@ -0,0 +1,33 @@
+package com.socialapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MediaServiceTest {
+
+	@Test
+	void detectsRasterImagesFromTheirMagicBytes() {
+		assertThat(MediaService.detectImageType(new byte[]{(byte) 0xFF, (byte) 0xD8, (byte) 0xFF, (byte) 0xE0}))
+				.isEqualTo("image/jpeg");
+		assertThat(MediaService.detectImageType(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n', 0}))
+				.isEqualTo("image/png");
+		assertThat(MediaService.detectImageType(ascii("GIF89a\u0001\u0000"))).isEqualTo("image/gif");
+		assertThat(MediaService.detectImageType(ascii("RIFF$\u0000\u0000\u0000WEBPVP8 "))).isEqualTo("image/webp");
+	}
+
+	@Test
+	void rejectsEverythingElse() {
+		assertThat(MediaService.detectImageType(ascii("<svg xmlns=\"http://www.w3.org/2000/svg\">"))).isNull();
+		assertThat(MediaService.detectImageType(ascii("<!DOCTYPE html>"))).isNull();
+		assertThat(MediaService.detectImageType(ascii("RIFF$\u0000\u0000\u0000WAVE"))).isNull();
+		assertThat(MediaService.detectImageType(new byte[]{(byte) 0xFF, (byte) 0xD8})).isNull();
+		assertThat(MediaService.detectImageType(new byte[0])).isNull();
+	}
+
+	private static byte[] ascii(String content) {
+		return content.getBytes(StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,166 @@
+package com.socialapp.service;
+
+import com.socialapp.config.WebSocketConfig;
+import com.socialapp.model.Message;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.embedded.EmbeddedWebServerFactoryCustomizerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketMessagingAutoConfiguration;
+import org.springframework.boot.autoconfigure.websocket.servlet.WebSocketServletAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Import;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Opens one STOMP session per simulated user against a real Tomcat, then pushes one
+ * message to every user at once, twice, and checks that each session receives them.
+ * <p>
+ * A build runs it with 500 sessions. The full load test, 10,000 sessions on one node,
+ * runs with {@code -Dsocialapp.websocket.load-test.connections=10000 -DargLine=-Xmx3g};
+ * the clients run in the same JVM, so it needs two file descriptors per session.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = "server.tomcat.max-connections=20000")
+class MessageDeliveryLoadTest {
+
+	private static final Logger log = LoggerFactory.getLogger(MessageDeliveryLoadTest.class);
+
+	private static final int CONNECTIONS = Integer.getInteger("socialapp.websocket.load-test.connections", 500);
+	private static final int CONNECTING = 100;
+	private static final int SENDERS = 8;
+
+	@SpringBootConfiguration
+	@ImportAutoConfiguration({ServletWebServerFactoryAutoConfiguration.class,
+			EmbeddedWebServerFactoryCustomizerAutoConfiguration.class, DispatcherServletAutoConfiguration.class,
+			WebMvcAutoConfiguration.class, JacksonAutoConfiguration.class, WebSocketServletAutoConfiguration.class,
+			WebSocketMessagingAutoConfiguration.class})
+	@Import({WebSocketConfig.class, MessageDeliveryService.class})
+	static class Config {
+	}
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private MessageDeliveryService messageDeliveryService;
+
+	@Autowired
+	private SimpUserRegistry userRegistry;
+
+	private final WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+	private final List<StompSession> sessions = new ArrayList<>();
+
+	@AfterEach
+	void disconnect() {
+		sessions.forEach(StompSession::disconnect);
+		stompClient.stop();
+	}
+
+	@Test
+	void pushesAMessageToEverySession() throws Exception {
+		AtomicReference<CountDownLatch> received = new AtomicReference<>();
+		for (int first = 0; first < CONNECTIONS; first += CONNECTING) {
+			List<CompletableFuture<StompSession>> connecting = new ArrayList<>();
+			for (int user = first; user < Math.min(first + CONNECTING, CONNECTIONS); user++) {
+				connecting.add(stompClient.connectAsync("ws://localhost:" + port + "/ws?userId=user-" + user,
+						new StompSessionHandlerAdapter() {
+						}));
+			}
+			for (CompletableFuture<StompSession> session : connecting) {
+				sessions.add(session.get(30, TimeUnit.SECONDS));
+			}
+		}
+		for (StompSession session : sessions) {
+			session.subscribe("/user" + MessageDeliveryService.MESSAGES_DESTINATION, new StompFrameHandler() {
+				@Override
+				public Type getPayloadType(StompHeaders headers) {
+					return byte[].class;
+				}
+
+				@Override
+				public void handleFrame(StompHeaders headers, Object payload) {
+					received.get().countDown();
+				}
+			});
+		}
+		eventually(() -> userRegistry.findSubscriptions(subscription -> true).size() == CONNECTIONS);
+
+		// The first round fills the broker's destination cache, the second one is served from it.
+		for (String round : List.of("first", "second")) {
+			received.set(new CountDownLatch(CONNECTIONS));
+			long start = System.nanoTime();
+			pushToEveryUser();
+			assertThat(received.get().await(120, TimeUnit.SECONDS)).as("every session received its message").isTrue();
+			log.info("Pushed the {} message to each of {} sessions in {} ms", round, CONNECTIONS,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+	}
+
+	private void pushToEveryUser() throws Exception {
+		ExecutorService senders = Executors.newFixedThreadPool(SENDERS);
+		try {
+			List<Future<?>> sent = new ArrayList<>();
+			for (int sender = 0; sender < SENDERS; sender++) {
+				int offset = sender;
+				sent.add(senders.submit(() -> {
+					for (int user = offset; user < CONNECTIONS; user += SENDERS) {
+						assertThat(messageDeliveryService.deliver(message("user-" + user))).isTrue();
+					}
+				}));
+			}
+			for (Future<?> future : sent) {
+				future.get(120, TimeUnit.SECONDS);
+			}
+		} finally {
+			senders.shutdownNow();
+		}
+	}
+
+	private static Message message(String receiverId) {
+		Message message = new Message();
+		message.setSenderId("load-test");
+		message.setReceiverId(receiverId);
+		message.setConversationId("load-test:" + receiverId);
+		message.setContent("hello");
+		return message;
+	}
+
+	private static void eventually(Callable<Boolean> condition) throws Exception {
+		long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+		while (!condition.call()) {
+			assertThat(System.nanoTime()).as("condition not met within 60 seconds").isLessThan(deadline);
+			Thread.sleep(50);
+		}
+	}
+}
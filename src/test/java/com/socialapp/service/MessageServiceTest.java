@@ -0,0 +1,174 @@
+package com.socialapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.result.UpdateResult;
+import com.socialapp.dto.CursorPage;
+import com.socialapp.model.Message;
+import com.socialapp.model.ReadWatermark;
+import com.socialapp.repository.MessageRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MessageServiceTest {
+
+	private static final LocalDateTime NOW = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	@SuppressWarnings("unchecked")
+	private final MessageService messageService = new MessageService(mock(MessageRepository.class),
+			mock(MessageDeliveryService.class), new UnreadCounterService(mongoTemplate), mongoTemplate,
+			mock(ObjectProvider.class), new PageSizes(2, 2));
+
+	@Test
+	void pagesTheUnreadMessagesOfAConversation() {
+		when(mongoTemplate.find(any(Query.class), eq(Message.class)))
+				.thenReturn(new ArrayList<>(List.of(message("1", 0), message("2", 1), message("3", 2))));
+
+		CursorPage<Message> page = messageService.getUnreadMessages("a:b", "b", null, 10);
+
+		assertThat(page.getItems()).extracting(Message::getId).containsExactly("1", "2");
+		assertThat(page.getNextCursor()).isNotNull();
+	}
+
+	@Test
+	void leavesTheSecondOfTwoMessagesOutOfTheUnreadPageOnceItIsRead() {
+		when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Message.class))).thenReturn(message("2", 1));
+		// The first message is still unread, so the watermark stays before both.
+		when(mongoTemplate.exists(any(Query.class), eq(Message.class))).thenReturn(true);
+		when(mongoTemplate.find(any(Query.class), eq(Message.class))).thenReturn(new ArrayList<>(List.of(message("1", 0))));
+
+		messageService.markAsRead("2");
+		messageService.getUnreadMessages("a:b", "b", null, 10);
+
+		ArgumentCaptor<Query> unread = ArgumentCaptor.forClass(Query.class);
+		verify(mongoTemplate).find(unread.capture(), eq(Message.class));
+		assertThat(unread.getValue().getQueryObject()).containsEntry("isRead", false);
+	}
+
+	@Test
+	void movesTheWatermarkUpToAMessageReadOnItsOwn() {
+		Message read = message("1", 0);
+		when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Message.class))).thenReturn(read);
+		when(mongoTemplate.exists(any(Query.class), eq(Message.class))).thenReturn(false);
+
+		messageService.markAsRead("1");
+
+		verify(mongoTemplate).upsert(any(Query.class), any(Update.class), eq(ReadWatermark.class));
+	}
+
+	@Test
+	void keepsTheWatermarkWhileAnOlderMessageIsUnread() {
+		Message read = message("2", 1);
+		when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Message.class))).thenReturn(read);
+		when(mongoTemplate.exists(any(Query.class), eq(Message.class))).thenReturn(true);
+
+		messageService.markAsRead("2");
+
+		verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(ReadWatermark.class));
+	}
+
+	@Test
+	void capsTheWatermarkAtTheNewestReceivedMessage() {
+		when(mongoTemplate.findOne(any(Query.class), eq(Message.class))).thenReturn(message("2", 1));
+		when(mongoTemplate.updateMulti(any(Query.class), any(Update.class), eq(Message.class)))
+				.thenReturn(UpdateResult.acknowledged(2, 2L, null));
+
+		long read = messageService.markConversationAsRead("a:b", "b", NOW.plusDays(1));
+
+		ArgumentCaptor<Update> watermark = ArgumentCaptor.forClass(Update.class);
+		verify(mongoTemplate).upsert(any(Query.class), watermark.capture(), eq(ReadWatermark.class));
+		assertThat(watermark.getValue().getUpdateObject().get("$max", Document.class).get("readUpTo"))
+				.isEqualTo(NOW.plusMinutes(1));
+		assertThat(read).isEqualTo(2);
+	}
+
+	@Test
+	void marksNothingInAConversationWithoutReceivedMessages() {
+		long read = messageService.markConversationAsRead("a:b", "b", (LocalDateTime) null);
+
+		assertThat(read).isZero();
+		verify(mongoTemplate, never()).upsert(any(Query.class), any(Update.class), eq(ReadWatermark.class));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void marksAMessageAsReadBeforeTheWriteBehindHasStoredIt(@TempDir Path directory) throws Exception {
+		UnreadCounterService unreadCounterService = new UnreadCounterService(mongoTemplate);
+		List<Message> batch = new ArrayList<>();
+		List<Message> stored = new CopyOnWriteArrayList<>();
+		BulkOperations inserts = mock(BulkOperations.class);
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class)).thenReturn(inserts);
+		when(inserts.insert(anyList())).thenAnswer(invocation -> {
+			batch.addAll(invocation.getArgument(0));
+			return inserts;
+		});
+		when(inserts.execute()).thenAnswer(invocation -> {
+			stored.addAll(batch);
+			batch.clear();
+			return null;
+		});
+		when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), eq(Message.class)))
+				.thenAnswer(invocation -> stored.isEmpty() ? null : stored.get(0));
+		ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+		// Batches wait long enough for the message to be read while it is still buffered.
+		MessageWriteBehind writeBehind = new MessageWriteBehind(mongoTemplate, unreadCounterService, objectMapper,
+				new SimpleMeterRegistry(), new MockEnvironment(), directory.resolve("messages.jsonl").toString(),
+				MessageWriteBehind.JournalSync.OS, 100, 100, 500, Duration.ofMillis(300), Duration.ofMillis(100),
+				Duration.ofSeconds(5));
+		ObjectProvider<MessageWriteBehind> provider = mock(ObjectProvider.class);
+		when(provider.getIfAvailable()).thenReturn(writeBehind);
+		MessageService service = new MessageService(mock(MessageRepository.class), mock(MessageDeliveryService.class),
+				unreadCounterService, mongoTemplate, provider, new PageSizes(2, 2));
+		writeBehind.start();
+		try {
+			Message message = new Message();
+			message.setSenderId("a");
+			message.setReceiverId("b");
+			message.setContent("hello");
+			Message sent = service.sendMessage(message);
+
+			service.markAsRead(sent.getId());
+
+			assertThat(stored).extracting(Message::getId).containsExactly(sent.getId());
+			assertThat(unreadCounterService.getUnreadCount("b").getTotal()).isZero();
+		} finally {
+			writeBehind.stop();
+		}
+	}
+
+	private static Message message(String id, int minutes) {
+		Message message = new Message();
+		message.setId(id);
+		message.setSenderId("a");
+		message.setReceiverId("b");
+		message.setConversationId("a:b");
+		message.setTimestamp(NOW.plusMinutes(minutes));
+		return message;
+	}
+}
@@ -0,0 +1,225 @@
+package com.socialapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.socialapp.model.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MessageWriteBehindTest {
+
+	@TempDir
+	private Path directory;
+
+	private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	private final BulkOperations inserts = mock(BulkOperations.class);
+	private final UnreadCounterService unreadCounterService = new UnreadCounterService(mongoTemplate);
+	private final List<Message> stored = new CopyOnWriteArrayList<>();
+	private MessageWriteBehind writeBehind;
+
+	@AfterEach
+	void stop() throws Exception {
+		if (writeBehind != null) {
+			writeBehind.stop();
+		}
+	}
+
+	@Test
+	void rejectsSendersWhileTheBufferIsFull() throws Exception {
+		CountDownLatch stalled = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		List<Message> batch = new ArrayList<>();
+		when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Message.class)).thenReturn(inserts);
+		when(inserts.insert(anyList())).thenAnswer(invocation -> {
+			batch.addAll(invocation.getArgument(0));
+			return inserts;
+		});
+		when(inserts.execute()).thenAnswer(invocation -> {
+			stalled.countDown();
+			release.await();
+			return null;
+		});
+		writeBehind = start(1, 10);
+
+		writeBehind.enqueue(message("1", "b"));
+		stalled.await();
+
+		assertThatThrownBy(() -> writeBehind.enqueue(message("2", "b")))
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+
+		release.countDown();
+		eventually(() -> !batch.isEmpty());
+		writeBehind.enqueue(message("3", "b"));
+	}
+
+	@Test
+	void replaysTheJournalAndCountsOnlyTheMessagesThatWereNotStored() throws Exception {
+		Files.writeString(directory.resolve("messages.jsonl.0"),
+				line(message("1", "b")) + line(message("2", "b")), StandardCharsets.UTF_8);
+		// A torn line, written while the process crashed.
+		Files.writeString(directory.resolve("messages.jsonl.1"),
+				line(message("3", "c")) + "{\"id\":\"4\",\"sen", StandardCharsets.UTF_8);
+		storeAllBut(Set.of("1"));
+
+		writeBehind = start(10, 10);
+
+		assertThat(stored).extracting(Message::getId).containsExactly("2", "3");
+		assertThat(unreadCounterService.getUnreadCount("b").getTotal()).isEqualTo(1);
+		assertThat(unreadCounterService.getUnreadCount("c").getTotal()).isEqualTo(1);
+		assertThat(journal()).containsExactly("messages.jsonl.2");
+	}
+
+	@Test
+	void dropsEachSegmentOnceItsMessagesAreWritten() throws Exception {
+		storeAllBut(Set.of());
+		writeBehind = start(100, 2);
+
+		for (int i = 0; i < 5; i++) {
+			writeBehind.enqueue(message(Integer.toString(i), "b"));
+		}
+
+		eventually(() -> stored.size() == 5);
+		eventually(() -> journal().equals(List.of("messages.jsonl.2")));
+		assertThat(Files.size(directory.resolve("messages.jsonl.2"))).isZero();
+	}
+
+	@Test
+	void syncsConcurrentSendersAcrossSegmentBoundaries() throws Exception {
+		storeAllBut(Set.of());
+		writeBehind = start(1000, 7, MessageWriteBehind.JournalSync.ALWAYS);
+		int senders = 8;
+		int messagesPerSender = 50;
+		CountDownLatch ready = new CountDownLatch(senders);
+		List<Thread> threads = new ArrayList<>();
+		List<Throwable> failures = new CopyOnWriteArrayList<>();
+		for (int sender = 0; sender < senders; sender++) {
+			int first = sender * messagesPerSender;
+			Thread thread = new Thread(() -> {
+				ready.countDown();
+				try {
+					ready.await();
+					for (int i = first; i < first + messagesPerSender; i++) {
+						writeBehind.enqueue(message(Integer.toString(i), "b"));
+					}
+				} catch (Throwable e) {
+					failures.add(e);
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		assertThat(failures).isEmpty();
+		eventually(() -> stored.size() == senders * messagesPerSender);
+		writeBehind.awaitWritten();
+	}
+
+	private MessageWriteBehind start(int capacity, int segmentSize) throws Exception {
+		return start(capacity, segmentSize, MessageWriteBehind.JournalSync.OS);
+	}
+
+	private MessageWriteBehind start(int capacity, int segmentSize, MessageWriteBehind.JournalSync journalSync)
+			throws Exception {
+		MessageWriteBehind started = new MessageWriteBehind(mongoTemplate, unreadCounterService, objectMapper,
+				new SimpleMeterRegistry(), new MockEnvironment(), directory.resolve("messages.jsonl").toString(),
+				journalSync, segmentSize, capacity, 500, Duration.ofMillis(10),
+				Duration.ofMillis(100), Duration.ofSeconds(5));
+		started.start();
+		return started;
+	}
+
+	/**
+	 * Stores every inserted message, except the given ids which are reported as already stored.
+	 */
+	private void storeAllBut(Set<String> alreadyStored) {
+		when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(Message.class))).thenAnswer(invocation -> {
+			BulkOperations bulk = mock(BulkOperations.class);
+			List<Message> batch = new ArrayList<>();
+			when(bulk.insert(anyList())).thenAnswer(insert -> {
+				batch.addAll(insert.getArgument(0));
+				return bulk;
+			});
+			when(bulk.execute()).thenAnswer(execute -> {
+				List<BulkWriteError> duplicates = new ArrayList<>();
+				for (int i = 0; i < batch.size(); i++) {
+					if (alreadyStored.contains(batch.get(i).getId())) {
+						duplicates.add(new BulkWriteError(11000, "duplicate key", new BsonDocument(), i));
+					} else {
+						stored.add(batch.get(i));
+					}
+				}
+				if (!duplicates.isEmpty()) {
+					throw new BulkOperationException("duplicate key", new MongoBulkWriteException(
+							BulkWriteResult.unacknowledged(), duplicates, null, new ServerAddress(), Set.of()));
+				}
+				return null;
+			});
+			return bulk;
+		});
+	}
+
+	private static void eventually(Callable<Boolean> condition) throws Exception {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while (!condition.call()) {
+			assertThat(System.nanoTime()).as("condition not met within 10 seconds").isLessThan(deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	private List<String> journal() throws Exception {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.map(file -> file.getFileName().toString()).sorted().toList();
+		}
+	}
+
+	private String line(Message message) throws Exception {
+		return objectMapper.writeValueAsString(message) + "\n";
+	}
+
+	private static Message message(String id, String receiverId) {
+		Message message = new Message();
+		message.setId(id);
+		message.setSenderId("a");
+		message.setReceiverId(receiverId);
+		message.setConversationId("a:" + receiverId);
+		message.setContent("hello");
+		return message;
+	}
+}
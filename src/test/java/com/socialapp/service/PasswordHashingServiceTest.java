@@ -0,0 +1,78 @@
+package com.socialapp.service;
+
+import com.socialapp.config.PasswordEncoderConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PasswordHashingServiceTest {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final PasswordEncoder encoder = new PasswordEncoderConfig().passwordEncoder("bcrypt", 5);
+	private final PasswordHashingService service = new PasswordHashingService(encoder, meterRegistry, 2, 8);
+
+	@Test
+	void hashesWithTheConfiguredAlgorithm() {
+		String hash = service.encode("secret").join();
+
+		assertThat(hash).startsWith("{bcrypt}$2a$05$");
+		assertThat(service.verify("secret", hash).join()).isEqualTo(new PasswordHashingService.Verification(true, null));
+		assertThat(service.verify("wrong", hash).join().matches()).isFalse();
+		assertThat(meterRegistry.get("passwords.hash.latency").tag("operation", "encode").timer().count()).isEqualTo(1);
+	}
+
+	@Test
+	void rehashesLegacyAndCheaperHashes() {
+		String legacy = new BCryptPasswordEncoder(4).encode("secret");
+
+		PasswordHashingService.Verification verification = service.verify("secret", legacy).join();
+
+		assertThat(verification.matches()).isTrue();
+		assertThat(verification.upgradedHash()).startsWith("{bcrypt}$2a$05$");
+		assertThat(encoder.matches("secret", verification.upgradedHash())).isTrue();
+	}
+
+	@Test
+	void neverMatchesAnUnknownUser() {
+		assertThat(service.verify("secret", null).join().matches()).isFalse();
+	}
+
+	@Test
+	void rejectsWorkOnceTheQueueIsFull() {
+		CountDownLatch release = new CountDownLatch(1);
+		PasswordEncoder blocking = new BCryptPasswordEncoder(4) {
+			@Override
+			public String encode(CharSequence rawPassword) {
+				if ("slow".contentEquals(rawPassword)) {
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return super.encode(rawPassword);
+			}
+		};
+		PasswordHashingService saturated = new PasswordHashingService(blocking, meterRegistry, 1, 1);
+
+		CompletableFuture<String> running = saturated.encode("slow");
+		CompletableFuture<String> queued = saturated.encode("slow");
+
+		assertThatThrownBy(() -> saturated.encode("slow"))
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+		assertThat(meterRegistry.get("passwords.hash.rejected").counter().count()).isEqualTo(1);
+		release.countDown();
+		assertThat(running.join()).isNotBlank();
+		assertThat(queued.join()).isNotBlank();
+	}
+}
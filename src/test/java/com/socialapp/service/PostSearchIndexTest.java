@@ -0,0 +1,116 @@
+package com.socialapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PostSearchIndexTest {
+
+	private final PostSearchIndex index = new PostSearchIndex();
+
+	@Test
+	void ranksTitleMatchesAndRareWordsFirst() {
+		index.add("1", "Weekend hike", "We walked along the river.", 1);
+		index.add("2", "River cruise", "A boat trip on the weekend.", 2);
+		index.add("3", "Recipes", "Nothing about the river here, only recipes for a long weekend at home.", 3);
+
+		assertThat(ids(index.search("river", 0, 10))).containsExactly("2", "1", "3");
+		assertThat(ids(index.search("BOAT river", 0, 10)).get(0)).isEqualTo("2");
+		assertThat(index.search("mountain", 0, 10).hits()).isEmpty();
+	}
+
+	@Test
+	void pagesThroughTheRankingNewestFirstOnTies() {
+		for (int i = 0; i < 25; i++) {
+			index.add(Integer.toString(i), "Same title", "same content", i);
+		}
+
+		PostSearchIndex.Page first = index.search("title", 0, 10);
+		PostSearchIndex.Page last = index.search("title", 20, 10);
+
+		assertThat(ids(first)).startsWith("24", "23", "22").hasSize(10);
+		assertThat(first.hasMore()).isTrue();
+		assertThat(ids(last)).containsExactly("4", "3", "2", "1", "0");
+		assertThat(last.hasMore()).isFalse();
+	}
+
+	@Test
+	void skipsCommonWordsWithoutChangingTheRanking() {
+		for (int i = 0; i < 1000; i++) {
+			index.add(Integer.toString(i), "Post " + i, i % 100 == 0 ? "common rare" : "common", i);
+		}
+
+		List<String> hits = ids(index.search("common rare", 0, 5));
+
+		assertThat(hits).containsExactly("900", "800", "700", "600", "500");
+	}
+
+	@Test
+	void ignoresPostsThatAreAlreadyIndexed() {
+		assertThat(index.add("1", "First", "post", 1)).isTrue();
+		assertThat(index.add("1", "First", "post", 1)).isFalse();
+
+		assertThat(index.postCount()).isEqualTo(1);
+	}
+
+	@Test
+	void restoresTheSameIndexFromASnapshot() throws IOException {
+		for (int i = 0; i < 300; i++) {
+			index.add(Integer.toString(i), "Title " + i % 7, "content " + i % 13, 1000L + i);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		index.writeTo(new DataOutputStream(bytes));
+
+		PostSearchIndex restored = PostSearchIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		assertThat(restored.postCount()).isEqualTo(300);
+		assertThat(restored.indexedUntil()).isEqualTo(1299L);
+		assertThat(restored.search("title 3 content", 0, 20)).isEqualTo(index.search("title 3 content", 0, 20));
+		assertThat(restored.add("300", "Title", "content", 1300L)).isTrue();
+	}
+
+	@Test
+	void rejectsACorruptSnapshot() throws IOException {
+		index.add("1", "Title", "content", 1000L);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		index.writeTo(new DataOutputStream(bytes));
+		byte[] snapshot = bytes.toByteArray();
+		// The post count follows the magic number and the version.
+		ByteBuffer.wrap(snapshot).putInt(8, -1);
+
+		assertThatThrownBy(() -> PostSearchIndex.readFrom(new DataInputStream(new ByteArrayInputStream(snapshot))))
+				.isInstanceOf(IOException.class)
+				.hasMessageContaining("post count");
+		assertThatThrownBy(() -> PostSearchIndex.readFrom(new DataInputStream(
+				new ByteArrayInputStream(Arrays.copyOf(bytes.toByteArray(), bytes.size() - 3)))))
+				.isInstanceOf(IOException.class);
+	}
+
+	@Test
+	void snapshotsACopyThatLaterPostsDoNotChange() throws IOException {
+		index.add("1", "Title", "content", 1000L);
+		PostSearchIndex copy = index.copy();
+		index.add("2", "Title", "content", 1001L);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		copy.writeTo(new DataOutputStream(bytes));
+
+		PostSearchIndex restored = PostSearchIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		assertThat(restored.postCount()).isEqualTo(1);
+		assertThat(ids(restored.search("title", 0, 20))).containsExactly("1");
+	}
+
+	private static List<String> ids(PostSearchIndex.Page page) {
+		return page.hits().stream().map(PostSearchIndex.Hit::postId).toList();
+	}
+}
@@ -0,0 +1,120 @@
+package com.socialapp.service;
+
+import com.socialapp.MongoContainerTest;
+import com.socialapp.dto.LikeResult;
+import com.socialapp.model.Post;
+import com.socialapp.model.PostLike;
+import com.socialapp.repository.PostRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@TestPropertySource(properties = "socialapp.mongodb.transactions.enabled=true")
+class PostServiceTest extends MongoContainerTest {
+
+	private static final int THREADS = 16;
+	private static final int LIKERS = 100;
+	private static final int LIKES_PER_LIKER = 3;
+
+	@Autowired
+	private PostService postService;
+
+	@Autowired
+	private PostRepository postRepository;
+
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
+	private final List<String> postIds = new ArrayList<>();
+
+	@AfterEach
+	void cleanUp() {
+		mongoTemplate.remove(new Query(Criteria.where("postId").in(postIds)), PostLike.class);
+		postRepository.deleteAllById(postIds);
+	}
+
+	@Test
+	void parallelLikesAreCountedOncePerLiker() throws Exception {
+		String postId = createPost();
+		List<Callable<LikeResult>> likes = new ArrayList<>();
+		for (int liker = 0; liker < LIKERS; liker++) {
+			String userId = "liker-" + liker;
+			for (int i = 0; i < LIKES_PER_LIKER; i++) {
+				likes.add(() -> postService.addLike(postId, userId));
+			}
+		}
+
+		List<LikeResult> results = runTogether(likes);
+
+		assertThat(results).filteredOn(LikeResult::isChanged).hasSize(LIKERS);
+		assertThat(postRepository.findById(postId).orElseThrow().getLikeCount()).isEqualTo(LIKERS);
+		List<PostLike> stored = mongoTemplate.find(new Query(Criteria.where("postId").is(postId)), PostLike.class);
+		assertThat(stored).hasSize(LIKERS);
+		assertThat(new HashSet<>(stored.stream().map(PostLike::getUserId).toList())).hasSize(LIKERS);
+	}
+
+	@Test
+	void parallelLikesAndUnlikesLeaveTheCounterEqualToTheLikes() throws Exception {
+		String postId = createPost();
+		List<Callable<LikeResult>> changes = new ArrayList<>();
+		for (int liker = 0; liker < LIKERS; liker++) {
+			String userId = "liker-" + liker;
+			changes.add(() -> postService.addLike(postId, userId));
+			changes.add(() -> postService.removeLike(postId, userId));
+			changes.add(() -> postService.addLike(postId, userId));
+		}
+
+		runTogether(changes);
+
+		long likes = mongoTemplate.count(new Query(Criteria.where("postId").is(postId)), PostLike.class);
+		assertThat(postRepository.findById(postId).orElseThrow().getLikeCount()).isEqualTo(likes);
+	}
+
+	private String createPost() {
+		Post post = new Post();
+		post.setAuthorId("author");
+		post.setTitle("Concurrent likes");
+		post.setContent("Liked by many users at once");
+		String postId = postService.createPost(post).getId();
+		postIds.add(postId);
+		return postId;
+	}
+
+	private static <T> List<T> runTogether(List<Callable<T>> tasks) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<T>> futures = new ArrayList<>();
+			for (Callable<T> task : tasks) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					return task.call();
+				}));
+			}
+			start.countDown();
+			List<T> results = new ArrayList<>();
+			for (Future<T> future : futures) {
+				results.add(future.get(30, TimeUnit.SECONDS));
+			}
+			return results;
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
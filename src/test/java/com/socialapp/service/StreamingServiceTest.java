@@ -0,0 +1,126 @@
+package com.socialapp.service;
+
+import com.socialapp.dto.PostSummary;
+import com.socialapp.model.Message;
+import com.socialapp.model.User;
+import com.socialapp.repository.reactive.ReactiveMessageRepository;
+import com.socialapp.repository.reactive.ReactivePostRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StreamingServiceTest {
+
+	private static final int LARGE = 1_000_000;
+
+	private final ReactiveMongoTemplate mongoTemplate = mock(ReactiveMongoTemplate.class);
+	private final ReactivePostRepository postRepository = mock(ReactivePostRepository.class);
+	private final ReactiveMessageRepository messageRepository = mock(ReactiveMessageRepository.class);
+	private final StreamingService service = new StreamingService(mongoTemplate, postRepository, messageRepository);
+
+	@Test
+	void streamsThePostsOfTheUserAndTheirFriends() {
+		User user = new User();
+		user.setFriends(new ArrayList<>(List.of("b", "c")));
+		when(mongoTemplate.findOne(any(Query.class), eq(User.class))).thenReturn(Mono.just(user));
+		when(postRepository.findByAuthorIdInOrderByCreatedAtDescIdDesc(List.of("a", "b", "c")))
+				.thenReturn(Flux.just(summary("p2"), summary("p1")));
+
+		StepVerifier.create(service.streamFeed("a").map(PostSummary::getId))
+				.expectNext("p2", "p1")
+				.verifyComplete();
+	}
+
+	@Test
+	void mergesOneQueryPerGroupOfAuthorsNewestFirst() {
+		List<String> friends = new ArrayList<>();
+		for (int i = 1; i < StreamingService.MAX_AUTHORS_PER_QUERY + 50; i++) {
+			friends.add("f" + i);
+		}
+		User user = new User();
+		user.setFriends(friends);
+		when(mongoTemplate.findOne(any(Query.class), eq(User.class))).thenReturn(Mono.just(user));
+		List<String> first = new ArrayList<>(List.of("a"));
+		first.addAll(friends.subList(0, StreamingService.MAX_AUTHORS_PER_QUERY - 1));
+		List<String> second = friends.subList(StreamingService.MAX_AUTHORS_PER_QUERY - 1, friends.size());
+		when(postRepository.findByAuthorIdInOrderByCreatedAtDescIdDesc(first))
+				.thenReturn(Flux.just(summary("p5", 5), summary("p2", 2), summary("p1", 1)));
+		when(postRepository.findByAuthorIdInOrderByCreatedAtDescIdDesc(second))
+				.thenReturn(Flux.just(summary("p4", 4), summary("p3", 3)));
+
+		StepVerifier.create(service.streamFeed("a").map(PostSummary::getId))
+				.expectNext("p5", "p4", "p3", "p2", "p1")
+				.verifyComplete();
+	}
+
+	@Test
+	void streamsOnlyTheOwnPostsOfAnUnknownUser() {
+		when(mongoTemplate.findOne(any(Query.class), eq(User.class))).thenReturn(Mono.empty());
+		when(postRepository.findByAuthorIdInOrderByCreatedAtDescIdDesc(List.of("a"))).thenReturn(Flux.just(summary("p1")));
+
+		StepVerifier.create(service.streamFeed("a").map(PostSummary::getId))
+				.expectNext("p1")
+				.verifyComplete();
+	}
+
+	@Test
+	void readsNoMoreThanTheSubscriberRequests() {
+		AtomicLong produced = new AtomicLong();
+		when(messageRepository.findByConversationIdOrderByTimestampDescIdDesc("a:b")).thenReturn(messages(LARGE, produced));
+
+		StepVerifier.create(service.streamConversation("a:b"), 0)
+				.expectSubscription()
+				.expectNoEvent(Duration.ofMillis(50))
+				.thenRequest(10)
+				.expectNextCount(10)
+				.expectNoEvent(Duration.ofMillis(50))
+				.thenCancel()
+				.verify();
+
+		assertThat(produced).hasValue(10);
+	}
+
+	/**
+	 * A cursor over {@code count} messages that creates each one when it is requested.
+	 */
+	private static Flux<Message> messages(int count, AtomicLong produced) {
+		return Flux.generate(sink -> {
+			if (produced.get() == count) {
+				sink.complete();
+				return;
+			}
+			Message message = new Message();
+			message.setId(Long.toString(produced.incrementAndGet()));
+			message.setConversationId("a:b");
+			message.setContent("hello");
+			sink.next(message);
+		});
+	}
+
+	private static PostSummary summary(String id) {
+		PostSummary summary = new PostSummary();
+		summary.setId(id);
+		return summary;
+	}
+
+	private static PostSummary summary(String id, int minute) {
+		PostSummary summary = summary(id);
+		summary.setCreatedAt(LocalDateTime.of(2025, 1, 1, 0, minute));
+		return summary;
+	}
+}
@@ -0,0 +1,74 @@
+package com.socialapp.service;
+
+import com.socialapp.model.Media;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ThumbnailServiceTest {
+
+	private static final String ID = "ab".repeat(32);
+
+	@TempDir
+	private Path directory;
+
+	private final MediaService mediaService = mock(MediaService.class);
+	private ThumbnailService thumbnailService;
+
+	@AfterEach
+	void shutdown() {
+		thumbnailService.shutdown();
+	}
+
+	@Test
+	void decodesImagesUpToThePixelCap() throws Exception {
+		thumbnailService = new ThumbnailService(mediaService, new SimpleMeterRegistry(), 1, 1, 400 * 300);
+		Media media = png(400, 300);
+
+		BufferedImage image = thumbnailService.read(media);
+
+		assertThat(image).isNotNull();
+		assertThat(image.getWidth()).isEqualTo(400);
+	}
+
+	@Test
+	void doesNotDecodeImagesOverThePixelCap() throws Exception {
+		thumbnailService = new ThumbnailService(mediaService, new SimpleMeterRegistry(), 1, 1, 400 * 300 - 1);
+
+		assertThat(thumbnailService.read(png(400, 300))).isNull();
+	}
+
+	@Test
+	void skipsContentWithoutAnImageReader() throws Exception {
+		thumbnailService = new ThumbnailService(mediaService, new SimpleMeterRegistry(), 1, 1, 400 * 300);
+		Path file = directory.resolve(ID);
+		Files.writeString(file, "<svg xmlns=\"http://www.w3.org/2000/svg\"/>");
+		when(mediaService.getPath(ID)).thenReturn(file);
+
+		assertThat(thumbnailService.read(media())).isNull();
+	}
+
+	private Media png(int width, int height) throws Exception {
+		Path file = directory.resolve(ID);
+		ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+		when(mediaService.getPath(ID)).thenReturn(file);
+		return media();
+	}
+
+	private static Media media() {
+		Media media = new Media();
+		media.setId(ID);
+		media.setContentType("image/png");
+		return media;
+	}
+}
@@ -0,0 +1,52 @@
+package com.socialapp.service;
+
+import com.socialapp.model.Message;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class UnreadCounterServiceTest {
+
+	private final UnreadCounterService service = new UnreadCounterService(mock(MongoTemplate.class));
+
+	@Test
+	void evictsTheCountersThatDropToZero() {
+		service.increment(message("b", "a:b"));
+		service.increment(message("c", "a:c"));
+		service.increment(message("c", "c:d"));
+		service.decrement("b", "a:b", 1);
+		service.decrement("c", "a:c", 1);
+
+		service.sweep();
+
+		assertThat(service.receiverCount()).isEqualTo(1);
+		assertThat(service.getUnreadCount("b").getTotal()).isZero();
+		assertThat(service.getUnreadCount("c").getTotal()).isEqualTo(1);
+		assertThat(service.getUnreadCount("c").getConversations()).isEqualTo(Map.of("c:d", 1L));
+	}
+
+	@Test
+	void countsAReceiverAgainAfterItIsEvicted() {
+		service.increment(message("b", "a:b"));
+		service.decrement("b", "a:b", 1);
+		service.sweep();
+
+		service.increment(message("b", "a:b"));
+		service.sweep();
+
+		assertThat(service.getUnreadCount("b").getTotal()).isEqualTo(1);
+		assertThat(service.getUnreadCount("b").getConversations()).isEqualTo(Map.of("a:b", 1L));
+	}
+
+	private static Message message(String receiverId, String conversationId) {
+		Message message = new Message();
+		message.setSenderId("a");
+		message.setReceiverId(receiverId);
+		message.setConversationId(conversationId);
+		return message;
+	}
+}
@@ -0,0 +1,76 @@
+package com.socialapp.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.socialapp.dto.CursorPage;
+import com.socialapp.dto.UserProfile;
+import com.socialapp.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ExecutableFindOperation.ExecutableFind;
+import org.springframework.data.mongodb.core.ExecutableFindOperation.FindWithQuery;
+import org.springframework.data.mongodb.core.ExecutableFindOperation.TerminatingFind;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserProfileServiceTest {
+
+	private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+	private final UserProfileService userProfileService = new UserProfileService(mongoTemplate,
+			new SimpleMeterRegistry(), new ObjectMapper(), new MockEnvironment(), 1 << 20, Duration.ofMinutes(10),
+			new PageSizes(2, 2), 3);
+
+	@Test
+	void rejectsMoreIdsThanTheConfiguredMaximum() {
+		assertThatThrownBy(() -> userProfileService.getProfiles(List.of("a", "b", "c", "d")))
+				.isInstanceOfSatisfying(ResponseStatusException.class,
+						e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST));
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	void pagesTheFriendsOfAUserInIdOrder() {
+		User user = new User();
+		user.setFriends(List.of("c", "a", "e", "b", "d"));
+		when(mongoTemplate.findOne(any(Query.class), eq(User.class))).thenReturn(user);
+		ExecutableFind<User> find = mock(ExecutableFind.class);
+		FindWithQuery<UserProfile> projected = mock(FindWithQuery.class);
+		when(mongoTemplate.query(User.class)).thenReturn(find);
+		when(find.as(UserProfile.class)).thenReturn(projected);
+		when(projected.matching(any(Query.class))).thenAnswer(invocation -> {
+			Document ids = (Document) invocation.getArgument(0, Query.class).getQueryObject().get("_id");
+			TerminatingFind<UserProfile> found = mock(TerminatingFind.class);
+			when(found.all()).thenReturn(((Collection<String>) ids.get("$in")).stream().map(this::profile).toList());
+			return found;
+		});
+
+		CursorPage<UserProfile> first = userProfileService.getFriends("u", null, null);
+		CursorPage<UserProfile> second = userProfileService.getFriends("u", first.getNextCursor(), null);
+		CursorPage<UserProfile> last = userProfileService.getFriends("u", second.getNextCursor(), null);
+
+		assertThat(first.getItems()).extracting(UserProfile::getId).containsExactly("a", "b");
+		assertThat(second.getItems()).extracting(UserProfile::getId).containsExactly("c", "d");
+		assertThat(last.getItems()).extracting(UserProfile::getId).containsExactly("e");
+		assertThat(last.getNextCursor()).isNull();
+	}
+
+	private UserProfile profile(String id) {
+		UserProfile profile = new UserProfile();
+		profile.setId(id);
+		return profile;
+	}
+}
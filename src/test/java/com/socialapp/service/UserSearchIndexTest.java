@@ -0,0 +1,68 @@
+package com.socialapp.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserSearchIndexTest {
+
+	private final UserSearchIndex index = new UserSearchIndex();
+
+	@Test
+	void ranksUsernamesAndWholeWordsFirst() {
+		index.put("1", "gojo", "Gojo Satoru");
+		index.put("2", "satoru99", "Satoru Gojo");
+		index.put("3", "gojosan", "Someone Else");
+
+		assertThat(ids(index.search("gojo", 10, 100))).containsExactly("1", "2", "3");
+	}
+
+	@Test
+	void requiresEveryWordAndIgnoresCaseAndAccents() {
+		index.put("1", "jose", "José Álvarez");
+		index.put("2", "josh", "Josh Allen");
+
+		assertThat(ids(index.search("ALV", 10, 100))).containsExactly("1");
+		assertThat(ids(index.search("jos al", 10, 100))).containsExactlyInAnyOrder("1", "2");
+		assertThat(ids(index.search("josh alv", 10, 100))).isEmpty();
+	}
+
+	@Test
+	void replacesTheTermsOfAChangedUser() {
+		index.put("1", "gojo", "Gojo Satoru");
+		index.put("1", "kento", "Kento Nanami");
+
+		assertThat(index.search("gojo", 10, 100)).isEmpty();
+		assertThat(ids(index.search("nana", 10, 100))).containsExactly("1");
+		assertThat(index.userCount()).isEqualTo(1);
+		assertThat(index.termCount()).isEqualTo(2);
+	}
+
+	@Test
+	void returnsOnlyTheBestMatchesUpToTheLimit() {
+		for (int i = 0; i < 50; i++) {
+			index.put(Integer.toString(i), "user" + i, "Some User");
+		}
+
+		List<UserSearchIndex.Hit> hits = index.search("user1", 3, 1000);
+
+		assertThat(ids(hits)).containsExactly("1", "10", "11");
+	}
+
+	@Test
+	void findsRareWordsAmongUsersBeyondTheScanLimitOfACommonWord() {
+		for (int i = 0; i < 500; i++) {
+			index.put(Integer.toString(i), "john" + i, "John Doe");
+		}
+		index.put("smith", "zz_john", "John Smith");
+
+		assertThat(ids(index.search("john smi", 10, 100))).containsExactly("smith");
+		assertThat(ids(index.search("smi john", 10, 100))).containsExactly("smith");
+	}
+
+	private static List<String> ids(List<UserSearchIndex.Hit> hits) {
+		return hits.stream().map(UserSearchIndex.Hit::userId).toList();
+	}
+}
@@ -0,0 +1,50 @@
+package com.socialapp.service;
+
+import com.socialapp.config.PasswordEncoderConfig;
+import com.socialapp.model.User;
+import com.socialapp.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserServiceTest {
+
+	private final UserRepository userRepository = mock(UserRepository.class);
+	private final PasswordHashingService passwordHashingService = new PasswordHashingService(
+			new PasswordEncoderConfig().passwordEncoder("bcrypt", 5), new SimpleMeterRegistry(), 1, 8);
+	private final UserService userService = new UserService(userRepository, passwordHashingService,
+			mock(FriendGraphService.class), mock(UserProfileService.class), mock(MongoTemplate.class),
+			mock(ApplicationEventPublisher.class), new MockEnvironment(), 2);
+
+	@AfterEach
+	void shutdown() {
+		userService.shutdown();
+		passwordHashingService.shutdown();
+	}
+
+	@Test
+	void savesTheUserOffTheHashingWorkers() {
+		AtomicReference<String> savedOn = new AtomicReference<>();
+		when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+			savedOn.set(Thread.currentThread().getName());
+			return invocation.getArgument(0);
+		});
+		User user = new User();
+		user.setPassword("secret");
+
+		User saved = userService.saveUser(user).join();
+
+		assertThat(saved.getPassword()).startsWith("{bcrypt}");
+		assertThat(savedOn.get()).startsWith("user-store-");
+	}
+}
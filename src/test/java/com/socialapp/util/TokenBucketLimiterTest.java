@@ -0,0 +1,51 @@
+package com.socialapp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketLimiterTest {
+
+	private final AtomicLong now = new AtomicLong();
+	private final TokenBucketLimiter limiter = new TokenBucketLimiter(3, 1, now::get);
+
+	@Test
+	void allowsABurstThenTheRefillRate() {
+		assertThat(limiter.tryAcquire("alice")).isTrue();
+		assertThat(limiter.tryAcquire("alice")).isTrue();
+		assertThat(limiter.tryAcquire("alice")).isTrue();
+		assertThat(limiter.tryAcquire("alice")).isFalse();
+
+		now.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+		assertThat(limiter.tryAcquire("alice")).isFalse();
+		now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+		assertThat(limiter.tryAcquire("alice")).isTrue();
+		assertThat(limiter.tryAcquire("alice")).isFalse();
+	}
+
+	@Test
+	void limitsEachKeySeparately() {
+		for (int i = 0; i < 3; i++) {
+			limiter.tryAcquire("alice");
+		}
+
+		assertThat(limiter.tryAcquire("alice")).isFalse();
+		assertThat(limiter.tryAcquire("bob")).isTrue();
+	}
+
+	@Test
+	void evictsOnlyBucketsThatHaveRefilled() {
+		limiter.tryAcquire("alice");
+		now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+		limiter.tryAcquire("bob");
+		now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+		limiter.evictIdle();
+
+		assertThat(limiter.size()).isEqualTo(1);
+		assertThat(limiter.tryAcquire("bob")).isTrue();
+	}
+}